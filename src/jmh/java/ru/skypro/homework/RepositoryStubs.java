@@ -0,0 +1,39 @@
+package ru.skypro.homework;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Заглушки репозиториев для бенчмарков.
+ * Вызов заглушки стоит одного диспетчеризованного вызова, поэтому в замер попадает только код сервисов,
+ * а не работа Mockito или БД
+ */
+public final class RepositoryStubs {
+
+    private RepositoryStubs() {
+    }
+
+    /**
+     * Создание заглушки интерфейса репозитория
+     *
+     * @param type    интерфейс репозитория
+     * @param answers ответы по имени метода; остальные методы выбрасывают UnsupportedOperationException
+     * @return заглушка репозитория
+     */
+    public static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Function<Object[], Object> answer = answers.get(method.getName());
+                    if (answer != null) {
+                        return answer.apply(args);
+                    }
+                    return switch (method.getName()) {
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> type.getSimpleName() + " stub";
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                }));
+    }
+}
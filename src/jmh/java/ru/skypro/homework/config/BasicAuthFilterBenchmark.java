@@ -0,0 +1,100 @@
+package ru.skypro.homework.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.skypro.homework.RepositoryStubs;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.BasicAuthCredentialCache;
+import ru.skypro.homework.service.CustomUserDetailsService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработка заголовка Basic в {@link AutoBasicAuthFilter}: попадание в кэш проверенных учетных данных
+ * и полный путь с разбором заголовка и загрузкой пользователя.
+ * Пароли сравниваются без хэширования, чтобы замер не определялся стоимостью bcrypt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasicAuthFilterBenchmark {
+    private static final String USERNAME = "user@mail.ru";
+    private static final String PASSWORD = "password";
+
+    private AutoBasicAuthFilter cachedFilter;
+    private AutoBasicAuthFilter uncachedFilter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ServletException, IOException {
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword(PASSWORD);
+        user.setRole(Role.USER);
+        UserRepository userRepository = RepositoryStubs.stub(UserRepository.class, Map.of(
+                "findByUsername", args -> Optional.of(user)));
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(userRepository);
+
+        cachedFilter = new AutoBasicAuthFilter(userDetailsService, new PlainPasswordEncoder(),
+                new BasicAuthCredentialCache(Duration.ofHours(1), 10_000), new SimpleMeterRegistry(),
+                WebSecurityConfig.AUTH_MODE_TOKEN);
+        uncachedFilter = new AutoBasicAuthFilter(userDetailsService, new PlainPasswordEncoder(),
+                new BasicAuthCredentialCache(Duration.ofHours(1), 0), new SimpleMeterRegistry(),
+                WebSecurityConfig.AUTH_MODE_TOKEN);
+
+        String credentials = USERNAME + ":" + PASSWORD;
+        request = new MockHttpServletRequest("GET", "/ads");
+        request.addHeader("Authorization",
+                "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        response = new MockHttpServletResponse();
+
+        authenticate(cachedFilter);
+    }
+
+    @Benchmark
+    public Object cachedCredentials() throws ServletException, IOException {
+        return authenticate(cachedFilter);
+    }
+
+    @Benchmark
+    public Object uncachedCredentials() throws ServletException, IOException {
+        return authenticate(uncachedFilter);
+    }
+
+    private Object authenticate(AutoBasicAuthFilter filter) throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, response, new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static final class PlainPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ru.skypro.homework.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.skypro.homework.dto.ad.AdFullResponseDTO;
+import ru.skypro.homework.dto.ad.AdShortResponseDTO;
+import ru.skypro.homework.dto.comment.CommentDTO;
+import ru.skypro.homework.dto.comment.CommentsDTO;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Сериализация ответов API в JSON тем же построителем ObjectMapper, что использует Spring MVC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private ObjectMapper objectMapper;
+    private AdFullResponseDTO ad;
+    private Map<String, Object> adsPage;
+    private CommentsDTO commentsPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        ad = new AdFullResponseDTO();
+        ad.setPk(1L);
+        ad.setAuthorFirstName("Иван");
+        ad.setAuthorLastName("Иванов");
+        ad.setEmail("user@mail.ru");
+        ad.setPhone("+7 999 888-77-66");
+        ad.setImage(ImageUrls.adImage(1L, HASH));
+        ad.setPrice(1000);
+        ad.setTitle("Велосипед");
+        ad.setDescription("Горный велосипед в хорошем состоянии, использовался два сезона");
+
+        List<AdShortResponseDTO> ads = LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> {
+                    AdShortResponseDTO dto = new AdShortResponseDTO();
+                    dto.setPk(id);
+                    dto.setAuthor(id % 5);
+                    dto.setImage(ImageUrls.adImagePreview(id, HASH));
+                    dto.setPrice((int) id * 100);
+                    dto.setTitle("Объявление " + id);
+                    return dto;
+                })
+                .toList();
+        adsPage = new LinkedHashMap<>();
+        adsPage.put("count", ads.size());
+        adsPage.put("results", ads);
+        adsPage.put("next", "MjA");
+
+        List<CommentDTO> comments = LongStream.rangeClosed(1, 50)
+                .mapToObj(id -> {
+                    CommentDTO dto = new CommentDTO();
+                    dto.setId(id);
+                    dto.setAuthor(id % 5);
+                    dto.setAuthorFirstName("Автор");
+                    dto.setAuthorImage(ImageUrls.avatarPreview(id % 5, null));
+                    dto.setCreatedAt(1_735_732_800_000L + id);
+                    dto.setText("Комментарий " + id);
+                    return dto;
+                })
+                .toList();
+        commentsPage = new CommentsDTO();
+        commentsPage.setCount(comments.size());
+        commentsPage.setResults(comments);
+    }
+
+    @Benchmark
+    public byte[] adFullResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ad);
+    }
+
+    @Benchmark
+    public byte[] adsPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(adsPage);
+    }
+
+    @Benchmark
+    public byte[] commentsPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(commentsPage);
+    }
+}
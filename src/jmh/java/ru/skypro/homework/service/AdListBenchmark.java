@@ -0,0 +1,58 @@
+package ru.skypro.homework.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.skypro.homework.RepositoryStubs;
+import ru.skypro.homework.dto.ad.AdFilter;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.projection.AdSummaryView;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Построение страницы объявлений в {@link AdService}: преобразование проекций в DTO
+ * со ссылками на превью и кодирование курсора следующей страницы
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdListBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private AdService adService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<AdSummaryView> ads = LongStream.rangeClosed(1, pageSize + 1)
+                .mapToObj(id -> new AdSummaryView(id, id % 10, (int) id * 100, "Объявление " + id,
+                        now.minusMinutes(id), ContentHashes.of(id)))
+                .toList();
+
+        AdRepository adRepository = RepositoryStubs.stub(AdRepository.class, Map.of(
+                "findFilteredPageAfterId", args -> ads,
+                "findFilteredPageBeforeCreatedAt", args -> ads));
+        adService = new AdService(null, adRepository, null, null, null, null);
+        ReflectionTestUtils.setField(adService, "defaultPageLimit", 20);
+        ReflectionTestUtils.setField(adService, "maxPageLimit", 100);
+    }
+
+    @Benchmark
+    public Map<String, Object> pageById() {
+        return adService.getAllAds(AdFilter.NONE, null, pageSize, "id");
+    }
+
+    @Benchmark
+    public Map<String, Object> pageByCreatedAt() {
+        return adService.getAllAds(AdFilter.NONE, null, pageSize, "created");
+    }
+}
@@ -0,0 +1,53 @@
+package ru.skypro.homework.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.skypro.homework.RepositoryStubs;
+import ru.skypro.homework.dto.comment.CommentsDTO;
+import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.projection.CommentView;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Построение страницы комментариев в {@link CommentService}: преобразование проекций в DTO
+ * и кодирование курсора следующей страницы
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommentListBenchmark {
+
+    @Param({"50", "200"})
+    public int pageSize;
+
+    private CommentService commentService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<CommentView> comments = LongStream.iterate(pageSize + 1, number -> number - 1)
+                .limit(pageSize + 1)
+                .mapToObj(number -> new CommentView(number, "Комментарий " + number,
+                        now.minusMinutes(number), number % 25, "Автор"))
+                .toList();
+
+        CommentRepository commentRepository = RepositoryStubs.stub(CommentRepository.class, Map.of(
+                "findPageBefore", args -> comments));
+        commentService = new CommentService(commentRepository, null, null);
+        ReflectionTestUtils.setField(commentService, "defaultPageLimit", 50);
+        ReflectionTestUtils.setField(commentService, "maxPageLimit", 200);
+    }
+
+    @Benchmark
+    public CommentsDTO firstPage() {
+        return commentService.getCommentsByAdId(1L, null, pageSize);
+    }
+}
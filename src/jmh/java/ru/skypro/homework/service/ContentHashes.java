@@ -0,0 +1,19 @@
+package ru.skypro.homework.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Детерминированные хэши содержимого для данных бенчмарков
+ */
+final class ContentHashes {
+
+    private ContentHashes() {
+    }
+
+    static String of(long seed) {
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update(Long.toString(seed).getBytes(StandardCharsets.UTF_8));
+        return ContentHash.toHex(digest);
+    }
+}
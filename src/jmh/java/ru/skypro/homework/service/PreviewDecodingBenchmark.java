@@ -0,0 +1,79 @@
+package ru.skypro.homework.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение генерации превью шириной 100 пикселей:
+ * полное декодирование исходника через {@link ImageIO#read} и декодирование с прореживанием,
+ * а также построение полного набора копий {@link #VARIANT_WIDTHS} из одного декодирования.
+ * Объем выделяемой памяти на операцию показывает профилировщик {@code -prof gc} (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class PreviewDecodingBenchmark {
+    private static final int PREVIEW_WIDTH = 100;
+    private static final long MAX_DECODED_PIXELS = 4_000_000;
+    private static final int[] VARIANT_WIDTHS = {100, 320, 800};
+
+    @Param({"1600x1200", "6000x4000"})
+    public String size;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+
+        file = Files.createTempFile("preview-benchmark", ".jpg");
+        ImageIO.write(image, "jpg", file.toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] fullDecode() throws IOException {
+        BufferedImage image = ImageIO.read(file.toFile());
+        return ImageProcessingService.encode(ImageProcessingService.resize(image, PREVIEW_WIDTH), "jpg");
+    }
+
+    @Benchmark
+    public byte[] subsampledDecode() throws IOException {
+        ImageProcessingService.DecodedImage decoded =
+                ImageProcessingService.decode(file, width -> PREVIEW_WIDTH, MAX_DECODED_PIXELS);
+        return ImageProcessingService.encode(ImageProcessingService.resize(decoded.image(), PREVIEW_WIDTH), "jpg");
+    }
+
+    @Benchmark
+    public int subsampledVariantSet() throws IOException {
+        ImageProcessingService.DecodedImage decoded =
+                ImageProcessingService.decode(file, width -> VARIANT_WIDTHS[VARIANT_WIDTHS.length - 1], MAX_DECODED_PIXELS);
+        int bytes = 0;
+        for (int width : VARIANT_WIDTHS) {
+            bytes += ImageProcessingService.encode(ImageProcessingService.resize(decoded.image(), width), "jpg").length;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.skypro.homework.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Замеры задержки одного сценария в одном потоке.
+ * Потоки пишут каждый в свой экземпляр, объединение выполняется после прогона
+ */
+final class LatencySamples {
+    private long[] nanos = new long[1024];
+    private int size;
+    private long errors;
+
+    void record(long latencyNanos, boolean success) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    void addAll(LatencySamples other) {
+        for (int i = 0; i < other.size; i++) {
+            record(other.nanos[i], true);
+        }
+        errors += other.errors;
+    }
+
+    int count() {
+        return size;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    /**
+     * Сортировка замеров перед расчетом перцентилей
+     */
+    long[] sorted() {
+        long[] copy = Arrays.copyOf(nanos, size);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * Перцентиль по методу ближайшего ранга
+     */
+    static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.skypro.homework.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Выполнение сценариев заданным числом параллельных клиентов.
+ * Каждый клиент работает от имени одного пользователя и хранит cookie сессии, как браузер.
+ * Запросы прогрева выполняются, но не учитываются
+ */
+final class LoadDriver {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final LoadTestSettings settings;
+    private final LoadTestSeeder.SeededData data;
+    private final Scenario[] weightedScenarios;
+
+    LoadDriver(URI baseUri, LoadTestSettings settings, LoadTestSeeder.SeededData data) {
+        this.baseUri = baseUri;
+        this.settings = settings;
+        this.data = data;
+        List<Scenario> weighted = new ArrayList<>();
+        settings.mix().forEach((scenario, weight) -> weighted.addAll(Collections.nCopies(weight, scenario)));
+        this.weightedScenarios = weighted.toArray(Scenario[]::new);
+    }
+
+    /**
+     * Прогон нагрузки
+     *
+     * @return объединенные замеры по сценариям и фактическая длительность замера
+     */
+    Result run() throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long measureUntil = measureFrom + settings.duration().toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(settings.concurrency());
+        List<Future<Map<Scenario, LatencySamples>>> futures = new ArrayList<>();
+        for (int client = 0; client < settings.concurrency(); client++) {
+            String username = data.usernames().get(client % data.usernames().size());
+            long seed = client;
+            futures.add(executor.submit(() -> runClient(username, seed, measureFrom, measureUntil)));
+        }
+
+        Map<Scenario, LatencySamples> merged = new EnumMap<>(Scenario.class);
+        for (Future<Map<Scenario, LatencySamples>> future : futures) {
+            future.get().forEach((scenario, samples) ->
+                    merged.computeIfAbsent(scenario, key -> new LatencySamples()).addAll(samples));
+        }
+        executor.shutdown();
+        return new Result(merged, Duration.ofNanos(measureUntil - measureFrom));
+    }
+
+    private Map<Scenario, LatencySamples> runClient(String username, long seed, long measureFrom, long measureUntil) {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        String authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + settings.password()).getBytes(StandardCharsets.UTF_8));
+        Random random = new Random(seed);
+        Map<Scenario, LatencySamples> samples = new EnumMap<>(Scenario.class);
+
+        long now;
+        while ((now = System.nanoTime()) < measureUntil) {
+            Scenario scenario = weightedScenarios[random.nextInt(weightedScenarios.length)];
+            long adId = data.adIds().get(random.nextInt(data.adIds().size()));
+            HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(scenario.path(adId)))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET();
+            if (scenario.authenticated()) {
+                request.header("Authorization", authorization);
+            }
+
+            boolean success;
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                success = response.statusCode() < 400;
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long latency = System.nanoTime() - started;
+
+            if (now >= measureFrom) {
+                samples.computeIfAbsent(scenario, key -> new LatencySamples()).record(latency, success);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Результат прогона
+     *
+     * @param samples  замеры по сценариям
+     * @param measured длительность замера без прогрева
+     */
+    record Result(Map<Scenario, LatencySamples> samples, Duration measured) {
+    }
+}
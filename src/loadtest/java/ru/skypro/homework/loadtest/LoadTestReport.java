@@ -0,0 +1,87 @@
+package ru.skypro.homework.loadtest;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчет нагрузочного прогона, сохраняемый в JSON
+ *
+ * @param finishedAt      время окончания прогона
+ * @param database        URL базы данных
+ * @param dataset         объем данных
+ * @param threads         режим потоков обработки запросов
+ * @param concurrency     число параллельных клиентов
+ * @param durationSeconds длительность замера без прогрева
+ * @param endpoints       результаты по эндпоинтам
+ * @param total           результаты по всем запросам
+ */
+record LoadTestReport(Instant finishedAt,
+                      String database,
+                      Dataset dataset,
+                      Threads threads,
+                      int concurrency,
+                      double durationSeconds,
+                      List<EndpointResult> endpoints,
+                      EndpointResult total) {
+
+    static LoadTestReport of(LoadTestSettings settings, String database, Threads threads, LoadDriver.Result result) {
+        double seconds = result.measured().toNanos() / 1_000_000_000.0;
+        List<EndpointResult> endpoints = new ArrayList<>();
+        LatencySamples all = new LatencySamples();
+        for (Map.Entry<Scenario, LatencySamples> entry : result.samples().entrySet()) {
+            endpoints.add(EndpointResult.of(entry.getKey().endpoint(), entry.getValue(), seconds));
+            all.addAll(entry.getValue());
+        }
+        return new LoadTestReport(Instant.now(), database,
+                new Dataset(settings.users(), settings.ads(), settings.commentsPerAd(), settings.images()),
+                threads, settings.concurrency(), seconds, endpoints, EndpointResult.of("total", all, seconds));
+    }
+
+    record Dataset(int users, int ads, int commentsPerAd, int images) {
+    }
+
+    /**
+     * Режим потоков, в котором выполнялся прогон
+     *
+     * @param virtual          запросы Tomcat выполняются в виртуальных потоках
+     * @param tomcatMaxThreads размер пула потоков Tomcat (не используется в режиме виртуальных потоков)
+     * @param connectionPool   максимальный размер пула соединений Hikari
+     */
+    record Threads(boolean virtual, int tomcatMaxThreads, int connectionPool) {
+
+        static Threads from(Environment environment) {
+            return new Threads(
+                    environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false),
+                    environment.getProperty("server.tomcat.threads.max", Integer.class, 200),
+                    environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        }
+    }
+
+    record EndpointResult(String endpoint,
+                          int requests,
+                          long errors,
+                          double throughputPerSecond,
+                          double p50Millis,
+                          double p90Millis,
+                          double p99Millis,
+                          double maxMillis) {
+
+        static EndpointResult of(String endpoint, LatencySamples samples, double seconds) {
+            long[] sorted = samples.sorted();
+            return new EndpointResult(endpoint, samples.count(), samples.errors(),
+                    round(samples.count() / seconds),
+                    round(LatencySamples.percentileMillis(sorted, 50)),
+                    round(LatencySamples.percentileMillis(sorted, 90)),
+                    round(LatencySamples.percentileMillis(sorted, 99)),
+                    round(LatencySamples.percentileMillis(sorted, 100)));
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+}
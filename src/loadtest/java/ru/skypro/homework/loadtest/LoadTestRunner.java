@@ -0,0 +1,66 @@
+package ru.skypro.homework.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.skypro.homework.HomeworkApplication;
+
+import java.net.URI;
+import java.nio.file.Files;
+
+/**
+ * Нагрузочный прогон: запуск приложения с профилем {@code loadtest}, заполнение БД,
+ * выполнение сценариев и запись p50/p90/p99 и пропускной способности по эндпоинтам в JSON.
+ * Параметры передаются аргументами вида {@code --loadtest.concurrency=32}
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(HomeworkApplication.class)
+                .profiles("loadtest")
+                .run(args);
+        try {
+            LoadTestSettings settings = LoadTestSettings.from(context.getEnvironment());
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            System.out.printf("Seeding %d users, %d ads, %d comments per ad%n",
+                    settings.users(), settings.ads(), settings.commentsPerAd());
+            LoadTestSeeder.SeededData data = new LoadTestSeeder(context, settings).seed();
+
+            LoadTestReport.Threads threads = LoadTestReport.Threads.from(context.getEnvironment());
+            System.out.printf("Running %d clients on %s threads: %s warmup, %s measurement%n",
+                    settings.concurrency(), threads.virtual() ? "virtual" : "platform",
+                    settings.warmup(), settings.duration());
+            LoadDriver.Result result = new LoadDriver(URI.create("http://localhost:" + port), settings, data).run();
+
+            LoadTestReport report = LoadTestReport.of(settings,
+                    context.getEnvironment().getProperty("spring.datasource.url"), threads, result);
+            Files.createDirectories(settings.output().toAbsolutePath().getParent());
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class).copy()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+            objectMapper.writeValue(settings.output().toFile(), report);
+
+            print(report);
+            System.out.println("Report written to " + settings.output().toAbsolutePath());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void print(LoadTestReport report) {
+        System.out.printf("%-30s %9s %7s %10s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        report.endpoints().forEach(LoadTestRunner::printRow);
+        printRow(report.total());
+    }
+
+    private static void printRow(LoadTestReport.EndpointResult row) {
+        System.out.printf("%-30s %9d %7d %10.1f %9.2f %9.2f %9.2f%n", row.endpoint(), row.requests(), row.errors(),
+                row.throughputPerSecond(), row.p50Millis(), row.p99Millis(), row.maxMillis());
+    }
+}
@@ -0,0 +1,165 @@
+package ru.skypro.homework.loadtest;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.entity.Comment;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdPreviewRepository;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.ContentHash;
+import ru.skypro.homework.service.ImageUploadedEvent;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Заполнение БД пользователями, объявлениями с изображениями и комментариями.
+ * Превью строит штатный фоновый обработчик изображений, заполнение ждет его завершения
+ */
+final class LoadTestSeeder {
+    private static final int BATCH_SIZE = 1000;
+    private static final long PREVIEW_TIMEOUT_MILLIS = 120_000;
+
+    private final ApplicationContext context;
+    private final LoadTestSettings settings;
+    private final Random random = new Random(42);
+
+    LoadTestSeeder(ApplicationContext context, LoadTestSettings settings) {
+        this.context = context;
+        this.settings = settings;
+    }
+
+    /**
+     * Заполнение БД
+     *
+     * @return созданные пользователи и объявления
+     * @throws IOException при ошибках записи изображений
+     */
+    SeededData seed() throws IOException, InterruptedException {
+        List<User> users = seedUsers();
+        List<Ad> ads = seedAds(users);
+        seedComments(users, ads);
+        awaitPreviews(ads);
+        return new SeededData(
+                users.stream().map(User::getUsername).toList(),
+                ads.stream().map(Ad::getId).toList());
+    }
+
+    private List<User> seedUsers() {
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(settings.password());
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= settings.users(); i++) {
+            User user = new User();
+            user.setUsername("loadtest-" + i + "@mail.ru");
+            user.setPassword(passwordHash);
+            user.setFirstName("Пользователь");
+            user.setLastName(String.valueOf(i));
+            user.setPhone("+7 000 000-00-00");
+            user.setRole(Role.USER);
+            users.add(user);
+        }
+        return context.getBean(UserRepository.class).saveAll(users);
+    }
+
+    private List<Ad> seedAds(List<User> users) throws IOException {
+        Path adsDir = Path.of(context.getBean(Environment.class).getRequiredProperty("path.to.ads.folder"));
+        Files.createDirectories(adsDir);
+        List<StoredImage> images = new ArrayList<>();
+        for (int i = 0; i < settings.images(); i++) {
+            images.add(writeImage(adsDir.resolve("loadtest_" + i + ".jpg"), i));
+        }
+
+        List<Ad> ads = new ArrayList<>();
+        for (int i = 0; i < settings.ads(); i++) {
+            StoredImage image = images.get(i % images.size());
+            Ad ad = new Ad();
+            ad.setUser(users.get(i % users.size()));
+            ad.setTitle("Объявление " + (i + 1));
+            ad.setPrice(100 + random.nextInt(100_000));
+            ad.setDescription("Описание объявления " + (i + 1) + " для нагрузочного прогона");
+            ad.setFilePath(image.path().toString());
+            ad.setFileSize(image.size());
+            ad.setMediaType("image/jpeg");
+            ad.setFileHash(image.hash());
+            ad.setFileModifiedAt(LocalDateTime.now());
+            ads.add(ad);
+        }
+        return context.getBean(AdRepository.class).saveAll(ads);
+    }
+
+    private void seedComments(List<User> users, List<Ad> ads) {
+        CommentRepository commentRepository = context.getBean(CommentRepository.class);
+        List<Comment> batch = new ArrayList<>(BATCH_SIZE);
+        for (Ad ad : ads) {
+            for (long number = 1; number <= settings.commentsPerAd(); number++) {
+                Comment comment = new Comment("Комментарий " + number, users.get(random.nextInt(users.size())), ad);
+                comment.setCommentNumber(number);
+                batch.add(comment);
+                if (batch.size() == BATCH_SIZE) {
+                    commentRepository.saveAll(batch);
+                    batch.clear();
+                }
+            }
+        }
+        commentRepository.saveAll(batch);
+    }
+
+    private void awaitPreviews(List<Ad> ads) throws InterruptedException {
+        for (Ad ad : ads) {
+            context.publishEvent(new ImageUploadedEvent(
+                    ImageUploadedEvent.Owner.AD, ad.getId(), ad.getFilePath(), ad.getFileHash()));
+        }
+        AdPreviewRepository previewRepository = context.getBean(AdPreviewRepository.class);
+        long deadline = System.currentTimeMillis() + PREVIEW_TIMEOUT_MILLIS;
+        while (previewRepository.count() < ads.size()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Previews were not generated in time");
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    private StoredImage writeImage(Path path, int seed) throws IOException {
+        BufferedImage image = new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.getHSBColor(seed / 20f, 0.6f, 0.9f),
+                1280, 960, Color.getHSBColor(seed / 20f + 0.5f, 0.6f, 0.4f)));
+        graphics.fillRect(0, 0, 1280, 960);
+        graphics.dispose();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", baos);
+        byte[] bytes = baos.toByteArray();
+        Files.write(path, bytes);
+
+        var digest = ContentHash.newDigest();
+        digest.update(bytes);
+        return new StoredImage(path.toAbsolutePath(), bytes.length, ContentHash.toHex(digest));
+    }
+
+    private record StoredImage(Path path, long size, String hash) {
+    }
+
+    /**
+     * Созданные данные, из которых клиенты выбирают пользователя и объявление
+     *
+     * @param usernames имена пользователей
+     * @param adIds     идентификаторы объявлений
+     */
+    record SeededData(List<String> usernames, List<Long> adIds) {
+    }
+}
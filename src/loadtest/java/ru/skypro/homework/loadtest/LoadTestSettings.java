@@ -0,0 +1,69 @@
+package ru.skypro.homework.loadtest;
+
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного прогона из свойств {@code loadtest.*}
+ *
+ * @param users         число пользователей
+ * @param ads           число объявлений
+ * @param commentsPerAd число комментариев у каждого объявления
+ * @param images        число различных изображений, распределяемых по объявлениям
+ * @param password      пароль всех пользователей
+ * @param concurrency   число одновременных клиентов
+ * @param warmup        длительность прогрева, запросы которого не учитываются
+ * @param duration      длительность замера
+ * @param mix           относительный вес каждого сценария
+ * @param output        файл отчета
+ */
+record LoadTestSettings(int users,
+                        int ads,
+                        int commentsPerAd,
+                        int images,
+                        String password,
+                        int concurrency,
+                        Duration warmup,
+                        Duration duration,
+                        Map<Scenario, Integer> mix,
+                        Path output) {
+
+    static LoadTestSettings from(Environment environment) {
+        return new LoadTestSettings(
+                environment.getRequiredProperty("loadtest.users", Integer.class),
+                environment.getRequiredProperty("loadtest.ads", Integer.class),
+                environment.getRequiredProperty("loadtest.comments-per-ad", Integer.class),
+                environment.getRequiredProperty("loadtest.images", Integer.class),
+                environment.getRequiredProperty("loadtest.password"),
+                environment.getRequiredProperty("loadtest.concurrency", Integer.class),
+                environment.getRequiredProperty("loadtest.warmup", Duration.class),
+                environment.getRequiredProperty("loadtest.duration", Duration.class),
+                parseMix(environment.getRequiredProperty("loadtest.mix")),
+                Path.of(environment.getRequiredProperty("loadtest.output")));
+    }
+
+    /**
+     * Разбор строки вида {@code ads:4,comments:3}
+     */
+    static Map<Scenario, Integer> parseMix(String value) {
+        Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid scenario weight: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(Scenario.fromKey(parts[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Scenario mix is empty");
+        }
+        return mix;
+    }
+}
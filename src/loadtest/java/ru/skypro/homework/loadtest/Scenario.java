@@ -0,0 +1,56 @@
+package ru.skypro.homework.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Сценарии нагрузки, составленные по запросам из example-requests.http
+ */
+enum Scenario {
+    ADS("ads", "GET /ads", true),
+    AD("ad", "GET /ads/{id}", true),
+    COMMENTS("comments", "GET /ads/{id}/comments", true),
+    MY_ADS("my-ads", "GET /ads/me", true),
+    PROFILE("profile", "GET /users/me", true),
+    IMAGE("image", "GET /ads/{id}/image", false),
+    IMAGE_PREVIEW("image-preview", "GET /ads/{id}/image/preview", false);
+
+    private final String key;
+    private final String endpoint;
+    private final boolean authenticated;
+
+    Scenario(String key, String endpoint, boolean authenticated) {
+        this.key = key;
+        this.endpoint = endpoint;
+        this.authenticated = authenticated;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    boolean authenticated() {
+        return authenticated;
+    }
+
+    /**
+     * Путь запроса для выбранного объявления
+     */
+    String path(long adId) {
+        return switch (this) {
+            case ADS -> "/ads";
+            case AD -> "/ads/" + adId;
+            case COMMENTS -> "/ads/" + adId + "/comments";
+            case MY_ADS -> "/ads/me";
+            case PROFILE -> "/users/me";
+            case IMAGE -> "/ads/" + adId + "/image";
+            case IMAGE_PREVIEW -> "/ads/" + adId + "/image/preview";
+        };
+    }
+
+    static Scenario fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(scenario -> scenario.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown scenario: " + key));
+    }
+}
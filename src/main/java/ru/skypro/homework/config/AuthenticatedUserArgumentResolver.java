@@ -0,0 +1,60 @@
+package ru.skypro.homework.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.service.AuthenticatedUserDetails;
+import ru.skypro.homework.service.CustomUserDetailsService;
+
+/**
+ * Подстановка {@link AuthenticatedUser} в параметры методов контроллеров.
+ * Пользователь берется из контекста безопасности; если аутентификация не содержит идентификатор
+ * (например, токен выпущен до его появления), пользователь загружается из БД.
+ * Результат сохраняется в атрибуте запроса и определяется не более одного раза за запрос
+ */
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+    private static final String ATTRIBUTE = AuthenticatedUser.class.getName();
+
+    private final CustomUserDetailsService userDetailsService;
+
+    public AuthenticatedUserArgumentResolver(CustomUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public AuthenticatedUser resolveArgument(MethodParameter parameter,
+                                             ModelAndViewContainer mavContainer,
+                                             NativeWebRequest webRequest,
+                                             WebDataBinderFactory binderFactory) {
+        Object resolved = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolved instanceof AuthenticatedUser user) {
+            return user;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            throw new AuthenticationCredentialsNotFoundException("Authentication required");
+        }
+
+        AuthenticatedUserDetails details = authentication.getPrincipal() instanceof AuthenticatedUserDetails principal
+                ? principal
+                : userDetailsService.loadUserByUsername(authentication.getName());
+        AuthenticatedUser user = details.toAuthenticatedUser();
+        webRequest.setAttribute(ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+}
@@ -1,33 +1,49 @@
 package ru.skypro.homework.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.homework.service.BasicAuthCredentialCache;
 import ru.skypro.homework.service.CustomUserDetailsService;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AutoBasicAuthFilter extends OncePerRequestFilter {
 
     private final CustomUserDetailsService userDetailsService;
     private final PasswordEncoder passwordEncoder;
+    private final BasicAuthCredentialCache credentialCache;
+    private final boolean statelessMode;
+    private final Timer matchedVerifications;
+    private final Timer rejectedVerifications;
 
     public AutoBasicAuthFilter(CustomUserDetailsService userDetailsService,
-                               PasswordEncoder passwordEncoder) {
+                               PasswordEncoder passwordEncoder,
+                               BasicAuthCredentialCache credentialCache,
+                               MeterRegistry meterRegistry,
+                               @Value("${security.auth.mode:session}") String authMode) {
         this.userDetailsService = userDetailsService;
         this.passwordEncoder = passwordEncoder;
+        this.credentialCache = credentialCache;
+        this.statelessMode = WebSecurityConfig.AUTH_MODE_TOKEN.equalsIgnoreCase(authMode);
+        this.matchedVerifications = verificationTimer(meterRegistry, "match");
+        this.rejectedVerifications = verificationTimer(meterRegistry, "mismatch");
     }
 
     @Override
@@ -44,21 +60,16 @@ public class AutoBasicAuthFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Basic ")) {
             try {
-                String base64Credentials = authHeader.substring("Basic ".length());
-                byte[] decodedBytes = Base64.getDecoder().decode(base64Credentials);
-                String credentials = new String(decodedBytes, StandardCharsets.UTF_8);
-                String[] values = credentials.split(":", 2);
-
-                if (values.length == 2) {
-                    String username = values[0];
-                    String password = values[1];
-
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    if (passwordEncoder.matches(password, userDetails.getPassword())) {
-                        Authentication authentication = new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                UserDetails userDetails = credentialCache.get(authHeader);
+                if (userDetails == null) {
+                    userDetails = verifyCredentials(authHeader);
+                }
+                if (userDetails != null) {
+                    Authentication authentication = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
 
+                    if (!statelessMode) {
                         HttpSession session = request.getSession(true);
                         session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
                     }
@@ -70,4 +81,42 @@ public class AutoBasicAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Проверка учетных данных из заголовка по БД и bcrypt.
+     * Успешно проверенные данные сохраняются в кэш, если за время проверки пароль не сменили
+     *
+     * @param authHeader значение заголовка Authorization
+     * @return данные пользователя или null, если пароль не совпал
+     */
+    private UserDetails verifyCredentials(String authHeader) {
+        String base64Credentials = authHeader.substring("Basic ".length());
+        byte[] decodedBytes = Base64.getDecoder().decode(base64Credentials);
+        String credentials = new String(decodedBytes, StandardCharsets.UTF_8);
+        String[] values = credentials.split(":", 2);
+
+        if (values.length != 2) {
+            return null;
+        }
+        String username = values[0];
+        String password = values[1];
+
+        long generation = credentialCache.generation(username);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        long start = System.nanoTime();
+        boolean matches = passwordEncoder.matches(password, userDetails.getPassword());
+        (matches ? matchedVerifications : rejectedVerifications).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!matches) {
+            return null;
+        }
+        credentialCache.put(authHeader, userDetails, generation);
+        return userDetails;
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("app.auth.password.verifications")
+                .description("Password hash verifications for Basic authentication")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,46 @@
+package ru.skypro.homework.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.skypro.homework.service.TokenService;
+
+import java.io.IOException;
+
+/**
+ * Фильтр аутентификации по подписанному токену доступа из заголовка {@code Authorization: Bearer}.
+ * Проверяет только подпись и срок действия токена, не обращаясь к БД и сессии.
+ * Подключается в цепочку безопасности в режиме {@code security.auth.mode=token}
+ */
+public class BearerTokenAuthFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+
+    public BearerTokenAuthFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith(BEARER_PREFIX)) {
+            Authentication authentication = tokenService.authenticate(authHeader.substring(BEARER_PREFIX.length()));
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            } else {
+                logger.debug("Bearer token rejected");
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
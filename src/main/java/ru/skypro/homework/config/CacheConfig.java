@@ -0,0 +1,49 @@
+package ru.skypro.homework.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Локальный кэш ответов для самых частых запросов чтения: карточки объявления и профиля пользователя.
+ * Caffeine ограничивает число записей и вытесняет редко используемые по алгоритму W-TinyLFU,
+ * срок жизни записи ограничивает время, в течение которого изменение может быть не видно.
+ * Кэш учитывает транзакции: запись и удаление выполняются после фиксации,
+ * поэтому удаленная при изменении запись не возвращается в кэш до коммита.
+ * Статистика попаданий публикуется метриками {@code cache.gets}
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String AD_DETAILS = "adDetails";
+    public static final String USER_PROFILES = "userProfiles";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${cache.ad-details.max-size}") long adDetailsMaxSize,
+                                     @Value("${cache.ad-details.ttl}") Duration adDetailsTtl,
+                                     @Value("${cache.user-profiles.max-size}") long userProfilesMaxSize,
+                                     @Value("${cache.user-profiles.ttl}") Duration userProfilesTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Пустой список отключает создание кэшей по неизвестным именам
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(AD_DETAILS, cache(adDetailsMaxSize, adDetailsTtl));
+        cacheManager.registerCustomCache(USER_PROFILES, cache(userProfilesMaxSize, userProfilesTtl));
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> cache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
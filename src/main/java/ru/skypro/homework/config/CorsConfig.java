@@ -18,7 +18,8 @@ public class CorsConfig {
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "HEAD"));
         configuration.setAllowedHeaders(List.of("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(List.of("Content-Disposition", "Content-Type", "Cache-Control"));
+        configuration.setExposedHeaders(List.of("Content-Disposition", "Content-Type", "Cache-Control",
+                "Content-Length", "Content-Range", "Accept-Ranges", "ETag", "Last-Modified"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
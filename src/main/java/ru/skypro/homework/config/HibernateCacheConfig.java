@@ -0,0 +1,69 @@
+package ru.skypro.homework.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.skypro.homework.entity.User;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Кэш второго уровня Hibernate на JCache с реализацией Caffeine.
+ * Регионы создаются заранее с ограничением числа записей и срока жизни
+ * ({@code hibernate.javax.cache.missing_cache_strategy=fail} не дает Hibernate создать регион без ограничений).
+ * Записи хранятся по ссылке, без копирования сериализацией при каждом чтении.
+ * Статистика регионов публикуется метриками {@code cache.gets}, {@code cache.puts} и {@code cache.removals}
+ * с тем же набором тегов {@code cache}, {@code cache.manager} и {@code name}, что и у кэшей {@link CacheConfig}:
+ * реестр Prometheus отбрасывает метрики с одним именем и разным набором тегов
+ */
+@Configuration
+public class HibernateCacheConfig {
+    private static final List<String> USER_REGIONS = List.of(User.CACHE_REGION, User.NATURAL_ID_CACHE_REGION);
+    private static final String CACHE_MANAGER_NAME = "hibernate";
+
+    /**
+     * Менеджер кэшей по умолчанию провайдера Caffeine общий для приложений в одной JVM,
+     * поэтому уже созданные регионы используются повторно (например, несколькими контекстами тестов)
+     */
+    @Bean(destroyMethod = "")
+    public CacheManager hibernateCacheManager(MeterRegistry meterRegistry,
+                                              @Value("${cache.users.max-size}") long usersMaxSize,
+                                              @Value("${cache.users.ttl}") Duration usersTtl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        for (String region : USER_REGIONS) {
+            Cache<Object, Object> cache = cacheManager.getCache(region);
+            if (cache == null) {
+                cache = cacheManager.createCache(region, configuration(usersMaxSize, usersTtl));
+            }
+            JCacheMetrics.monitor(meterRegistry, cache, Tags.of("cache.manager", CACHE_MANAGER_NAME, "name", region));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration(long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
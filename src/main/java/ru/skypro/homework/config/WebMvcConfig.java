@@ -0,0 +1,30 @@
+package ru.skypro.homework.config;
+
+import org.springdoc.core.utils.SpringDocUtils;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.service.CustomUserDetailsService;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    static {
+        // Пользователь подставляется из аутентификации и не является параметром запроса
+        SpringDocUtils.getConfig().addRequestWrapperToIgnore(AuthenticatedUser.class);
+    }
+
+    private final CustomUserDetailsService userDetailsService;
+
+    public WebMvcConfig(CustomUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new AuthenticatedUserArgumentResolver(userDetailsService));
+    }
+}
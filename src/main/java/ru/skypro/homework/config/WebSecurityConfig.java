@@ -1,6 +1,7 @@
 package ru.skypro.homework.config;
 
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -9,13 +10,18 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.service.CustomUserDetailsService;
+import ru.skypro.homework.service.TokenService;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
 /**
  * Конфигурация безопасности приложения.
  * Настраивает аутентификацию, авторизацию и защиту endpoints.
+ * В режиме {@code security.auth.mode=session} (по умолчанию) контекст безопасности хранится в сессии,
+ * в режиме {@code token} сессии не создаются, а запросы аутентифицируются подписанным токеном доступа
  */
 @Configuration
 @EnableWebSecurity
@@ -28,30 +34,53 @@ public class WebSecurityConfig {
             "/v3/api-docs/**",
             "/webjars/**",
             "/login",
+            "/refresh",
             "/register",
             "/logout",
             "/ads/*/image",
+            "/ads/*/image/preview",
             "/users/*/avatar",
-            "/images/**"
+            "/users/*/avatar/preview",
+            "/images/**",
+            "/actuator/health"
     };
 
+    public static final String AUTH_MODE_TOKEN = "token";
+
     private final CustomUserDetailsService customUserDetailsService;
+    private final TokenService tokenService;
+    private final String authMode;
 
-    public WebSecurityConfig(CustomUserDetailsService customUserDetailsService) {
+    public WebSecurityConfig(CustomUserDetailsService customUserDetailsService,
+                             TokenService tokenService,
+                             @Value("${security.auth.mode:session}") String authMode) {
         this.customUserDetailsService = customUserDetailsService;
+        this.tokenService = tokenService;
+        this.authMode = authMode;
     }
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        if (AUTH_MODE_TOKEN.equalsIgnoreCase(authMode)) {
+            http
+                    .sessionManagement(session -> session
+                            .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    )
+                    .addFilterBefore(new BearerTokenAuthFilter(tokenService), BasicAuthenticationFilter.class);
+        } else {
+            http
+                    .sessionManagement(session -> session
+                            .sessionCreationPolicy(SessionCreationPolicy.ALWAYS)
+                            .maximumSessions(1)
+                            .maxSessionsPreventsLogin(false)
+                    );
+        }
+
         http
                 .csrf(AbstractHttpConfigurer::disable)
-                .sessionManagement(session -> session
-                        .sessionCreationPolicy(SessionCreationPolicy.ALWAYS)
-                        .maximumSessions(1)
-                        .maxSessionsPreventsLogin(false)
-                )
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(AUTH_WHITELIST).permitAll()
+                        .requestMatchers("/actuator/**").hasRole(Role.ADMIN.name())
                         .requestMatchers("/ads/**", "/users/**").authenticated()
                         .anyRequest().authenticated()
                 )
@@ -6,19 +6,42 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.skypro.homework.dto.AuthenticatedUser;
 import ru.skypro.homework.dto.ad.AdCreateRequestDTO;
+import ru.skypro.homework.dto.ad.AdFilter;
 import ru.skypro.homework.dto.ad.AdFullResponseDTO;
+import ru.skypro.homework.dto.ad.AdImportReport;
+import ru.skypro.homework.dto.ad.AdSort;
 import ru.skypro.homework.dto.ad.AdUpdateRequestDTO;
+import ru.skypro.homework.service.AdCatalogSnapshotService;
+import ru.skypro.homework.service.AdExportService;
+import ru.skypro.homework.service.AdImportService;
 import ru.skypro.homework.service.AdService;
+import ru.skypro.homework.service.UserService;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 
 /**
  * REST контроллер для управления объявлениями.
@@ -30,7 +53,16 @@ import java.util.Map;
 @RequiredArgsConstructor
 @Tag(name = "Объявления", description = "API для работы с объявлениями")
 public class AdController {
+    private static final String ASYNC_TIMEOUT_INTERCEPTOR = AdController.class.getName() + ".asyncTimeout";
+
     private final AdService adService;
+    private final AdImportService adImportService;
+    private final AdExportService adExportService;
+    private final AdCatalogSnapshotService snapshotService;
+    private final UserService userService;
+
+    @Value("${ads.export.timeout}")
+    private Duration exportTimeout;
 
     /**
      * Создание нового объявления
@@ -40,29 +72,130 @@ public class AdController {
     public ResponseEntity<?> createAd(
             @RequestPart("properties") String propertiesJson,
             @RequestPart("image") MultipartFile imageFile,
-            Authentication authentication) throws IOException {
+            AuthenticatedUser user) throws IOException {
 
         ObjectMapper mapper = new ObjectMapper();
         AdCreateRequestDTO properties = mapper.readValue(propertiesJson, AdCreateRequestDTO.class);
 
-        AdFullResponseDTO response = adService.createAd(
-                authentication.getName(),
-                properties.getTitle(),
-                properties.getPrice(),
-                properties.getDescription(),
-                imageFile
-        );
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        try {
+            AdFullResponseDTO response = adService.createAd(
+                    user,
+                    properties.getTitle(),
+                    properties.getPrice(),
+                    properties.getDescription(),
+                    imageFile
+            );
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected ad image upload by user {}: {}", user.username(), e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Массовый импорт объявлений из CSV или NDJSON, доступен только администратору
+     */
+    @PostMapping(value = "/import",
+            consumes = {AdImportService.Format.CSV_MEDIA_TYPE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Импорт объявлений")
+    public ResponseEntity<AdImportReport> importAds(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body,
+            AuthenticatedUser user) throws IOException {
+        if (!userService.isAdmin(user)) {
+            log.warn("User {} attempted to import ads without permission", user.username());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            AdImportService.Format format = AdImportService.Format.fromContentType(contentType);
+            return ResponseEntity.ok(adImportService.importAds(body, format));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid ads import request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Потоковая выгрузка каталога объявлений в NDJSON, доступна только администратору
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузка объявлений")
+    public ResponseEntity<StreamingResponseBody> exportAds(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            AuthenticatedUser user,
+            WebRequest request) {
+        if (!userService.isAdmin(user)) {
+            log.warn("User {} attempted to export ads without permission", user.username());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        setAsyncTimeout(request, exportTimeout);
+        StreamingResponseBody body = output -> adExportService.exportAds(updatedSince, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Таймаут асинхронной обработки только текущего запроса. {@link StreamingResponseBody} запускается
+     * без собственного таймаута, поэтому он задается перехватчиком до начала асинхронной обработки
+     */
+    private static void setAsyncTimeout(WebRequest request, Duration timeout) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ASYNC_TIMEOUT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                        if (asyncRequest instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(timeout.toMillis());
+                        }
+                    }
+                });
     }
 
     /**
-     * Получение списка всех объявлений
+     * Получение страницы списка всех объявлений с отбором по цене и автору.
+     * Первые страницы выдачи без фильтров отдаются из снимка {@link AdCatalogSnapshotService}
      */
     @GetMapping
     @Operation(summary = "Получение всех объявлений")
-    public ResponseEntity<Map<String, Object>> getAllAds() {
-        Map<String, Object> response = adService.getAllAds();
-        return ResponseEntity.ok(response);
+    public ResponseEntity<?> getAllAds(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) Long authorId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        try {
+            AdFilter filter = new AdFilter(minPrice, maxPrice, authorId);
+            if (AdFilter.NONE.equals(filter) && limit == null && AdSort.fromParam(sort) == AdSort.ID) {
+                Optional<AdCatalogSnapshotService.Page> page = snapshotService.page(after);
+                if (page.isPresent()) {
+                    return snapshotResponse(page.get(), acceptsGzip(acceptEncoding), request);
+                }
+            }
+            return ResponseEntity.ok(adService.getAllAds(filter, after, limit, sort));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid ads page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Полнотекстовый поиск объявлений по заголовку и описанию
+     */
+    @GetMapping("/search")
+    @Operation(summary = "Поиск объявлений")
+    public ResponseEntity<Map<String, Object>> searchAds(
+            @RequestParam String q,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(adService.searchAds(q, after, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid ads search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -80,8 +213,8 @@ public class AdController {
      */
     @DeleteMapping("/{id}")
     @Operation(summary = "Удаление объявления")
-    public ResponseEntity<Void> deleteAd(@PathVariable Long id, Authentication authentication) {
-        boolean deleted = adService.deleteAd(id, authentication.getName());
+    public ResponseEntity<Void> deleteAd(@PathVariable Long id, AuthenticatedUser user) {
+        boolean deleted = adService.deleteAd(id, user);
         return deleted ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 
@@ -92,19 +225,27 @@ public class AdController {
     @Operation(summary = "Обновление информации об объявлении")
     public ResponseEntity<?> updateAd(@PathVariable Long id,
                                       @RequestBody @Valid AdUpdateRequestDTO updateRequest,
-                                      Authentication authentication) {
-        AdFullResponseDTO updatedAd = adService.updateAd(id, updateRequest, authentication.getName());
+                                      AuthenticatedUser user) {
+        AdFullResponseDTO updatedAd = adService.updateAd(id, updateRequest, user);
         return updatedAd != null ? ResponseEntity.ok(updatedAd) : ResponseEntity.notFound().build();
     }
 
     /**
-     * Получение объявлений текущего авторизованного пользователя
+     * Получение страницы объявлений текущего авторизованного пользователя
      */
     @GetMapping("/me")
     @Operation(summary = "Получение объявлений авторизованного пользователя")
-    public ResponseEntity<Map<String, Object>> getMyAds(Authentication auth) {
-        Map<String, Object> response = adService.getUserAds(auth.getName());
-        return ResponseEntity.ok(response);
+    public ResponseEntity<Map<String, Object>> getMyAds(
+            Authentication auth,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
+        try {
+            return ResponseEntity.ok(adService.getUserAds(auth.getName(), after, limit, sort));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid ads page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -115,8 +256,64 @@ public class AdController {
     public ResponseEntity<?> updateAdImage(
             @PathVariable Long id,
             @RequestParam("image") MultipartFile imageFile,
-            Authentication auth) throws IOException {
-        boolean updated = adService.updateAdImage(id, imageFile, auth.getName());
-        return updated ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+            AuthenticatedUser user) throws IOException {
+        try {
+            boolean updated = adService.updateAdImage(id, imageFile, user);
+            return updated ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected image upload for ad {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Ответ готовыми байтами страницы снимка: сжатыми, если клиент принимает gzip.
+     * У представлений с разной кодировкой разные ETag; совпадение с If-None-Match дает ответ 304
+     */
+    private static ResponseEntity<?> snapshotResponse(AdCatalogSnapshotService.Page page, boolean gzip,
+                                                      WebRequest request) {
+        String etag = gzip ? page.gzipEtag() : page.etag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? page.gzip() : page.json());
+    }
+
+    /**
+     * Проверка, что заголовок Accept-Encoding допускает gzip (без {@code q=0})
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    rejected = true;
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
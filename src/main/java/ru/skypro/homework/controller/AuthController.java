@@ -6,6 +6,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,9 +17,12 @@ import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import ru.skypro.homework.config.WebSecurityConfig;
 import ru.skypro.homework.dto.Login;
+import ru.skypro.homework.dto.RefreshTokenRequest;
 import ru.skypro.homework.dto.Register;
 import ru.skypro.homework.service.AuthService;
+import ru.skypro.homework.service.TokenService;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -31,10 +35,14 @@ public class AuthController {
 
     private final AuthService authService;
     private final AuthenticationManager authenticationManager;
+    private final TokenService tokenService;
 
+    @Value("${security.auth.mode:session}")
+    private String authMode;
 
     /**
-     * Аутентификация пользователя в системе
+     * Аутентификация пользователя в системе.
+     * В режиме токенов вместо сессии выдаются токены доступа и обновления
      *
      * @param login DTO с данными для входа (логин и пароль)
      * @return 200 OK при успешной аутентификации, 401 Unauthorized при ошибке
@@ -51,6 +59,12 @@ public class AuthController {
                     )
             );
 
+            if (WebSecurityConfig.AUTH_MODE_TOKEN.equalsIgnoreCase(authMode)) {
+                TokenService.IssuedTokens tokens = tokenService.issue(authentication.getName());
+                log.info("User {} successfully authenticated. Tokens issued", login.getUsername());
+                return tokenResponse(login.getUsername(), tokens);
+            }
+
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
             HttpSession oldSession = request.getSession(false);
@@ -88,6 +102,31 @@ public class AuthController {
         }
     }
 
+    /**
+     * Обновление токенов по токену обновления (режим токенов)
+     *
+     * @param request DTO с токеном обновления
+     * @return 200 OK с новой парой токенов, 401 Unauthorized если токен недействителен
+     */
+    @Tag(name = "Авторизация")
+    @Operation(summary = "Обновление токена доступа")
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
+        TokenService.IssuedTokens tokens = tokenService.refresh(request.getRefreshToken());
+        if (tokens == null) {
+            log.warn("Rejected refresh token");
+
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("status", "error");
+            errorResponse.put("message", "Invalid or expired refresh token");
+
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header("Cache-Control", "no-cache, no-store, must-revalidate")
+                    .body(errorResponse);
+        }
+        return tokenResponse(null, tokens);
+    }
+
     /**
      * Регистрация нового пользователя в системе
      *
@@ -139,4 +178,20 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<?> tokenResponse(String username, TokenService.IssuedTokens tokens) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        if (username != null) {
+            response.put("username", username);
+        }
+        response.put("tokenType", "Bearer");
+        response.put("accessToken", tokens.accessToken());
+        response.put("refreshToken", tokens.refreshToken());
+        response.put("expiresIn", tokens.expiresIn());
+
+        return ResponseEntity.ok()
+                .header("Cache-Control", "no-cache, no-store, must-revalidate")
+                .body(response);
+    }
+}
@@ -4,10 +4,11 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import ru.skypro.homework.dto.AuthenticatedUser;
 import ru.skypro.homework.dto.comment.CommentDTO;
 import ru.skypro.homework.dto.comment.CommentsDTO;
 import ru.skypro.homework.dto.comment.CreateOrUpdateCommentDTO;
@@ -17,6 +18,7 @@ import ru.skypro.homework.service.CommentService;
  * Контроллер для работы с комментариями к объявлениям.
  * Обеспечивает REST API для создания, получения, обновления и удаления комментариев.
  */
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/ads")
@@ -25,16 +27,24 @@ public class CommentController {
     private final CommentService commentService;
 
     /**
-     * Получение всех комментариев для указанного объявления
+     * Получение страницы комментариев для указанного объявления, от новых к старым
      *
-     * @param id идентификатор объявления
-     * @return список комментариев и их количество
+     * @param id    идентификатор объявления
+     * @param after курсор следующей страницы из поля {@code next} предыдущего ответа (необязательно)
+     * @param limit размер страницы (необязательно)
+     * @return список комментариев страницы, их количество и курсор следующей страницы
      */
     @GetMapping("/{id}/comments")
     @Operation(summary = "Получение комментариев объявления")
-    public ResponseEntity<CommentsDTO> getComments(@PathVariable Long id) {
-        CommentsDTO comments = commentService.getCommentsByAdId(id);
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<CommentsDTO> getComments(@PathVariable Long id,
+                                                   @RequestParam(required = false) String after,
+                                                   @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(commentService.getCommentsByAdId(id, after, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid comments page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -42,14 +52,14 @@ public class CommentController {
      *
      * @param id идентификатор объявления
      * @param dto данные для создания комментария
-     * @param authentication данные аутентификации пользователя
+     * @param user аутентифицированный пользователь
      * @return созданный комментарий
      */
     @PostMapping("/{id}/comments")
     @Operation(summary = "Добавление комментария к объявлению")
     public ResponseEntity<CommentDTO> addComment(@PathVariable Long id,
-                                                 @Valid @RequestBody CreateOrUpdateCommentDTO dto, Authentication authentication) {
-        CommentDTO comment = commentService.addComment(id, dto, authentication.getName());
+                                                 @Valid @RequestBody CreateOrUpdateCommentDTO dto, AuthenticatedUser user) {
+        CommentDTO comment = commentService.addComment(id, dto, user);
         return comment != null ? ResponseEntity.ok(comment) : ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
@@ -58,14 +68,14 @@ public class CommentController {
      *
      * @param adId идентификатор объявления
      * @param commentId(commentNumber) номер комментария в рамках объявления
-     * @param authentication данные аутентификации пользователя
+     * @param user аутентифицированный пользователь
      * @return статус операции удаления
      */
     @DeleteMapping("/{adId}/comments/{commentId}")
     @Operation(summary = "Удаление комментария")
     public ResponseEntity<Void> deleteComment(@PathVariable Long adId, @PathVariable Long commentId,
-                                              Authentication authentication) {
-        boolean deleted = commentService.deleteCommentWithPermission(adId, commentId, authentication.getName());
+                                              AuthenticatedUser user) {
+        boolean deleted = commentService.deleteCommentWithPermission(adId, commentId, user);
         return deleted ? ResponseEntity.noContent().build() : ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
 
@@ -75,14 +85,14 @@ public class CommentController {
      * @param adId идентификатор объявления
      * @param commentId(commentNumber) номер комментария в рамках объявления
      * @param dto новые данные комментария
-     * @param authentication данные аутентификации пользователя
+     * @param user аутентифицированный пользователь
      * @return обновленный комментарий
      */
     @PatchMapping("/{adId}/comments/{commentId}")
     @Operation(summary = "Обновление комментария")
     public ResponseEntity<CommentDTO> updateComment(@PathVariable Long adId, @PathVariable Long commentId,
-                                                    @Valid @RequestBody CreateOrUpdateCommentDTO dto, Authentication authentication) {
-        CommentDTO updatedComment = commentService.updateCommentWithPermission(adId, commentId, dto, authentication.getName());
+                                                    @Valid @RequestBody CreateOrUpdateCommentDTO dto, AuthenticatedUser user) {
+        CommentDTO updatedComment = commentService.updateCommentWithPermission(adId, commentId, dto, user);
         return updatedComment != null ? ResponseEntity.ok(updatedComment) : ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
 }
\ No newline at end of file
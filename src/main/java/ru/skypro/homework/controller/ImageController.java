@@ -4,78 +4,350 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.skypro.homework.dto.ImageUrls;
+import ru.skypro.homework.entity.AdPreview;
+import ru.skypro.homework.entity.AvatarPreview;
+import ru.skypro.homework.repository.AdPreviewRepository;
+import ru.skypro.homework.repository.AvatarPreviewRepository;
 import ru.skypro.homework.repository.AvatarRepository;
 import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.projection.ImageFileView;
+import ru.skypro.homework.service.ImageMetrics;
+import ru.skypro.homework.service.ImageVariantStorage;
 
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Контроллер для получения изображений (аватаров пользователей и картинок объявлений)
- * Обеспечивает доступ к загруженным файлам через REST API
+ * Обеспечивает доступ к загруженным файлам и их превью через REST API.
+ * Файлы не читаются в память целиком: тело ответа передается потоком,
+ * заголовки Content-Length и Accept-Ranges, а также запросы Range (ответ 206) обрабатывает Spring MVC.
+ * Ответы содержат ETag (хэш содержимого) и Last-Modified; условные запросы
+ * проверяются до чтения файла или превью и завершаются ответом 304.
+ * Ссылки с версией {@code v}, совпадающей с хэшем, кэшируются клиентом как неизменяемые.
+ * Превью генерируется асинхронно; до его появления по ссылке превью отдается исходный файл.
+ * Параметр {@code w} выбирает наименьшую заранее подготовленную копию не меньше запрошенной ширины.
+ * Объем отданных данных учитывается в {@link ImageMetrics} без учета запросов Range
  */
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 @Tag(name = "Изображения", description = "API для работы с изображениями пользователей и объявлений")
 public class ImageController {
+    private static final String SIZE_ORIGINAL = "original";
+    private static final String SIZE_PREVIEW = "preview";
+    private static final String PREVIEW_ETAG_SUFFIX = "-preview";
+    private static final long IMMUTABLE_MAX_AGE_DAYS = 365;
 
     private final AvatarRepository avatarRepository;
     private final AdRepository adRepository;
+    private final AvatarPreviewRepository avatarPreviewRepository;
+    private final AdPreviewRepository adPreviewRepository;
+    private final ImageVariantStorage variantStorage;
+    private final ImageMetrics imageMetrics;
 
     /**
      * Получение аватара пользователя по ID пользователя
      *
-     * @param userId ID пользователя
-     * @return массив байтов изображения аватара
-     * @throws IOException при ошибках чтения файла
+     * @param userId  ID пользователя
+     * @param size    вариант изображения: original (по умолчанию) или preview
+     * @param w       желаемая ширина изображения в пикселях (необязательно)
+     * @param v       версия изображения из ссылки (необязательно)
+     * @param request текущий запрос для проверки If-None-Match и If-Modified-Since
+     * @return файл изображения аватара
      */
     @GetMapping(value = "/users/{userId}/avatar",
             produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE})
     @Operation(summary = "Получение аватара пользователя", description = "Возвращает аватар пользователя по его ID")
-    public ResponseEntity<byte[]> getAvatar(@PathVariable Long userId) throws IOException {
+    public ResponseEntity<Resource> getAvatar(@PathVariable Long userId,
+                                              @RequestParam(defaultValue = SIZE_ORIGINAL) String size,
+                                              @RequestParam(required = false) Integer w,
+                                              @RequestParam(required = false) String v,
+                                              WebRequest request) {
+        if (SIZE_PREVIEW.equalsIgnoreCase(size)) {
+            return getAvatarPreview(userId, v, request);
+        }
+        if (!SIZE_ORIGINAL.equalsIgnoreCase(size) || (w != null && w <= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
         log.debug("Getting avatar for user ID: {}", userId);
 
-        var avatar = avatarRepository.findByUser_Id(userId).orElse(null);
+        ImageFileView avatar = avatarRepository.findImageByUserId(userId).orElse(null);
         if (avatar == null) {
             log.warn("Avatar not found for user ID: {}", userId);
             return ResponseEntity.notFound().build();
         }
 
-        byte[] image = Files.readAllBytes(Path.of(avatar.getFilePath()));
-        log.debug("Successfully retrieved avatar for user ID: {}, size: {} bytes", userId, image.length);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(avatar.getMediaType()))
-                .body(image);
+        if (w != null) {
+            return streamVariant(avatar, w, v, request, "avatar for user ID: " + userId);
+        }
+        return streamFile(avatar, v, request, "avatar for user ID: " + userId);
+    }
+
+    /**
+     * Получение превью аватара пользователя по ID пользователя.
+     * Если превью еще не сгенерировано, возвращается исходное изображение
+     *
+     * @param userId  ID пользователя
+     * @param v       версия изображения из ссылки (необязательно)
+     * @param request текущий запрос для проверки If-None-Match и If-Modified-Since
+     * @return превью аватара
+     */
+    @GetMapping(value = "/users/{userId}/avatar/preview",
+            produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE})
+    @Operation(summary = "Получение превью аватара пользователя", description = "Возвращает уменьшенную копию аватара пользователя по его ID")
+    public ResponseEntity<Resource> getAvatarPreview(@PathVariable Long userId,
+                                                     @RequestParam(required = false) String v,
+                                                     WebRequest request) {
+        log.debug("Getting avatar preview for user ID: {}", userId);
+
+        ImageFileView avatar = avatarRepository.findImageByUserId(userId).orElse(null);
+        if (avatar == null) {
+            log.warn("Avatar not found for user ID: {}", userId);
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = etag(avatar.fileHash(), PREVIEW_ETAG_SUFFIX);
+        if (isNotModified(request, etag, avatar)) {
+            return notModified(avatar, v);
+        }
+
+        byte[] preview = avatarPreviewRepository.findById(avatar.id()).map(AvatarPreview::getData).orElse(null);
+        if (preview == null) {
+            log.debug("Avatar preview not found for user ID: {}, falling back to original", userId);
+            // превью появится после фоновой обработки, поэтому исходник не кэшируется как неизменяемый
+            return streamFile(avatar, null, request, "avatar for user ID: " + userId);
+        }
+
+        return sendPreview(avatar, etag, v, preview);
     }
 
     /**
      * Получение изображения объявления по ID объявления
      *
-     * @param adId ID объявления
-     * @return массив байтов изображения объявления
-     * @throws IOException при ошибках чтения файла
+     * @param adId    ID объявления
+     * @param size    вариант изображения: original (по умолчанию) или preview
+     * @param w       желаемая ширина изображения в пикселях (необязательно)
+     * @param v       версия изображения из ссылки (необязательно)
+     * @param request текущий запрос для проверки If-None-Match и If-Modified-Since
+     * @return файл изображения объявления
      */
     @GetMapping(value = "/ads/{adId}/image",
             produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE})
     @Operation(summary = "Получение изображения объявления", description = "Возвращает изображение объявления по его ID")
-    public ResponseEntity<byte[]> getAdImage(@PathVariable Long adId) throws IOException {
+    public ResponseEntity<Resource> getAdImage(@PathVariable Long adId,
+                                               @RequestParam(defaultValue = SIZE_ORIGINAL) String size,
+                                               @RequestParam(required = false) Integer w,
+                                               @RequestParam(required = false) String v,
+                                               WebRequest request) {
+        if (SIZE_PREVIEW.equalsIgnoreCase(size)) {
+            return getAdImagePreview(adId, v, request);
+        }
+        if (!SIZE_ORIGINAL.equalsIgnoreCase(size) || (w != null && w <= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
         log.debug("Getting image for ad ID: {}", adId);
 
-        var ad = adRepository.findById(adId).orElse(null);
-        if (ad == null || ad.getFilePath() == null) {
+        ImageFileView ad = adRepository.findImageById(adId).orElse(null);
+        if (ad == null || ad.filePath() == null) {
             log.warn("Ad image not found for ad ID: {}", adId);
             return ResponseEntity.notFound().build();
         }
 
-        byte[] image = Files.readAllBytes(Path.of(ad.getFilePath()));
-        log.debug("Successfully retrieved image for ad ID: {}, size: {} bytes", adId, image.length);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(ad.getMediaType()))
-                .body(image);
+        if (w != null) {
+            return streamVariant(ad, w, v, request, "image for ad ID: " + adId);
+        }
+        return streamFile(ad, v, request, "image for ad ID: " + adId);
+    }
+
+    /**
+     * Получение превью изображения объявления по ID объявления.
+     * Если превью еще не сгенерировано, возвращается исходное изображение
+     *
+     * @param adId    ID объявления
+     * @param v       версия изображения из ссылки (необязательно)
+     * @param request текущий запрос для проверки If-None-Match и If-Modified-Since
+     * @return превью изображения объявления
+     */
+    @GetMapping(value = "/ads/{adId}/image/preview",
+            produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE})
+    @Operation(summary = "Получение превью изображения объявления", description = "Возвращает уменьшенную копию изображения объявления по его ID")
+    public ResponseEntity<Resource> getAdImagePreview(@PathVariable Long adId,
+                                                      @RequestParam(required = false) String v,
+                                                      WebRequest request) {
+        log.debug("Getting image preview for ad ID: {}", adId);
+
+        ImageFileView ad = adRepository.findImageById(adId).orElse(null);
+        if (ad == null || ad.filePath() == null) {
+            log.warn("Ad image not found for ad ID: {}", adId);
+            return ResponseEntity.notFound().build();
+        }
+
+        String etag = etag(ad.fileHash(), PREVIEW_ETAG_SUFFIX);
+        if (isNotModified(request, etag, ad)) {
+            return notModified(ad, v);
+        }
+
+        byte[] preview = adPreviewRepository.findById(ad.id()).map(AdPreview::getData).orElse(null);
+        if (preview == null) {
+            log.debug("Ad image preview not found for ad ID: {}, falling back to original", adId);
+            // превью появится после фоновой обработки, поэтому исходник не кэшируется как неизменяемый
+            return streamFile(ad, null, request, "image for ad ID: " + adId);
+        }
+
+        return sendPreview(ad, etag, v, preview);
+    }
+
+    /**
+     * Отдача копии изображения, ближайшей к запрошенной ширине.
+     * Если подходящей копии нет, отдается исходный файл; пока копии не сгенерированы,
+     * он не кэшируется как неизменяемый.
+     * Копии одного содержимого не меняются, поэтому их ETag проверяется до поиска копии на диске
+     *
+     * @param image       метаданные исходного файла
+     * @param width       запрошенная ширина
+     * @param v           версия изображения из ссылки
+     * @param request     текущий запрос
+     * @param description описание изображения для логов
+     * @return ответ с копией или исходным файлом
+     */
+    private ResponseEntity<Resource> streamVariant(ImageFileView image, int width, String v,
+                                                   WebRequest request, String description) {
+        String cachedEtag = cachedVariantEtag(request, image, width);
+        if (cachedEtag != null && isNotModified(request, cachedEtag, image)) {
+            log.debug("Not modified: {} (width {})", description, width);
+            return notModified(image, v);
+        }
+
+        String extension = image.filePath().substring(image.filePath().lastIndexOf('.') + 1);
+        ImageVariantStorage.ImageVariant variant = variantStorage.find(image.fileHash(), extension, width).orElse(null);
+        if (variant == null) {
+            String version = variantStorage.isReady(image.fileHash(), extension) ? v : null;
+            return streamFile(image, version, request, description);
+        }
+        return streamPath(image, variant.path(), etag(image.fileHash(), "-w" + variant.width()), v, request,
+                ImageMetrics.RESIZED, description + " (width " + variant.width() + ")");
+    }
+
+    /**
+     * ETag копии из If-None-Match, подходящей под запрошенную ширину.
+     * Вычисляется без обращения к диску: копии с этим ETag клиент мог получить только
+     * после их генерации, а набор копий одного содержимого не меняется
+     *
+     * @return ETag копии или null, если клиент не прислал ETag подходящей копии
+     */
+    private String cachedVariantEtag(WebRequest request, ImageFileView image, int width) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || image.fileHash() == null) {
+            return null;
+        }
+        for (int variantWidth : variantStorage.getWidths()) {
+            String etag = etag(image.fileHash(), "-w" + variantWidth);
+            if (variantWidth >= width && ifNoneMatch.contains(etag)) {
+                return etag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Потоковая отдача файла изображения с диска
+     *
+     * @param image       метаданные файла
+     * @param v           версия изображения из ссылки
+     * @param request     текущий запрос
+     * @param description описание изображения для логов
+     * @return ответ с файлом, 304 или 404, если файл отсутствует на диске
+     */
+    private ResponseEntity<Resource> streamFile(ImageFileView image, String v, WebRequest request, String description) {
+        return streamPath(image, Path.of(image.filePath()), etag(image.fileHash(), ""), v, request,
+                ImageMetrics.ORIGINAL, description);
+    }
+
+    private ResponseEntity<Resource> streamPath(ImageFileView image, Path path, String etag, String v,
+                                                WebRequest request, String variant, String description) {
+        if (isNotModified(request, etag, image)) {
+            log.debug("Not modified: {}", description);
+            return notModified(image, v);
+        }
+
+        if (!Files.isReadable(path)) {
+            log.warn("File {} is missing for {}", path, description);
+            return ResponseEntity.notFound().build();
+        }
+
+        log.debug("Streaming {} from {}", description, path);
+        imageMetrics.recordRead(variant, path.toFile().length());
+        return withValidators(ResponseEntity.ok(), image, etag)
+                .cacheControl(cacheControl(image, v))
+                .contentType(MediaType.parseMediaType(image.mediaType()))
+                .body(new FileSystemResource(path));
+    }
+
+    private ResponseEntity<Resource> sendPreview(ImageFileView image, String etag, String v, byte[] preview) {
+        imageMetrics.recordRead(ImageMetrics.PREVIEW, preview.length);
+        return withValidators(ResponseEntity.ok(), image, etag)
+                .cacheControl(cacheControl(image, v))
+                .contentType(MediaType.parseMediaType(image.mediaType()))
+                .body(new ByteArrayResource(preview));
+    }
+
+    private ResponseEntity<Resource> notModified(ImageFileView image, String v) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(cacheControl(image, v))
+                .build();
+    }
+
+    private static boolean isNotModified(WebRequest request, String etag, ImageFileView image) {
+        if (etag == null && image.fileModifiedAt() == null) {
+            return false;
+        }
+        return request.checkNotModified(etag, lastModified(image));
+    }
+
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder,
+                                                             ImageFileView image, String etag) {
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        if (image.fileModifiedAt() != null) {
+            builder.lastModified(lastModified(image));
+        }
+        return builder;
+    }
+
+    /**
+     * Неизменяемое кэширование допускается только для ссылки с актуальной версией,
+     * иначе клиент обязан перепроверять изображение по ETag
+     */
+    private static CacheControl cacheControl(ImageFileView image, String v) {
+        String version = ImageUrls.version(image.fileHash());
+        if (version != null && version.equals(v)) {
+            return CacheControl.maxAge(IMMUTABLE_MAX_AGE_DAYS, TimeUnit.DAYS).cachePublic().immutable();
+        }
+        return CacheControl.noCache();
+    }
+
+    private static String etag(String fileHash, String suffix) {
+        return fileHash == null ? null : "\"" + fileHash + suffix + "\"";
+    }
+
+    private static long lastModified(ImageFileView image) {
+        return image.fileModifiedAt() == null
+                ? -1
+                : image.fileModifiedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
-}
\ No newline at end of file
+}
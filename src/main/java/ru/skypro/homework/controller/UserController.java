@@ -3,12 +3,14 @@ package ru.skypro.homework.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.homework.dto.AuthenticatedUser;
 import ru.skypro.homework.dto.user.PasswordChangeRequest;
 import ru.skypro.homework.dto.user.UserProfileResponse;
 import ru.skypro.homework.dto.user.UserProfileUpdateRequest;
@@ -16,6 +18,7 @@ import ru.skypro.homework.service.UserService;
 
 import java.io.IOException;
 
+@Slf4j
 @RestController
 @RequestMapping("users")
 @RequiredArgsConstructor
@@ -29,11 +32,15 @@ public class UserController {
     @PatchMapping(value = "/me/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Обновление аватара авторизованного пользователя")
     public ResponseEntity<?> uploadAvatar(
-            Authentication authentication,
+            AuthenticatedUser user,
             @RequestParam("image") MultipartFile image) throws IOException { // Изменить на "image"
-        String username = authentication.getName();
-        boolean success = userService.uploadAvatar(username, image);
-        return success ? ResponseEntity.ok().build() : ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        try {
+            boolean success = userService.uploadAvatar(user, image);
+            return success ? ResponseEntity.ok().build() : ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected avatar upload by user {}: {}", user.username(), e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -41,9 +48,8 @@ public class UserController {
      */
     @PostMapping("/set_password")
     @Operation(summary = "Обновление пароля")
-    public ResponseEntity<?> changePassword(Authentication auth, @RequestBody PasswordChangeRequest request) {
-        String username = auth.getName();
-        boolean success = userService.changePassword(username, request.getCurrentPassword(), request.getNewPassword());
+    public ResponseEntity<?> changePassword(AuthenticatedUser user, @RequestBody PasswordChangeRequest request) {
+        boolean success = userService.changePassword(user, request.getCurrentPassword(), request.getNewPassword());
         return success ? ResponseEntity.ok().build() : ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
 
@@ -0,0 +1,18 @@
+package ru.skypro.homework.dto;
+
+/**
+ * Аутентифицированный пользователь текущего запроса.
+ * Определяется один раз из контекста безопасности и передается в сервисы вместо имени пользователя,
+ * поэтому проверки прав не перечитывают пользователя из БД по имени. Роль администратора перед использованием
+ * сверяется с текущей ролью пользователя, см. {@link ru.skypro.homework.service.UserService#isAdmin(AuthenticatedUser)}
+ *
+ * @param id       идентификатор пользователя
+ * @param username имя пользователя
+ * @param role     роль пользователя на момент аутентификации
+ */
+public record AuthenticatedUser(Long id, String username, Role role) {
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.skypro.homework.dto;
+
+/**
+ * Построение ссылок на изображения объявлений и аватары.
+ * Если известен хэш содержимого, к ссылке добавляется версия {@code v},
+ * и такой URL отдается с неизменяемым кэшированием
+ */
+public final class ImageUrls {
+    /**
+     * Длина префикса хэша, используемого как версия изображения в URL
+     */
+    public static final int VERSION_LENGTH = 16;
+
+    private ImageUrls() {
+    }
+
+    public static String adImage(Long adId, String fileHash) {
+        return versioned("/ads/" + adId + "/image", fileHash);
+    }
+
+    public static String adImagePreview(Long adId, String fileHash) {
+        return versioned("/ads/" + adId + "/image/preview", fileHash);
+    }
+
+    public static String avatar(Long userId, String fileHash) {
+        return versioned("/users/" + userId + "/avatar", fileHash);
+    }
+
+    public static String avatarPreview(Long userId, String fileHash) {
+        return versioned("/users/" + userId + "/avatar/preview", fileHash);
+    }
+
+    /**
+     * Версия изображения для параметра {@code v}
+     *
+     * @param fileHash хэш содержимого файла или null
+     * @return версия или null, если хэш неизвестен
+     */
+    public static String version(String fileHash) {
+        if (fileHash == null || fileHash.isEmpty()) {
+            return null;
+        }
+        return fileHash.substring(0, Math.min(VERSION_LENGTH, fileHash.length()));
+    }
+
+    private static String versioned(String path, String fileHash) {
+        String version = version(fileHash);
+        return version == null ? path : path + "?v=" + version;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.skypro.homework.dto;
+
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequest {
+
+    private String refreshToken;
+}
@@ -0,0 +1,25 @@
+package ru.skypro.homework.dto.ad;
+
+/**
+ * Условия отбора объявлений в постраничной выдаче.
+ * Отсутствующее условие не ограничивает выдачу; объявления без цены считаются бесплатными
+ *
+ * @param minPrice минимальная цена включительно или null
+ * @param maxPrice максимальная цена включительно или null
+ * @param authorId идентификатор автора или null
+ */
+public record AdFilter(Integer minPrice, Integer maxPrice, Long authorId) {
+    /**
+     * Фильтр без условий
+     */
+    public static final AdFilter NONE = new AdFilter(null, null, null);
+
+    /**
+     * @throws IllegalArgumentException если минимальная цена больше максимальной
+     */
+    public AdFilter {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not exceed maxPrice");
+        }
+    }
+}
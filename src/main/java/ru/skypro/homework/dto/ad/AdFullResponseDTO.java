@@ -3,7 +3,9 @@ package ru.skypro.homework.dto.ad;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
+import ru.skypro.homework.dto.ImageUrls;
 import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.repository.projection.AdDetailsView;
 
 @Setter
 @Getter
@@ -25,12 +27,24 @@ public class AdFullResponseDTO {
         this.authorLastName = ad.getUser().getLastName();
         this.email = ad.getUser().getUsername();
         this.phone = ad.getUser().getPhone();
-        this.image = "/ads/" + ad.getId() + "/image";
+        this.image = ImageUrls.adImage(ad.getId(), ad.getFileHash());
         this.price = ad.getPrice();
         this.title = ad.getTitle();
         this.description = ad.getDescription();
     }
 
+    public AdFullResponseDTO(AdDetailsView ad) {
+        this.pk = ad.id();
+        this.authorFirstName = ad.authorFirstName();
+        this.authorLastName = ad.authorLastName();
+        this.email = ad.authorEmail();
+        this.phone = ad.authorPhone();
+        this.image = ImageUrls.adImage(ad.id(), ad.fileHash());
+        this.price = ad.price();
+        this.title = ad.title();
+        this.description = ad.description();
+    }
+
     public AdFullResponseDTO() {
     }
 }
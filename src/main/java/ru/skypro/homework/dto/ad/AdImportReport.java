@@ -0,0 +1,24 @@
+package ru.skypro.homework.dto.ad;
+
+import java.util.List;
+
+/**
+ * Итог массового импорта объявлений
+ *
+ * @param imported    число сохраненных объявлений
+ * @param rejected    число отклоненных строк
+ * @param chunks      число зафиксированных пакетов
+ * @param durationMs  длительность импорта в миллисекундах
+ * @param errors      ошибки первых отклоненных строк (не больше {@code ads.import.max-reported-errors})
+ */
+public record AdImportReport(long imported, long rejected, int chunks, long durationMs, List<RowError> errors) {
+
+    /**
+     * Ошибка строки импорта
+     *
+     * @param line    номер строки во входных данных, начиная с 1
+     * @param message причина отклонения
+     */
+    public record RowError(long line, String message) {
+    }
+}
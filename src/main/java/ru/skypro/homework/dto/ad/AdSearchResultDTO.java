@@ -0,0 +1,22 @@
+package ru.skypro.homework.dto.ad;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Найденное объявление. Фрагменты заголовка и описания экранированы для HTML,
+ * совпадения с запросом обрамлены тегом {@code <mark>}
+ */
+@Getter
+@Setter
+@Data
+public class AdSearchResultDTO {
+    private Long pk;
+    private Long author;
+    private String image;
+    private Integer price;
+    private String title;
+    private String titleHighlight;
+    private String descriptionHighlight;
+}
@@ -0,0 +1,39 @@
+package ru.skypro.homework.dto.ad;
+
+import java.util.Locale;
+
+/**
+ * Порядок сортировки списка объявлений при постраничной выдаче
+ */
+public enum AdSort {
+    /**
+     * По возрастанию идентификатора
+     */
+    ID,
+    /**
+     * По возрастанию цены
+     */
+    PRICE,
+    /**
+     * Сначала новые
+     */
+    CREATED;
+
+    /**
+     * Разбор значения параметра запроса {@code sort}
+     *
+     * @param value значение параметра (id, price, created) или null
+     * @return порядок сортировки, по умолчанию {@link #ID}
+     * @throws IllegalArgumentException если значение не поддерживается
+     */
+    public static AdSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported sort: " + value);
+        }
+    }
+}
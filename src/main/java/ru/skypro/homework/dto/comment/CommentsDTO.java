@@ -1,5 +1,6 @@
 package ru.skypro.homework.dto.comment;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.util.List;
 
@@ -7,4 +8,10 @@ import java.util.List;
 public class CommentsDTO {
     private Integer count;
     private List<CommentDTO> results;
-}
\ No newline at end of file
+
+    /**
+     * Курсор следующей страницы, отсутствует на последней странице
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
+}
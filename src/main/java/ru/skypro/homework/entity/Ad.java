@@ -4,6 +4,10 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
 
 @Setter
 @Getter
@@ -12,7 +16,8 @@ import lombok.Setter;
 @Schema(description = "Объявления пользователей")
 public class Ad {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ads_seq")
+    @SequenceGenerator(name = "ads_seq", sequenceName = "ads_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "title", columnDefinition = "TEXT")
@@ -33,14 +38,32 @@ public class Ad {
     @Column(name = "media_type", columnDefinition = "TEXT")
     private String mediaType;
 
-    @Column(columnDefinition = "bytea")
-    private byte[] data;
+    @Column(name = "file_hash", columnDefinition = "TEXT")
+    private String fileHash;
+
+    @Column(name = "file_modified_at")
+    private LocalDateTime fileModifiedAt;
+
+    /**
+     * Последний выданный номер комментария. Изменяется только запросом
+     * {@link ru.skypro.homework.repository.AdRepository#allocateCommentNumber(Long)}
+     */
+    @Column(name = "last_comment_number", columnDefinition = "BIGINT", insertable = false, updatable = false)
+    private Long lastCommentNumber;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
 
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "user_id")
     private User user;
 
-    public Ad(Long id, String title, Integer price, String description, String filePath, long fileSize, String mediaType, byte[] data) {
+    public Ad(Long id, String title, Integer price, String description, String filePath, long fileSize, String mediaType) {
         this.id = id;
         this.title = title;
         this.price = price;
@@ -48,7 +71,6 @@ public class Ad {
         this.filePath = filePath;
         this.fileSize = fileSize;
         this.mediaType = mediaType;
-        this.data = data;
     }
 
     public Ad() {
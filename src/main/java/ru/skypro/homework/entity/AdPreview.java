@@ -0,0 +1,28 @@
+package ru.skypro.homework.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "ad_previews")
+@Schema(description = "Превью изображений объявлений")
+public class AdPreview {
+    @Id
+    @Column(name = "ad_id")
+    private Long adId;
+
+    @Column(columnDefinition = "bytea")
+    private byte[] data;
+
+    public AdPreview(Long adId, byte[] data) {
+        this.adId = adId;
+        this.data = data;
+    }
+
+    public AdPreview() {
+    }
+}
@@ -5,6 +5,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
+
 @Setter
 @Getter
 @Entity
@@ -12,15 +14,15 @@ import lombok.Setter;
 @Schema(description = "Аватары пользователей")
 public class Avatar {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "avatars_seq")
+    @SequenceGenerator(name = "avatars_seq", sequenceName = "avatars_seq", allocationSize = 50)
     private Long id;
 
     private String filePath;
     private long fileSize;
     private String mediaType;
-
-    @Column(columnDefinition = "bytea")
-    private byte[] data;
+    private String fileHash;
+    private LocalDateTime fileModifiedAt;
 
     @OneToOne
     private User user;
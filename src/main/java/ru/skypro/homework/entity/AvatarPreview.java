@@ -0,0 +1,28 @@
+package ru.skypro.homework.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "avatar_previews")
+@Schema(description = "Превью аватаров пользователей")
+public class AvatarPreview {
+    @Id
+    @Column(name = "avatar_id")
+    private Long avatarId;
+
+    @Column(columnDefinition = "bytea")
+    private byte[] data;
+
+    public AvatarPreview(Long avatarId, byte[] data) {
+        this.avatarId = avatarId;
+        this.data = data;
+    }
+
+    public AvatarPreview() {
+    }
+}
@@ -5,25 +5,42 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import ru.skypro.homework.dto.Role;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Пользователь. Сущность хранится в кэше второго уровня Hibernate: аутентификация и загрузка профиля
+ * читают пользователя по естественному идентификатору {@code username}, который после регистрации
+ * не меняется, поэтому повторные обращения обслуживаются из кэша без запросов к БД.
+ * Стратегия {@code READ_WRITE} обновляет записи после фиксации транзакции, изменившей пользователя
+ */
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 @Schema(description = "Данные пользователей")
 public class User {
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "usersByUsername";
 
     @Getter
     @Setter
     @Id
     @JsonIgnore
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Getter
     @Setter
+    @NaturalId
     @Column(name = "username", columnDefinition = "TEXT")
     private String username;
 
@@ -0,0 +1,22 @@
+package ru.skypro.homework.repository;
+
+import org.springframework.data.domain.Limit;
+import ru.skypro.homework.dto.ad.AdFilter;
+import ru.skypro.homework.repository.projection.AdSummaryView;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Постраничная выдача объявлений с необязательными условиями отбора.
+ * В запрос попадают только заданные условия, поэтому для каждого сочетания фильтров
+ * планировщик видит простые предикаты, которые покрываются индексами по автору, цене и дате
+ */
+public interface AdFilterRepository {
+
+    List<AdSummaryView> findFilteredPageAfterId(AdFilter filter, long id, Limit limit);
+
+    List<AdSummaryView> findFilteredPageAfterPrice(AdFilter filter, int price, long id, Limit limit);
+
+    List<AdSummaryView> findFilteredPageBeforeCreatedAt(AdFilter filter, LocalDateTime createdAt, long id, Limit limit);
+}
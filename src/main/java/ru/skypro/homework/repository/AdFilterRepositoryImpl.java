@@ -0,0 +1,71 @@
+package ru.skypro.homework.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Limit;
+import ru.skypro.homework.dto.ad.AdFilter;
+import ru.skypro.homework.repository.projection.AdSummaryView;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Построение JPQL-запроса страницы объявлений по заданным условиям.
+ * Вместо условий вида {@code (:param is null or ...)} отсутствующие фильтры не добавляются в запрос:
+ * такие условия мешают выбрать индекс, особенно в общем плане подготовленного запроса.
+ * Цена сравнивается как {@code coalesce(price, 0)}, как и при сортировке, чтобы использовать индексы по этому выражению.
+ * Число вариантов запроса ограничено, и их планы кэшируются Hibernate по тексту запроса
+ */
+class AdFilterRepositoryImpl implements AdFilterRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AdSummaryView> findFilteredPageAfterId(AdFilter filter, long id, Limit limit) {
+        return findPage(filter, "a.id > :id", "a.id", Map.of("id", id), limit);
+    }
+
+    @Override
+    public List<AdSummaryView> findFilteredPageAfterPrice(AdFilter filter, int price, long id, Limit limit) {
+        return findPage(filter,
+                "(coalesce(a.price, 0) > :price or (coalesce(a.price, 0) = :price and a.id > :id))",
+                "coalesce(a.price, 0), a.id", Map.of("price", price, "id", id), limit);
+    }
+
+    @Override
+    public List<AdSummaryView> findFilteredPageBeforeCreatedAt(AdFilter filter, LocalDateTime createdAt, long id, Limit limit) {
+        return findPage(filter,
+                "(a.createdAt < :createdAt or (a.createdAt = :createdAt and a.id < :id))",
+                "a.createdAt desc, a.id desc", Map.of("createdAt", createdAt, "id", id), limit);
+    }
+
+    private List<AdSummaryView> findPage(AdFilter filter, String keyset, String order,
+                                         Map<String, Object> keys, Limit limit) {
+        StringBuilder jpql = new StringBuilder(AdRepository.SUMMARY).append(" where ");
+        Map<String, Object> parameters = new HashMap<>(keys);
+        if (filter.authorId() != null) {
+            jpql.append("a.user.id = :authorId and ");
+            parameters.put("authorId", filter.authorId());
+        }
+        if (filter.minPrice() != null) {
+            jpql.append("coalesce(a.price, 0) >= :minPrice and ");
+            parameters.put("minPrice", filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            jpql.append("coalesce(a.price, 0) <= :maxPrice and ");
+            parameters.put("maxPrice", filter.maxPrice());
+        }
+        jpql.append(keyset).append(" order by ").append(order);
+
+        TypedQuery<AdSummaryView> query = entityManager.createQuery(jpql.toString(), AdSummaryView.class);
+        parameters.forEach(query::setParameter);
+        if (limit.isLimited()) {
+            query.setMaxResults(limit.max());
+        }
+        return query.getResultList();
+    }
+}
@@ -1,11 +1,125 @@
 package ru.skypro.homework.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.repository.projection.AdDetailsView;
+import ru.skypro.homework.repository.projection.AdExportView;
+import ru.skypro.homework.repository.projection.AdSearchView;
+import ru.skypro.homework.repository.projection.AdSummaryView;
+import ru.skypro.homework.repository.projection.ImageFileView;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface AdRepository extends JpaRepository<Ad, Long> {
+public interface AdRepository extends JpaRepository<Ad, Long>, AdFilterRepository {
 
-    List<Ad> findByUser_Username(String username);
+    String SUMMARY = "select new ru.skypro.homework.repository.projection.AdSummaryView("
+            + "a.id, a.user.id, a.price, a.title, a.createdAt, a.fileHash) from Ad a";
+
+    String EXPORT = "select new ru.skypro.homework.repository.projection.AdExportView("
+            + "a.id, a.user.id, a.title, a.price, a.description, a.fileHash, a.createdAt, a.updatedAt) from Ad a";
+
+    /**
+     * Размер порции строк, которую драйвер читает из серверного курсора при выгрузке
+     */
+    String EXPORT_FETCH_SIZE = "1000";
+
+    String HEADLINE_MARKERS = "StartSel=" + AdSearchView.HIGHLIGHT_START + ", StopSel=" + AdSearchView.HIGHLIGHT_END;
+
+    @Query(SUMMARY + " where a.user.username = :username and a.id > :id order by a.id")
+    List<AdSummaryView> findUserPageAfterId(String username, long id, Limit limit);
+
+    @Query(SUMMARY + " where a.user.username = :username"
+            + " and (coalesce(a.price, 0) > :price or (coalesce(a.price, 0) = :price and a.id > :id))"
+            + " order by coalesce(a.price, 0), a.id")
+    List<AdSummaryView> findUserPageAfterPrice(String username, int price, long id, Limit limit);
+
+    @Query(SUMMARY + " where a.user.username = :username"
+            + " and (a.createdAt < :createdAt or (a.createdAt = :createdAt and a.id < :id))"
+            + " order by a.createdAt desc, a.id desc")
+    List<AdSummaryView> findUserPageBeforeCreatedAt(String username, LocalDateTime createdAt, long id, Limit limit);
+
+    @Query("select new ru.skypro.homework.repository.projection.AdDetailsView("
+            + "a.id, a.title, a.price, a.description, u.firstName, u.lastName, u.username, u.phone, a.fileHash)"
+            + " from Ad a join a.user u where a.id = :id")
+    Optional<AdDetailsView> findDetailsById(Long id);
+
+    /**
+     * Страница результатов полнотекстового поиска по заголовку и описанию в порядке убывания релевантности.
+     * Совпадения выбираются по GIN-индексу столбца {@code search_vector}; релевантность считается только
+     * для совпавших строк, а фрагменты с выделением - только для строк страницы
+     *
+     * @param q     поисковый запрос в синтаксисе websearch_to_tsquery
+     * @param rank  релевантность последнего объявления предыдущей страницы
+     * @param id    идентификатор последнего объявления предыдущей страницы
+     * @param limit размер страницы
+     * @return найденные объявления
+     */
+    @Query(value = "with query as (select websearch_to_tsquery('russian', :q) as q),"
+            + " matches as (select a.id, ts_rank_cd(a.search_vector, query.q) as rank"
+            + " from ads a, query where a.search_vector @@ query.q),"
+            + " page as (select id, rank from matches where rank < :rank or (rank = :rank and id < :id)"
+            + " order by rank desc, id desc limit :limit)"
+            + " select a.id, a.user_id, a.price, a.title, a.file_hash, page.rank,"
+            + " ts_headline('russian', coalesce(a.title, ''), query.q, '" + HEADLINE_MARKERS + ", HighlightAll=true'),"
+            + " ts_headline('russian', coalesce(a.description, ''), query.q, '" + HEADLINE_MARKERS
+            + ", MaxFragments=2, MaxWords=20, MinWords=5, FragmentDelimiter=\" ... \"')"
+            + " from page join ads a on a.id = page.id cross join query"
+            + " order by page.rank desc, page.id desc", nativeQuery = true)
+    List<AdSearchView> search(String q, float rank, long id, int limit);
+
+    /**
+     * Все объявления в порядке изменения для выгрузки каталога.
+     * Строки читаются из серверного курсора порциями по {@link #EXPORT_FETCH_SIZE}, поэтому поток
+     * должен потребляться внутри транзакции и закрываться после чтения
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(EXPORT + " order by a.updatedAt, a.id")
+    Stream<AdExportView> streamForExport();
+
+    /**
+     * Объявления, измененные начиная с заданного момента, в порядке изменения для инкрементальной выгрузки.
+     * {@code updatedAt} проставляется при сбросе изменений, а не при фиксации, поэтому граница
+     * должна браться с запасом, см. {@link ru.skypro.homework.service.AdExportService}
+     *
+     * @param updatedSince нижняя граница времени изменения включительно
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(EXPORT + " where a.updatedAt >= :updatedSince order by a.updatedAt, a.id")
+    Stream<AdExportView> streamForExportUpdatedSince(LocalDateTime updatedSince);
+
+    @Query("select a.id from Ad a where a.user.username = :username")
+    List<Long> findIdsByUsername(String username);
+
+    @Query("select new ru.skypro.homework.repository.projection.ImageFileView("
+            + "a.id, a.filePath, a.mediaType, a.fileHash, a.fileModifiedAt)"
+            + " from Ad a where a.id = :id")
+    Optional<ImageFileView> findImageById(Long id);
+
+    /**
+     * Атомарная выдача следующего номера комментария для объявления.
+     * Строка объявления блокируется до конца транзакции, поэтому параллельные добавления
+     * получают разные номера; номера удаленных комментариев повторно не выдаются.
+     * Для объявлений без счетчика он инициализируется максимальным существующим номером
+     *
+     * @param adId идентификатор объявления
+     * @return выданный номер или пустой результат, если объявление не найдено
+     */
+    @Transactional
+    @Query(value = "update ads set last_comment_number = coalesce(last_comment_number,"
+            + " (select max(c.comment_number) from comments c where c.ad_id = :adId), 0) + 1"
+            + " where id = :adId returning last_comment_number", nativeQuery = true)
+    Optional<Long> allocateCommentNumber(Long adId);
 }
@@ -1,12 +1,23 @@
 package ru.skypro.homework.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.skypro.homework.entity.Avatar;
+import ru.skypro.homework.repository.projection.ImageFileView;
 
 import java.util.Optional;
 
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
 
     Optional<Avatar> findByUser_Username(String username);
-    Optional<Avatar> findByUser_Id(Long userId);
+
+    @Query("select new ru.skypro.homework.repository.projection.ImageFileView("
+            + "a.id, a.filePath, a.mediaType, a.fileHash, a.fileModifiedAt)"
+            + " from Avatar a where a.user.id = :userId")
+    Optional<ImageFileView> findImageByUserId(Long userId);
+
+    @Query("select new ru.skypro.homework.repository.projection.ImageFileView("
+            + "a.id, a.filePath, a.mediaType, a.fileHash, a.fileModifiedAt)"
+            + " from Avatar a where a.id = :id")
+    Optional<ImageFileView> findImageById(Long id);
 }
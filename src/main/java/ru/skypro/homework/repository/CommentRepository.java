@@ -1,22 +1,32 @@
 package ru.skypro.homework.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.lang.NonNull;
 import ru.skypro.homework.entity.Comment;
+import ru.skypro.homework.repository.projection.CommentView;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
-    List<Comment> findByAdIdOrderByCreatedAtDesc(Long adId);
+    /**
+     * Страница комментариев объявления от новых к старым, начиная с номера меньше переданного.
+     * Данные автора читаются тем же запросом
+     */
+    @Query("select new ru.skypro.homework.repository.projection.CommentView("
+            + "c.commentNumber, c.text, c.createdAt, u.id, u.firstName)"
+            + " from Comment c join c.user u"
+            + " where c.ad.id = :adId and c.commentNumber < :before"
+            + " order by c.commentNumber desc")
+    List<CommentView> findPageBefore(Long adId, long before, Limit limit);
 
     @NonNull
     @EntityGraph(attributePaths = {"user"})
     Optional<Comment> findById(Long id);
 
     Optional<Comment> findByAdIdAndCommentNumber(Long adId, Long commentNumber);
-
-    long countByAdId(Long adId);
 }
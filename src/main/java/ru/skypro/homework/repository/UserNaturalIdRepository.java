@@ -0,0 +1,17 @@
+package ru.skypro.homework.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.homework.entity.User;
+
+import java.util.Optional;
+
+/**
+ * Загрузка пользователя по естественному идентификатору.
+ * В отличие от производного запроса Spring Data, поиск идет через кэш естественных идентификаторов
+ * и кэш сущностей Hibernate, поэтому для уже загруженного пользователя запрос к БД не выполняется
+ */
+public interface UserNaturalIdRepository {
+
+    @Transactional(readOnly = true)
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,25 @@
+package ru.skypro.homework.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import ru.skypro.homework.entity.User;
+
+import java.util.Optional;
+
+/**
+ * Поиск по {@code username} через {@link Session#bySimpleNaturalId(Class)}: Hibernate сначала разрешает
+ * имя в ID по кэшу естественных идентификаторов, затем читает сущность из кэша второго уровня
+ */
+class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(username);
+    }
+}
@@ -1,10 +1,20 @@
 package ru.skypro.homework.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.skypro.homework.entity.User;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(String username);
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
+
+    /**
+     * Отбор существующих идентификаторов пользователей без загрузки сущностей
+     *
+     * @param ids проверяемые идентификаторы
+     * @return идентификаторы, для которых есть пользователь
+     */
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
 }
@@ -0,0 +1,15 @@
+package ru.skypro.homework.repository.projection;
+
+/**
+ * Проекция объявления для полной карточки вместе с контактами автора
+ */
+public record AdDetailsView(Long id,
+                            String title,
+                            Integer price,
+                            String description,
+                            String authorFirstName,
+                            String authorLastName,
+                            String authorEmail,
+                            String authorPhone,
+                            String fileHash) {
+}
@@ -0,0 +1,16 @@
+package ru.skypro.homework.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция объявления для выгрузки каталога: поля объявления и идентификатор автора без загрузки сущностей
+ */
+public record AdExportView(Long id,
+                           Long authorId,
+                           String title,
+                           Integer price,
+                           String description,
+                           String fileHash,
+                           LocalDateTime createdAt,
+                           LocalDateTime updatedAt) {
+}
@@ -0,0 +1,11 @@
+package ru.skypro.homework.repository.projection;
+
+/**
+ * Проекция найденного объявления: поля карточки, релевантность и фрагменты с выделенными совпадениями.
+ * Границы совпадений во фрагментах отмечены символами {@link #HIGHLIGHT_START} и {@link #HIGHLIGHT_END}
+ */
+public record AdSearchView(Long id, Long authorId, Integer price, String title, String fileHash, Float rank,
+                           String titleHighlight, String descriptionHighlight) {
+    public static final String HIGHLIGHT_START = "\u0002";
+    public static final String HIGHLIGHT_END = "\u0003";
+}
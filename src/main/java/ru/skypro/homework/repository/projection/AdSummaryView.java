@@ -0,0 +1,9 @@
+package ru.skypro.homework.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция объявления для списков: только поля карточки, без описания и данных автора
+ */
+public record AdSummaryView(Long id, Long authorId, Integer price, String title, LocalDateTime createdAt, String fileHash) {
+}
@@ -0,0 +1,13 @@
+package ru.skypro.homework.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция комментария вместе с данными автора, читаемая одним запросом
+ */
+public record CommentView(Long commentNumber,
+                          String text,
+                          LocalDateTime createdAt,
+                          Long authorId,
+                          String authorFirstName) {
+}
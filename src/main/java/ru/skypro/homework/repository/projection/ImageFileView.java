@@ -0,0 +1,16 @@
+package ru.skypro.homework.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция метаданных файла изображения, достаточных для его отдачи клиенту
+ * и проверки условных запросов без обращения к диску
+ *
+ * @param id идентификатор владельца файла (объявления или аватара)
+ */
+public record ImageFileView(Long id,
+                            String filePath,
+                            String mediaType,
+                            String fileHash,
+                            LocalDateTime fileModifiedAt) {
+}
@@ -0,0 +1,10 @@
+package ru.skypro.homework.service;
+
+/**
+ * Событие изменения каталога объявлений: создание, изменение, удаление объявления или замена его изображения.
+ * Обрабатывается после фиксации транзакции, в которой каталог был изменен
+ *
+ * @param adId идентификатор измененного объявления или null, если изменено сразу несколько объявлений
+ */
+public record AdCatalogChangedEvent(Long adId) {
+}
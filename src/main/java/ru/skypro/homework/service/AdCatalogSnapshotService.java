@@ -0,0 +1,187 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.skypro.homework.dto.ad.AdFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Снимок первых страниц общей выдачи объявлений ({@code GET /ads} без фильтров, в порядке ID,
+ * с размером страницы по умолчанию). Ответ одинаков для всех пользователей, поэтому страницы хранятся
+ * уже сериализованными в JSON и сжатыми gzip и отдаются без обращения к БД и Jackson.
+ * Снимок перестраивается в фоне после изменений каталога с задержкой {@code ads.snapshot.debounce},
+ * поэтому серия изменений приводит к одной перестройке, а выдача отстает от БД не больше чем на задержку
+ * и время перестройки. Страница с неизменившимся содержимым сохраняет прежние байты и версию,
+ * повторно сжимаются только изменившиеся страницы. При ошибке перестройки снимок сбрасывается
+ * и выдача идет из БД до следующей успешной перестройки
+ */
+@Slf4j
+@Service
+public class AdCatalogSnapshotService {
+    private static final String FIRST_PAGE = "";
+
+    private final AdService adService;
+    private final ObjectMapper objectMapper;
+    private final int pages;
+    private final Duration debounce;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private volatile Map<String, Page> snapshot;
+    // Начало отсчета от времени запуска, чтобы ETag не повторялись после перезапуска
+    private long version = System.currentTimeMillis();
+
+    public AdCatalogSnapshotService(AdService adService,
+                                    ObjectMapper objectMapper,
+                                    @Value("${ads.snapshot.pages}") int pages,
+                                    @Value("${ads.snapshot.debounce}") Duration debounce) {
+        this.adService = adService;
+        this.objectMapper = objectMapper;
+        this.pages = pages;
+        this.debounce = debounce;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ad-catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Страница снимка
+     *
+     * @param after курсор страницы или null для первой страницы
+     * @return страница, если она входит в снимок
+     */
+    public Optional<Page> page(String after) {
+        Map<String, Page> current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.get(after == null || after.isBlank() ? FIRST_PAGE : after));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRebuild(Duration.ZERO);
+    }
+
+    /**
+     * Отложенная перестройка снимка после фиксации изменения каталога
+     *
+     * @param event событие изменения каталога
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(AdCatalogChangedEvent event) {
+        log.debug("Ad catalog changed (ad {}), scheduling snapshot rebuild", event.adId());
+        scheduleRebuild(debounce);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Планирование перестройки, если она еще не запланирована.
+     * Флаг сбрасывается в начале перестройки, поэтому изменение во время перестройки планирует следующую
+     */
+    private void scheduleRebuild(Duration delay) {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::rebuild, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Построение страниц снимка по курсорам общей выдачи.
+     * Выполняется только в потоке {@link #executor}
+     */
+    void rebuild() {
+        rebuildScheduled.set(false);
+        long start = System.nanoTime();
+        try {
+            Map<String, Page> previous = snapshot == null ? Map.of() : snapshot;
+            Map<String, Page> rebuilt = new HashMap<>();
+            long nextVersion = version + 1;
+            int changed = 0;
+            String after = null;
+            for (int i = 0; i < pages; i++) {
+                Map<String, Object> body = adService.getAllAds(AdFilter.NONE, after, null, null);
+                byte[] json = objectMapper.writeValueAsBytes(body);
+                String key = after == null ? FIRST_PAGE : after;
+                Page old = previous.get(key);
+                if (old != null && Arrays.equals(old.json(), json)) {
+                    rebuilt.put(key, old);
+                } else {
+                    rebuilt.put(key, new Page(nextVersion, json, gzip(json)));
+                    changed++;
+                }
+                after = (String) body.get("next");
+                if (after == null) {
+                    break;
+                }
+            }
+            if (changed > 0) {
+                version = nextVersion;
+            }
+            snapshot = Map.copyOf(rebuilt);
+            log.debug("Ad catalog snapshot rebuilt: {} pages, {} changed, {} ms",
+                    rebuilt.size(), changed, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            snapshot = null;
+            log.error("Failed to rebuild ad catalog snapshot, serving listing from the database", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Сериализованная страница выдачи
+     *
+     * @param version версия снимка, в которой содержимое страницы изменилось последний раз
+     * @param json    тело ответа в JSON
+     * @param gzip    тело ответа, сжатое gzip
+     */
+    public record Page(long version, byte[] json, byte[] gzip) {
+
+        /**
+         * ETag несжатого представления
+         */
+        public String etag() {
+            return "\"ads-" + version + "\"";
+        }
+
+        /**
+         * ETag сжатого представления: представления с разной кодировкой должны различаться
+         */
+        public String gzipEtag() {
+            return "\"ads-" + version + "-gzip\"";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.skypro.homework.service;
+
+import ru.skypro.homework.dto.ad.AdSort;
+import ru.skypro.homework.repository.projection.AdSummaryView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Курсор для keyset-пагинации объявлений.
+ * Хранит значение ключа сортировки и идентификатор последнего объявления страницы,
+ * клиенту передается в виде непрозрачной base64url-строки
+ */
+final class AdCursor {
+    private static final String SEPARATOR = "|";
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final AdSort sort;
+    private final String key;
+    private final long id;
+
+    private AdCursor(AdSort sort, String key, long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * Курсор, указывающий на начало выдачи
+     */
+    static AdCursor first(AdSort sort) {
+        return switch (sort) {
+            case ID -> new AdCursor(sort, "", 0L);
+            case PRICE -> new AdCursor(sort, String.valueOf(Integer.MIN_VALUE), 0L);
+            case CREATED -> new AdCursor(sort, MAX_CREATED_AT.toString(), Long.MAX_VALUE);
+        };
+    }
+
+    /**
+     * Курсор, указывающий на позицию сразу после переданного объявления
+     */
+    static AdCursor after(AdSummaryView ad, AdSort sort) {
+        return switch (sort) {
+            case ID -> new AdCursor(sort, "", ad.id());
+            case PRICE -> new AdCursor(sort, String.valueOf(ad.price() != null ? ad.price() : 0), ad.id());
+            case CREATED -> new AdCursor(sort, ad.createdAt().toString(), ad.id());
+        };
+    }
+
+    /**
+     * Разбор курсора, полученного от клиента
+     *
+     * @param value строка курсора
+     * @param sort  ожидаемый порядок сортировки
+     * @return курсор
+     * @throws IllegalArgumentException если курсор поврежден или выдан для другой сортировки
+     */
+    static AdCursor decode(String value, AdSort sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3);
+            if (parts.length != 3 || AdSort.valueOf(parts[0]) != sort) {
+                throw new IllegalArgumentException("Cursor does not match sort " + sort);
+            }
+            AdCursor cursor = new AdCursor(sort, parts[1], Long.parseLong(parts[2]));
+            switch (sort) {
+                case PRICE -> cursor.price();
+                case CREATED -> cursor.createdAt();
+                default -> {
+                }
+            }
+            return cursor;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+
+    String encode() {
+        String raw = sort.name() + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    long id() {
+        return id;
+    }
+
+    int price() {
+        return Integer.parseInt(key);
+    }
+
+    LocalDateTime createdAt() {
+        return LocalDateTime.parse(key);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.projection.AdExportView;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка каталога объявлений в формате NDJSON для синхронизации с внешними системами.
+ * Строки читаются из серверного курсора в читающей транзакции и сразу записываются в ответ,
+ * поэтому объем памяти не зависит от размера каталога. Порядок выгрузки - по времени изменения и ID:
+ * для инкрементальной синхронизации передается {@code updatedAt} последней полученной строки.
+ * Время изменения проставляется при сбросе изменений в БД, а видимой строка становится только после фиксации,
+ * поэтому строка долгой транзакции может появиться позже строк с большим {@code updatedAt}. Чтобы такие строки
+ * не оказались за границей потребителя, инкрементальная выгрузка начинается раньше переданной границы
+ * на {@code ads.export.overlap}: окно должно превышать длительность самой долгой пишущей транзакции
+ * с учетом расхождения часов экземпляров приложения, а потребитель обновляет строки по ID.
+ * Удаленные объявления в выгрузку не попадают
+ */
+@Slf4j
+@Service
+@Timed(value = "app.service", description = "Service method execution time")
+public class AdExportService {
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+
+    private final AdRepository adRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter writer;
+    private final Duration overlap;
+
+    public AdExportService(AdRepository adRepository,
+                           PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper,
+                           @Value("${ads.export.overlap}") Duration overlap) {
+        this.adRepository = adRepository;
+        this.overlap = overlap;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.writer = objectMapper.writerFor(AdExportView.class);
+    }
+
+    /**
+     * Запись объявлений в поток по одному JSON-объекту в строке
+     *
+     * @param updatedSince {@code updatedAt} последней полученной строки или null для всего каталога;
+     *                     выгружаются строки, измененные начиная с этого момента за вычетом {@code ads.export.overlap}
+     * @param output       поток ответа
+     * @return число выгруженных объявлений
+     * @throws IOException при ошибке записи в поток
+     */
+    public long exportAds(LocalDateTime updatedSince, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        long exported;
+        try {
+            exported = transactionTemplate.execute(status -> {
+                try (Stream<AdExportView> ads = updatedSince == null
+                        ? adRepository.streamForExport()
+                        : adRepository.streamForExportUpdatedSince(updatedSince.minus(overlap))) {
+                    return write(ads.iterator(), output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.flush();
+        log.info("Exported {} ads updated since {} in {} ms",
+                exported, updatedSince, (System.nanoTime() - start) / 1_000_000);
+        return exported;
+    }
+
+    private long write(Iterator<AdExportView> ads, OutputStream output) throws IOException {
+        long count = 0;
+        while (ads.hasNext()) {
+            output.write(writer.writeValueAsBytes(ads.next()));
+            output.write(LINE_SEPARATOR);
+            count++;
+        }
+        return count;
+    }
+}
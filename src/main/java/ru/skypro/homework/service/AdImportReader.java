@@ -0,0 +1,236 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковое чтение строк импорта объявлений из CSV или NDJSON.
+ * Входные данные читаются по одной записи, поэтому память не зависит от размера файла.
+ * Некорректная запись отклоняется исключением {@link IllegalArgumentException},
+ * после которого чтение продолжается со следующей записи
+ */
+abstract class AdImportReader {
+    protected final BufferedReader reader;
+    protected long line;
+
+    private AdImportReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    static AdImportReader csv(BufferedReader reader) {
+        return new Csv(reader);
+    }
+
+    static AdImportReader ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+        return new Ndjson(reader, objectMapper);
+    }
+
+    /**
+     * Чтение служебного начала входных данных перед первой записью
+     *
+     * @throws IllegalArgumentException если входные данные не удалось разобрать целиком
+     * @throws IOException              при ошибке чтения
+     */
+    void open() throws IOException {
+    }
+
+    /**
+     * Чтение следующей записи
+     *
+     * @return запись или null в конце входных данных
+     * @throws IllegalArgumentException если запись не удалось разобрать
+     * @throws IOException              при ошибке чтения
+     */
+    abstract Row next() throws IOException;
+
+    /**
+     * @return номер строки, на которой начиналась последняя прочитанная запись
+     */
+    long line() {
+        return line;
+    }
+
+    /**
+     * Запись импорта до проверки
+     *
+     * @param line        номер строки, на которой начинается запись
+     * @param title       заголовок
+     * @param price       цена или null
+     * @param description описание или null
+     * @param authorId    идентификатор автора
+     */
+    record Row(long line, String title, Integer price, String description, Long authorId) {
+    }
+
+    /**
+     * CSV по RFC 4180: первая строка - заголовок с именами столбцов {@code title,price,description,authorId}
+     * в любом порядке; значения в кавычках могут содержать запятые, переводы строк и удвоенные кавычки
+     */
+    private static final class Csv extends AdImportReader {
+        private static final List<String> REQUIRED_COLUMNS = List.of("title", "authorId");
+
+        private long nextLine = 1;
+        private Map<String, Integer> columns;
+
+        private Csv(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        void open() throws IOException {
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV header is missing");
+            }
+            columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim(), i);
+            }
+            for (String column : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(column)) {
+                    throw new IllegalArgumentException("CSV header must contain column: " + column);
+                }
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+            if (fields.size() != columns.size()) {
+                throw new IllegalArgumentException("Expected " + columns.size() + " fields, got " + fields.size());
+            }
+            return new Row(line,
+                    field(fields, "title"),
+                    parseInteger(field(fields, "price"), "price"),
+                    field(fields, "description"),
+                    parseLong(field(fields, "authorId"), "authorId"));
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            return index == null ? null : fields.get(index);
+        }
+
+        /**
+         * Чтение одной записи, которая может занимать несколько строк внутри кавычек
+         *
+         * @return значения полей или null в конце входных данных
+         */
+        private List<String> readRecord() throws IOException {
+            line = nextLine;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        if (c == '\n') {
+                            nextLine++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    nextLine++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+
+    /**
+     * NDJSON: по одному JSON-объекту {@code {"title", "price", "description", "authorId"}} в строке,
+     * пустые строки пропускаются
+     */
+    private static final class Ndjson extends AdImportReader {
+        private final ObjectMapper objectMapper;
+
+        private Ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+
+            Fields fields;
+            try {
+                fields = objectMapper.readValue(text, Fields.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+            }
+            return new Row(line, fields.title(), fields.price(), fields.description(), fields.authorId());
+        }
+
+        private record Fields(String title, Integer price, String description, Long authorId) {
+        }
+    }
+
+    private static Integer parseInteger(String value, String column) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static Long parseLong(String value, String column) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.homework.dto.ad.AdImportReport;
+import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Массовый импорт объявлений из CSV или NDJSON.
+ * Входной поток читается по одной записи и сохраняется пакетами по {@code ads.import.chunk-size} строк,
+ * каждый пакет фиксируется отдельной транзакцией: при ошибке сохраняется все, что было импортировано до нее.
+ * Идентификаторы объявлений выдаются последовательностью блоками, поэтому Hibernate отправляет вставки пакета
+ * пакетными JDBC-запросами. Импортированные объявления создаются без изображения
+ */
+@Slf4j
+@Service
+@Timed(value = "app.service", description = "Service method execution time")
+public class AdImportService {
+    private final AdRepository adRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public AdImportService(AdRepository adRepository,
+                           UserRepository userRepository,
+                           TransactionTemplate transactionTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           ObjectMapper objectMapper,
+                           @Value("${ads.import.chunk-size}") int chunkSize,
+                           @Value("${ads.import.max-reported-errors}") int maxReportedErrors) {
+        this.adRepository = adRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Формат входных данных импорта
+     */
+    public enum Format {
+        CSV, NDJSON;
+
+        public static final String CSV_MEDIA_TYPE = "text/csv";
+
+        /**
+         * @param contentType значение заголовка {@code Content-Type}
+         * @return формат, соответствующий типу содержимого
+         * @throws IllegalArgumentException если тип содержимого не поддерживается
+         */
+        public static Format fromContentType(String contentType) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (mediaType.isCompatibleWith(MediaType.parseMediaType(CSV_MEDIA_TYPE))) {
+                return CSV;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Unsupported import content type: " + contentType);
+        }
+    }
+
+    /**
+     * Импорт объявлений из потока
+     *
+     * @param input  входные данные в кодировке UTF-8
+     * @param format формат входных данных
+     * @return число импортированных и отклоненных строк, число пакетов и ошибки первых отклоненных строк
+     * @throws IllegalArgumentException если отсутствует или некорректен заголовок CSV
+     * @throws IOException              при ошибке чтения входного потока
+     */
+    public AdImportReport importAds(InputStream input, Format format) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        AdImportReader reader = format == Format.CSV
+                ? AdImportReader.csv(bufferedReader)
+                : AdImportReader.ndjson(bufferedReader, objectMapper);
+        reader.open();
+
+        Progress progress = new Progress();
+        List<AdImportReader.Row> chunk = new ArrayList<>(chunkSize);
+        while (true) {
+            AdImportReader.Row row;
+            try {
+                row = reader.next();
+            } catch (IllegalArgumentException e) {
+                progress.reject(reader.line(), e.getMessage());
+                continue;
+            }
+            if (row == null) {
+                break;
+            }
+            String error = validate(row);
+            if (error != null) {
+                progress.reject(row.line(), error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, progress);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, progress);
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Ad import finished: {} imported, {} rejected in {} chunks, {} ms",
+                progress.imported, progress.rejected, progress.chunks, durationMs);
+        return new AdImportReport(progress.imported, progress.rejected, progress.chunks, durationMs,
+                List.copyOf(progress.errors));
+    }
+
+    /**
+     * Сохранение пакета строк в отдельной транзакции.
+     * Авторы пакета проверяются одним запросом; строки с несуществующим автором отклоняются
+     */
+    private void importChunk(List<AdImportReader.Row> rows, Progress progress) {
+        Set<Long> authorIds = new HashSet<>();
+        rows.forEach(row -> authorIds.add(row.authorId()));
+        List<AdImportReader.Row> rejected = new ArrayList<>();
+        int saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                Set<Long> existing = new HashSet<>(userRepository.findExistingIds(authorIds));
+                List<Ad> ads = new ArrayList<>(rows.size());
+                for (AdImportReader.Row row : rows) {
+                    if (!existing.contains(row.authorId())) {
+                        rejected.add(row);
+                        continue;
+                    }
+                    ads.add(toAd(row, userRepository.getReferenceById(row.authorId())));
+                }
+                adRepository.saveAll(ads);
+                return ads.size();
+            });
+        } catch (DataAccessException | TransactionException e) {
+            log.error("Ad import chunk starting at line {} failed", rows.get(0).line(), e);
+            rows.forEach(row -> progress.reject(row.line(), "Chunk failed: " + e.getMostSpecificCause().getMessage()));
+            return;
+        }
+        rejected.forEach(row -> progress.reject(row.line(), "Author not found: " + row.authorId()));
+        progress.imported += saved;
+        progress.chunks++;
+        if (saved > 0) {
+            eventPublisher.publishEvent(new AdCatalogChangedEvent(null));
+        }
+        log.info("Ad import chunk {} committed: {} ads, {} imported, {} rejected so far",
+                progress.chunks, saved, progress.imported, progress.rejected);
+    }
+
+    /**
+     * @return описание ошибки или null, если строку можно импортировать
+     */
+    private static String validate(AdImportReader.Row row) {
+        if (row.title() == null || row.title().isBlank()) {
+            return "Title is required";
+        }
+        if (row.price() != null && row.price() < 0) {
+            return "Price must not be negative";
+        }
+        if (row.authorId() == null) {
+            return "Author is required";
+        }
+        return null;
+    }
+
+    private static Ad toAd(AdImportReader.Row row, User author) {
+        Ad ad = new Ad();
+        ad.setTitle(row.title());
+        ad.setPrice(row.price());
+        ad.setDescription(row.description());
+        ad.setUser(author);
+        return ad;
+    }
+
+    /**
+     * Счетчики импорта и ошибки первых отклоненных строк
+     */
+    private final class Progress {
+        private final List<AdImportReport.RowError> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+        private int chunks;
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new AdImportReport.RowError(line, message));
+            }
+        }
+    }
+}
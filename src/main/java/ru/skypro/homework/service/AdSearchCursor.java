@@ -0,0 +1,57 @@
+package ru.skypro.homework.service;
+
+import ru.skypro.homework.repository.projection.AdSearchView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Курсор для keyset-пагинации результатов поиска.
+ * Хранит релевантность и идентификатор последнего объявления страницы,
+ * клиенту передается в виде непрозрачной base64url-строки
+ *
+ * @param rank релевантность последнего объявления
+ * @param id   идентификатор последнего объявления
+ */
+record AdSearchCursor(float rank, long id) {
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Курсор, указывающий на начало выдачи
+     */
+    static AdSearchCursor first() {
+        return new AdSearchCursor(Float.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Курсор, указывающий на позицию сразу после переданного объявления
+     */
+    static AdSearchCursor after(AdSearchView ad) {
+        return new AdSearchCursor(ad.rank(), ad.id());
+    }
+
+    /**
+     * Разбор курсора, полученного от клиента
+     *
+     * @param value строка курсора
+     * @return курсор
+     * @throws IllegalArgumentException если курсор поврежден
+     */
+    static AdSearchCursor decode(String value) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed search cursor");
+            }
+            return new AdSearchCursor(Float.parseFloat(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+
+    String encode() {
+        String raw = rank + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
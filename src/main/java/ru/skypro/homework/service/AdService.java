@@ -1,33 +1,41 @@
 package ru.skypro.homework.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.HtmlUtils;
+import ru.skypro.homework.config.CacheConfig;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.ImageUrls;
 import ru.skypro.homework.dto.ad.AdCreateRequestDTO;
+import ru.skypro.homework.dto.ad.AdFilter;
 import ru.skypro.homework.dto.ad.AdFullResponseDTO;
+import ru.skypro.homework.dto.ad.AdSearchResultDTO;
+import ru.skypro.homework.dto.ad.AdSort;
 import ru.skypro.homework.dto.ad.AdShortResponseDTO;
 import ru.skypro.homework.dto.ad.AdUpdateRequestDTO;
 import ru.skypro.homework.entity.Ad;
 import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdPreviewRepository;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.repository.projection.AdSearchView;
+import ru.skypro.homework.repository.projection.AdSummaryView;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -37,33 +45,46 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
+@Timed(value = "app.service", description = "Service method execution time")
 @Transactional
 @RequiredArgsConstructor
 public class AdService {
+    private static final int MAX_SEARCH_QUERY_LENGTH = 200;
+
     @Value("${path.to.ads.folder}")
     private String adDir;
 
+    @Value("${ads.pagination.default-limit}")
+    private int defaultPageLimit;
+
+    @Value("${ads.pagination.max-limit}")
+    private int maxPageLimit;
+
     private final UserService userService;
     private final AdRepository adRepository;
+    private final AdPreviewRepository adPreviewRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageUploadWriter imageUploadWriter;
 
     /**
      * Создание нового объявления
      *
-     * @param username    имя пользователя-автора
+     * @param principal   пользователь-автор
      * @param title       заголовок объявления
      * @param price       цена товара
      * @param description описание товара
      * @param imageFile   файл изображения
      * @return DTO созданного объявления или null при ошибке
-     * @throws IOException при ошибках работы с файловой системой
+     * @throws IOException              при ошибках работы с файловой системой
+     * @throws IllegalArgumentException если файл не является изображением поддерживаемого формата или слишком большой
      */
-    public AdFullResponseDTO createAd(String username, String title, Integer price, String description, MultipartFile imageFile) throws IOException {
-        log.debug("Creating ad for user: {}", username);
+    public AdFullResponseDTO createAd(AuthenticatedUser principal, String title, Integer price, String description, MultipartFile imageFile) throws IOException {
+        log.debug("Creating ad for user: {}", principal.username());
 
-        User user = userRepository.findByUsername(username).orElse(null);
+        User user = userRepository.findById(principal.id()).orElse(null);
         if (user == null) {
-            log.warn("User {} not found for ad creation", username);
+            log.warn("User {} not found for ad creation", principal.username());
             return null;
         }
 
@@ -78,62 +99,96 @@ public class AdService {
         ad.setPrice(adRequest.getPrice());
         ad.setDescription(adRequest.getDescription());
 
-        String filename = user.getUsername() + "_" + System.currentTimeMillis() + "." + getExtension(Objects.requireNonNull(imageFile.getOriginalFilename()));
-        Path filePath = Path.of(adDir, filename);
-        Files.createDirectories(filePath.getParent());
-        Files.copy(imageFile.getInputStream(), filePath);
+        String filename = user.getUsername() + "_" + System.currentTimeMillis() + ".";
+        ImageUploadWriter.StoredImage image = imageUploadWriter.store(imageFile,
+                format -> Path.of(adDir, filename + format.extension()));
+        AfterTransaction.replaceFile(null, image.path());
 
-        ad.setFilePath(filePath.toString());
-        ad.setFileSize(imageFile.getSize());
-        ad.setMediaType(imageFile.getContentType());
-        ad.setData(generateAdPreview(filePath));
+        ad.setFilePath(image.path().toString());
+        ad.setFileSize(image.size());
+        ad.setMediaType(image.format().mediaType());
+        ad.setFileHash(image.fileHash());
+        ad.setFileModifiedAt(LocalDateTime.now());
 
         Ad savedAd = adRepository.save(ad);
-        log.info("Ad {} created successfully by user {}", savedAd.getId(), username);
+        publishImageUploaded(savedAd);
+        eventPublisher.publishEvent(new AdCatalogChangedEvent(savedAd.getId()));
+        log.info("Ad {} created successfully by user {}", savedAd.getId(), principal.username());
         return new AdFullResponseDTO(savedAd);
     }
 
     /**
-     * Получение всех объявлений
+     * Получение страницы всех объявлений, отобранных по цене и автору
      *
-     * @return карта с количеством и списком объявлений
+     * @param filter условия отбора
+     * @param after  курсор, полученный в поле {@code next} предыдущей страницы, или null для первой страницы
+     * @param limit  размер страницы или null для размера по умолчанию
+     * @param sort   порядок сортировки (id, price, created)
+     * @return карта с количеством, списком объявлений и курсором следующей страницы
+     * @throws IllegalArgumentException при некорректном курсоре или сортировке
      */
-    public Map<String, Object> getAllAds() {
-        List<AdShortResponseDTO> ads = adRepository.findAll().stream()
-                .map(this::toAdShortResponse)
-                .collect(Collectors.toList());
-
-        return Map.of(
-                "count", ads.size(),
-                "results", ads
-        );
+    public Map<String, Object> getAllAds(AdFilter filter, String after, Integer limit, String sort) {
+        return getAdsPage(null, filter, after, limit, sort);
     }
 
     /**
-     * Получение объявлений конкретного пользователя
+     * Получение страницы объявлений конкретного пользователя
      *
      * @param username имя пользователя
-     * @return карта с количеством и списком объявлений пользователя
+     * @param after    курсор, полученный в поле {@code next} предыдущей страницы, или null для первой страницы
+     * @param limit    размер страницы или null для размера по умолчанию
+     * @param sort     порядок сортировки (id, price, created)
+     * @return карта с количеством, списком объявлений пользователя и курсором следующей страницы
+     * @throws IllegalArgumentException при некорректном курсоре или сортировке
      */
-    public Map<String, Object> getUserAds(String username) {
-        List<AdShortResponseDTO> ads = adRepository.findByUser_Username(username).stream()
-                .map(this::toAdShortResponse)
+    public Map<String, Object> getUserAds(String username, String after, Integer limit, String sort) {
+        return getAdsPage(username, AdFilter.NONE, after, limit, sort);
+    }
+
+    /**
+     * Полнотекстовый поиск объявлений по заголовку и описанию.
+     * Результаты упорядочены по убыванию релевантности, совпадения в заголовке весят больше, чем в описании
+     *
+     * @param query поисковый запрос: слова, фразы в кавычках, {@code or} и исключение через {@code -}
+     * @param after курсор, полученный в поле {@code next} предыдущей страницы, или null для первой страницы
+     * @param limit размер страницы или null для размера по умолчанию
+     * @return карта с количеством, списком найденных объявлений и курсором следующей страницы
+     * @throws IllegalArgumentException при пустом или слишком длинном запросе и некорректном курсоре
+     */
+    public Map<String, Object> searchAds(String query, String after, Integer limit) {
+        if (query == null || query.isBlank() || query.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query must be 1-" + MAX_SEARCH_QUERY_LENGTH + " characters");
+        }
+        int pageSize = resolveLimit(limit);
+        AdSearchCursor cursor = after == null || after.isBlank() ? AdSearchCursor.first() : AdSearchCursor.decode(after);
+
+        List<AdSearchView> ads = adRepository.search(query, cursor.rank(), cursor.id(), pageSize + 1);
+
+        boolean hasNext = ads.size() > pageSize;
+        List<AdSearchView> page = hasNext ? ads.subList(0, pageSize) : ads;
+        List<AdSearchResultDTO> results = page.stream()
+                .map(this::toAdSearchResult)
                 .collect(Collectors.toList());
 
-        return Map.of(
-                "count", ads.size(),
-                "results", ads
-        );
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", results.size());
+        response.put("results", results);
+        if (hasNext) {
+            response.put("next", AdSearchCursor.after(page.get(page.size() - 1)).encode());
+        }
+        return response;
     }
 
     /**
-     * Получение объявления по идентификатору
+     * Получение объявления по идентификатору.
+     * Результат кэшируется до изменения объявления или профиля его автора
      *
      * @param id идентификатор объявления
      * @return DTO объявления или null если не найдено
      */
+    @Cacheable(cacheNames = CacheConfig.AD_DETAILS, unless = "#result == null")
     public AdFullResponseDTO getAdById(Long id) {
-        return adRepository.findById(id)
+        return adRepository.findDetailsById(id)
                 .map(AdFullResponseDTO::new)
                 .orElse(null);
     }
@@ -141,12 +196,13 @@ public class AdService {
     /**
      * Удаление объявления с проверкой прав доступа
      *
-     * @param id       идентификатор объявления
-     * @param username имя пользователя, выполняющего операцию
+     * @param id        идентификатор объявления
+     * @param principal пользователь, выполняющий операцию
      * @return true если удаление успешно, false если нет прав или объявление не найдено
      */
-    public boolean deleteAd(Long id, String username) {
-        log.debug("Deleting ad {} by user {}", id, username);
+    @CacheEvict(cacheNames = CacheConfig.AD_DETAILS, key = "#id")
+    public boolean deleteAd(Long id, AuthenticatedUser principal) {
+        log.debug("Deleting ad {} by user {}", id, principal.username());
 
         Ad ad = adRepository.findById(id).orElse(null);
         if (ad == null) {
@@ -154,13 +210,14 @@ public class AdService {
             return false;
         }
 
-        if (!userService.hasPermission(ad, username)) {
-            log.warn("User {} attempted to delete ad {} without permission", username, id);
+        if (!userService.hasPermission(ad, principal)) {
+            log.warn("User {} attempted to delete ad {} without permission", principal.username(), id);
             return false;
         }
 
         adRepository.deleteById(id);
-        log.info("Ad {} deleted successfully by user {}", id, username);
+        eventPublisher.publishEvent(new AdCatalogChangedEvent(id));
+        log.info("Ad {} deleted successfully by user {}", id, principal.username());
         return true;
     }
 
@@ -169,11 +226,12 @@ public class AdService {
      *
      * @param id            идентификатор объявления
      * @param updateRequest DTO с обновленными данными
-     * @param username      имя пользователя, выполняющего операцию
+     * @param principal     пользователь, выполняющий операцию
      * @return true если обновление успешно, false если нет прав или объявление не найдено
      */
-    public AdFullResponseDTO updateAd(Long id, AdUpdateRequestDTO updateRequest, String username) {
-        log.debug("Updating ad {} by user {}", id, username);
+    @CacheEvict(cacheNames = CacheConfig.AD_DETAILS, key = "#id")
+    public AdFullResponseDTO updateAd(Long id, AdUpdateRequestDTO updateRequest, AuthenticatedUser principal) {
+        log.debug("Updating ad {} by user {}", id, principal.username());
 
         Optional<Ad> optAd = adRepository.findById(id);
         if (optAd.isEmpty()) {
@@ -181,8 +239,8 @@ public class AdService {
         }
 
         Ad ad = optAd.get();
-        if (!userService.hasPermission(ad, username)) {
-            log.warn("User {} attempted to update ad {} without permission", username, id);
+        if (!userService.hasPermission(ad, principal)) {
+            log.warn("User {} attempted to update ad {} without permission", principal.username(), id);
             return null;
         }
 
@@ -190,8 +248,9 @@ public class AdService {
         ad.setPrice(updateRequest.getPrice());
         ad.setDescription(updateRequest.getDescription());
         Ad savedAd = adRepository.save(ad);
+        eventPublisher.publishEvent(new AdCatalogChangedEvent(id));
 
-        log.info("Ad {} updated successfully by user {}", id, username);
+        log.info("Ad {} updated successfully by user {}", id, principal.username());
         return new AdFullResponseDTO(savedAd);
     }
 
@@ -200,20 +259,22 @@ public class AdService {
      *
      * @param id        идентификатор объявления
      * @param imageFile новый файл изображения
-     * @param username  имя пользователя, выполняющего операцию
+     * @param principal пользователь, выполняющий операцию
      * @return true если обновление успешно, false если нет прав или объявление не найдено
-     * @throws IOException при ошибках работы с файловой системой
+     * @throws IOException              при ошибках работы с файловой системой
+     * @throws IllegalArgumentException если файл не является изображением поддерживаемого формата или слишком большой
      */
-    public boolean updateAdImage(Long id, MultipartFile imageFile, String username) throws IOException {
-        log.debug("Updating ad image for ad {} by user {}", id, username);
+    @CacheEvict(cacheNames = CacheConfig.AD_DETAILS, key = "#id")
+    public boolean updateAdImage(Long id, MultipartFile imageFile, AuthenticatedUser principal) throws IOException {
+        log.debug("Updating ad image for ad {} by user {}", id, principal.username());
 
         Ad ad = adRepository.findById(id).orElse(null);
         if (ad == null) {
             return false;
         }
 
-        if (!userService.hasPermission(ad, username)) {
-            log.warn("User {} attempted to update ad image {} without permission", username, id);
+        if (!userService.hasPermission(ad, principal)) {
+            log.warn("User {} attempted to update ad image {} without permission", principal.username(), id);
             return false;
         }
 
@@ -226,86 +287,131 @@ public class AdService {
      *
      * @param ad        сущность объявления
      * @param imageFile новый файл изображения
-     * @throws IOException при ошибках работы с файловой системой
+     * @throws IOException              при ошибках работы с файловой системой
+     * @throws IllegalArgumentException если файл не является изображением поддерживаемого формата или слишком большой
      */
     private void updateAdImageInternal(Ad ad, MultipartFile imageFile) throws IOException {
-        String extension = getExtension(Objects.requireNonNull(imageFile.getOriginalFilename()));
-        String newFileName = ad.getUser().getUsername() + "_" + System.currentTimeMillis() + "." + extension;
-
+        String newFileName = ad.getUser().getUsername() + "_" + System.currentTimeMillis() + ".";
         Path baseDir = Path.of(adDir).toAbsolutePath().normalize();
-        Path newFilePath = baseDir.resolve(newFileName).normalize();
-
-        if (!newFilePath.startsWith(baseDir)) {
-            throw new SecurityException("Invalid file path: attempted path traversal");
-        }
-
-        Files.createDirectories(newFilePath.getParent());
-        Files.copy(imageFile.getInputStream(), newFilePath, StandardCopyOption.REPLACE_EXISTING);
-
-        if (ad.getFilePath() != null && !ad.getFilePath().equals(newFilePath.toString())) {
-            try {
-                Files.deleteIfExists(Path.of(ad.getFilePath()));
-            } catch (IOException e) {
-                log.error("Failed to delete old ad image: {}", ad.getFilePath(), e);
+        ImageUploadWriter.StoredImage image = imageUploadWriter.store(imageFile, format -> {
+            Path path = baseDir.resolve(newFileName + format.extension()).normalize();
+            if (!path.startsWith(baseDir)) {
+                throw new SecurityException("Invalid file path: attempted path traversal");
             }
-        }
+            return path;
+        });
+        Path newFilePath = image.path();
+        // Прежний файл удаляется только после фиксации: при откате объявление должно ссылаться на него
+        AfterTransaction.replaceFile(ad.getFilePath(), newFilePath);
 
         ad.setFilePath(newFilePath.toString());
-        ad.setFileSize(imageFile.getSize());
-        ad.setMediaType(imageFile.getContentType());
-        ad.setData(generateAdPreview(newFilePath));
+        ad.setFileSize(image.size());
+        ad.setMediaType(image.format().mediaType());
+        ad.setFileHash(image.fileHash());
+        ad.setFileModifiedAt(LocalDateTime.now());
 
         adRepository.save(ad);
+        adPreviewRepository.deleteById(ad.getId());
+        publishImageUploaded(ad);
+        eventPublisher.publishEvent(new AdCatalogChangedEvent(ad.getId()));
         log.info("Ad image updated for ad {}", ad.getId());
     }
 
+    /**
+     * Выборка страницы объявлений методом keyset-пагинации
+     *
+     * @param username имя пользователя для фильтрации или null для всех объявлений
+     * @param filter   условия отбора для выдачи всех объявлений
+     */
+    private Map<String, Object> getAdsPage(String username, AdFilter filter, String after, Integer limit, String sortParam) {
+        AdSort sort = AdSort.fromParam(sortParam);
+        int pageSize = resolveLimit(limit);
+        AdCursor cursor = after == null || after.isBlank() ? AdCursor.first(sort) : AdCursor.decode(after, sort);
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<AdSummaryView> ads = switch (sort) {
+            case ID -> username == null
+                    ? adRepository.findFilteredPageAfterId(filter, cursor.id(), fetchLimit)
+                    : adRepository.findUserPageAfterId(username, cursor.id(), fetchLimit);
+            case PRICE -> username == null
+                    ? adRepository.findFilteredPageAfterPrice(filter, cursor.price(), cursor.id(), fetchLimit)
+                    : adRepository.findUserPageAfterPrice(username, cursor.price(), cursor.id(), fetchLimit);
+            case CREATED -> username == null
+                    ? adRepository.findFilteredPageBeforeCreatedAt(filter, cursor.createdAt(), cursor.id(), fetchLimit)
+                    : adRepository.findUserPageBeforeCreatedAt(username, cursor.createdAt(), cursor.id(), fetchLimit);
+        };
+
+        boolean hasNext = ads.size() > pageSize;
+        List<AdSummaryView> page = hasNext ? ads.subList(0, pageSize) : ads;
+        List<AdShortResponseDTO> results = page.stream()
+                .map(this::toAdShortResponse)
+                .collect(Collectors.toList());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", results.size());
+        response.put("results", results);
+        if (hasNext) {
+            response.put("next", AdCursor.after(page.get(page.size() - 1), sort).encode());
+        }
+        return response;
+    }
+
+    /**
+     * Ограничение запрошенного размера страницы допустимым диапазоном
+     */
+    private int resolveLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageLimit;
+        }
+        return Math.min(limit, maxPageLimit);
+    }
+
     /**
      * Преобразование сущности в DTO для краткого представления
      */
-    private AdShortResponseDTO toAdShortResponse(Ad ad) {
+    private AdShortResponseDTO toAdShortResponse(AdSummaryView ad) {
         AdShortResponseDTO dto = new AdShortResponseDTO();
-        dto.setPk(ad.getId());
-        dto.setAuthor(ad.getUser().getId());
-        dto.setImage("/ads/" + ad.getId() + "/image");
-        dto.setPrice(ad.getPrice());
-        dto.setTitle(ad.getTitle());
+        dto.setPk(ad.id());
+        dto.setAuthor(ad.authorId());
+        dto.setImage(ImageUrls.adImagePreview(ad.id(), ad.fileHash()));
+        dto.setPrice(ad.price());
+        dto.setTitle(ad.title());
         return dto;
     }
 
     /**
-     * Получение расширения файла из имени
+     * Преобразование результата поиска в DTO
      */
-    private String getExtension(String fileName) {
-        return fileName.substring(fileName.lastIndexOf('.') + 1);
+    private AdSearchResultDTO toAdSearchResult(AdSearchView ad) {
+        AdSearchResultDTO dto = new AdSearchResultDTO();
+        dto.setPk(ad.id());
+        dto.setAuthor(ad.authorId());
+        dto.setImage(ImageUrls.adImagePreview(ad.id(), ad.fileHash()));
+        dto.setPrice(ad.price());
+        dto.setTitle(ad.title());
+        dto.setTitleHighlight(highlight(ad.titleHighlight()));
+        dto.setDescriptionHighlight(highlight(ad.descriptionHighlight()));
+        return dto;
     }
 
     /**
-     * Генерация превью изображения для объявления
-     *
-     * @param filePath путь к исходному файлу изображения
-     * @return массив байтов превью изображения
-     * @throws IOException при ошибках чтения/записи изображения
+     * Экранирование фрагмента для HTML и замена служебных границ совпадений тегом mark.
+     * Фрагменты строятся из пользовательского текста, поэтому разметка добавляется только после экранирования
      */
-    private byte[] generateAdPreview(Path filePath) throws IOException {
-        try (InputStream inputStream = Files.newInputStream(filePath);
-             BufferedInputStream bis = new BufferedInputStream(inputStream, 1024);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            BufferedImage image = ImageIO.read(bis);
-            if (image == null) {
-                throw new IOException("Unsupported image format");
-            }
-
-            int width = 100;
-            int height = image.getHeight() * width / image.getWidth();
-            BufferedImage preview = new BufferedImage(width, height, image.getType());
-            Graphics2D graphics = preview.createGraphics();
-            graphics.drawImage(image, 0, 0, width, height, null);
-            graphics.dispose();
-
-            String ext = getExtension(filePath.getFileName().toString());
-            ImageIO.write(preview, ext, baos);
-            return baos.toByteArray();
+    private static String highlight(String headline) {
+        if (headline == null) {
+            return null;
         }
+        return HtmlUtils.htmlEscape(headline)
+                .replace(AdSearchView.HIGHLIGHT_START, "<mark>")
+                .replace(AdSearchView.HIGHLIGHT_END, "</mark>");
+    }
+
+    /**
+     * Передача нового изображения объявления на фоновую генерацию превью
+     */
+    private void publishImageUploaded(Ad ad) {
+        eventPublisher.publishEvent(new ImageUploadedEvent(
+                ImageUploadedEvent.Owner.AD, ad.getId(), ad.getFilePath(), ad.getFileHash(), ad.getMediaType()));
     }
-}
\ No newline at end of file
+}
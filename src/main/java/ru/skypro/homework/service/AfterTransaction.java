@@ -0,0 +1,74 @@
+package ru.skypro.homework.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Действия, которые нельзя выполнять до завершения транзакции: сброс кэшей и удаление файлов,
+ * на которые ссылаются строки БД. Вне транзакции действие фиксации выполняется сразу
+ */
+@Slf4j
+public final class AfterTransaction {
+
+    private AfterTransaction() {
+    }
+
+    /**
+     * Выполнение действия после фиксации или отката текущей транзакции
+     *
+     * @param onCommit   действие после фиксации
+     * @param onRollback действие после отката
+     */
+    public static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                (status == STATUS_COMMITTED ? onCommit : onRollback).run();
+            }
+        });
+    }
+
+    /**
+     * Выполнение действия после фиксации текущей транзакции
+     *
+     * @param action действие после фиксации
+     */
+    public static void afterCommit(Runnable action) {
+        afterCompletion(action, () -> {
+        });
+    }
+
+    /**
+     * Замена файла, путь к которому хранится в БД: после фиксации удаляется прежний файл,
+     * после отката - новый, поэтому строка всегда ссылается на существующий файл
+     *
+     * @param oldFilePath путь к прежнему файлу или null, если его не было
+     * @param newFilePath путь к записанному новому файлу
+     */
+    public static void replaceFile(String oldFilePath, Path newFilePath) {
+        afterCompletion(
+                () -> {
+                    if (oldFilePath != null && !oldFilePath.equals(newFilePath.toString())) {
+                        deleteFile(Path.of(oldFilePath));
+                    }
+                },
+                () -> deleteFile(newFilePath));
+    }
+
+    private static void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("Failed to delete file: {}", path, e);
+        }
+    }
+}
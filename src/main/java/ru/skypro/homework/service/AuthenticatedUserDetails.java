@@ -0,0 +1,49 @@
+package ru.skypro.homework.service;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Данные пользователя Spring Security с идентификатором и ролью из БД.
+ * Сохраняются в сессии, кэше Basic-аутентификации и восстанавливаются из токена доступа,
+ * поэтому {@link AuthenticatedUser} строится без обращения к БД
+ */
+public class AuthenticatedUserDetails extends User {
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final Long id;
+    private final Role role;
+
+    public AuthenticatedUserDetails(Long id, String username, String password, Role role) {
+        super(username, password, List.of(new SimpleGrantedAuthority(ROLE_PREFIX + role.name())));
+        this.id = id;
+        this.role = role;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public AuthenticatedUser toAuthenticatedUser() {
+        return new AuthenticatedUser(id, getUsername(), role);
+    }
+
+    /**
+     * Роль пользователя по списку полномочий
+     *
+     * @param authorities полномочия вида {@code ROLE_USER}, {@code ROLE_ADMIN}
+     * @return {@link Role#ADMIN} при наличии полномочия администратора, иначе {@link Role#USER}
+     */
+    public static Role roleOf(Collection<? extends GrantedAuthority> authorities) {
+        return authorities.stream()
+                .anyMatch(authority -> (ROLE_PREFIX + Role.ADMIN.name()).equals(authority.getAuthority()))
+                ? Role.ADMIN
+                : Role.USER;
+    }
+}
@@ -0,0 +1,209 @@
+package ru.skypro.homework.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кэш успешно проверенных учетных данных Basic-аутентификации.
+ * Позволяет повторным запросам с тем же заголовком Authorization не обращаться к БД
+ * и не выполнять проверку bcrypt.
+ * Ключ - SHA-256 от заголовка с секретной солью процесса, сам пароль в кэше не хранится.
+ * Размер кэша ограничен (вытесняются давно не использованные записи), записи живут не дольше TTL
+ * и удаляются при смене пароля пользователя.
+ * Чтобы запрос, загрузивший прежний хэш пароля до смены, не вернул его в кэш после инвалидации,
+ * у каждого пользователя есть поколение: его читают до загрузки пользователя, а запись с устаревшим
+ * поколением не сохраняется.
+ * Число попаданий, промахов и размер кэша публикуются как метрики.
+ * Карта защищена {@link ReentrantLock}, а не {@code synchronized}: на Java 21 виртуальный поток,
+ * ожидающий монитор, не освобождает поток-носитель
+ */
+@Slf4j
+@Component
+public class BasicAuthCredentialCache implements MeterBinder {
+    private static final int SALT_LENGTH = 32;
+
+    private final Duration ttl;
+    private final int maxSize;
+    private final Clock clock;
+    private final byte[] salt = new byte[SALT_LENGTH];
+    private final Map<String, CachedCredential> entries;
+    private final Map<String, Long> generations = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public BasicAuthCredentialCache(@Value("${security.basic-auth.cache.ttl}") Duration ttl,
+                                    @Value("${security.basic-auth.cache.max-size}") int maxSize) {
+        this(ttl, maxSize, Clock.systemUTC());
+    }
+
+    BasicAuthCredentialCache(Duration ttl, int maxSize, Clock clock) {
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+        this.clock = clock;
+        new SecureRandom().nextBytes(salt);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCredential> eldest) {
+                return size() > BasicAuthCredentialCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Поиск ранее проверенных учетных данных
+     *
+     * @param authHeader значение заголовка Authorization
+     * @return данные пользователя или null, если записи нет или срок ее жизни истек
+     */
+    public UserDetails get(String authHeader) {
+        String key = key(authHeader);
+        Instant now = clock.instant();
+        lock.lock();
+        try {
+            CachedCredential credential = entries.get(key);
+            if (credential != null && credential.expiresAt().isAfter(now)) {
+                hits.incrementAndGet();
+                return credential.userDetails();
+            }
+            if (credential != null) {
+                entries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Текущее поколение записей пользователя, читается до загрузки пользователя из БД
+     *
+     * @param username имя пользователя
+     * @return номер поколения, увеличивается при каждой инвалидации
+     */
+    public long generation(String username) {
+        lock.lock();
+        try {
+            return generations.getOrDefault(username, 0L);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сохранение учетных данных после успешной проверки пароля.
+     * Если после чтения поколения записи пользователя были инвалидированы, данные не сохраняются
+     *
+     * @param authHeader  значение заголовка Authorization
+     * @param userDetails данные аутентифицированного пользователя
+     * @param generation  поколение, прочитанное до загрузки пользователя
+     */
+    public void put(String authHeader, UserDetails userDetails, long generation) {
+        CachedCredential credential = new CachedCredential(userDetails, clock.instant().plus(ttl));
+        String key = key(authHeader);
+        lock.lock();
+        try {
+            if (generations.getOrDefault(userDetails.getUsername(), 0L) != generation) {
+                log.debug("Skipped caching stale credentials for user: {}", userDetails.getUsername());
+                return;
+            }
+            entries.put(key, credential);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаление всех записей пользователя, например после смены пароля
+     *
+     * @param username имя пользователя
+     */
+    public void invalidate(String username) {
+        int removed;
+        lock.lock();
+        try {
+            generations.merge(username, 1L, Long::sum);
+            int before = entries.size();
+            entries.values().removeIf(credential -> credential.userDetails().getUsername().equals(username));
+            removed = before - entries.size();
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Invalidated {} cached credentials for user: {}", removed, username);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Доля запросов, обслуженных из кэша
+     *
+     * @return значение от 0 до 1
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("app.auth.credential.cache.requests", hits, AtomicLong::get)
+                .description("Basic authentication credential cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("app.auth.credential.cache.requests", misses, AtomicLong::get)
+                .description("Basic authentication credential cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("app.auth.credential.cache.size", this, BasicAuthCredentialCache::size)
+                .description("Cached Basic authentication credentials")
+                .register(registry);
+    }
+
+    private String key(String authHeader) {
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update(salt);
+        digest.update(authHeader.getBytes(StandardCharsets.UTF_8));
+        return ContentHash.toHex(digest);
+    }
+
+    private record CachedCredential(UserDetails userDetails, Instant expiresAt) {
+    }
+}
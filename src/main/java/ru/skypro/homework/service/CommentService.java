@@ -1,49 +1,74 @@
 package ru.skypro.homework.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.ImageUrls;
 import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.dto.comment.CommentDTO;
 import ru.skypro.homework.dto.comment.CommentsDTO;
 import ru.skypro.homework.dto.comment.CreateOrUpdateCommentDTO;
-import ru.skypro.homework.entity.Ad;
 import ru.skypro.homework.entity.Comment;
 import ru.skypro.homework.entity.User;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.CommentRepository;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.repository.projection.CommentView;
 
+import java.nio.charset.StandardCharsets;
 import java.time.ZoneOffset;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@Timed(value = "app.service", description = "Service method execution time")
 @RequiredArgsConstructor
 @Transactional
 public class CommentService {
+    @Value("${comments.pagination.default-limit}")
+    private int defaultPageLimit;
+
+    @Value("${comments.pagination.max-limit}")
+    private int maxPageLimit;
+
     private final CommentRepository commentRepository;
     private final AdRepository adRepository;
     private final UserRepository userRepository;
 
     /**
-     * Получение всех комментариев для объявления
+     * Получение страницы комментариев объявления, от новых к старым
      *
-     * @param adId идентификатор объявления
-     * @return DTO с количеством и списком комментариев
+     * @param adId  идентификатор объявления
+     * @param after курсор, полученный в поле {@code next} предыдущей страницы, или null для первой страницы
+     * @param limit размер страницы или null для размера по умолчанию
+     * @return DTO с количеством и списком комментариев страницы и курсором следующей страницы
+     * @throws IllegalArgumentException при некорректном курсоре
      */
-    public CommentsDTO getCommentsByAdId(Long adId) {
-        log.debug("Getting comments for ad id: {}", adId);
-        List<Comment> comments = commentRepository.findByAdIdOrderByCreatedAtDesc(adId);
-        List<CommentDTO> commentDTOS = comments.stream()
+    public CommentsDTO getCommentsByAdId(Long adId, String after, Integer limit) {
+        log.debug("Getting comments for ad id: {}, after: {}, limit: {}", adId, after, limit);
+        int pageSize = resolveLimit(limit);
+        long before = after == null || after.isBlank() ? Long.MAX_VALUE : decodeCursor(after);
+
+        List<CommentView> comments = commentRepository.findPageBefore(adId, before, Limit.of(pageSize + 1));
+        boolean hasNext = comments.size() > pageSize;
+        List<CommentView> page = hasNext ? comments.subList(0, pageSize) : comments;
+        List<CommentDTO> commentDTOS = page.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
 
         CommentsDTO response = new CommentsDTO();
         response.setCount(commentDTOS.size());
         response.setResults(commentDTOS);
+        if (hasNext) {
+            response.setNext(encodeCursor(page.get(page.size() - 1).commentNumber()));
+        }
         return response;
     }
 
@@ -52,28 +77,32 @@ public class CommentService {
      *
      * @param adId     идентификатор объявления
      * @param dto      DTO с данными комментария
-     * @param username имя пользователя-автора
+     * @param principal пользователь-автор
      * @return DTO созданного комментария или null при ошибке
      */
-    public CommentDTO addComment(Long adId, CreateOrUpdateCommentDTO dto, String username) {
-        log.debug("Adding comment to ad {} by user {}", adId, username);
-        Ad ad = adRepository.findById(adId).orElse(null);
-        User user = userRepository.findByUsername(username).orElse(null);
-
-        if (ad == null || user == null) {
-            log.warn("Failed to add comment: ad {} or user {} not found", adId, username);
+    public CommentDTO addComment(Long adId, CreateOrUpdateCommentDTO dto, AuthenticatedUser principal) {
+        log.debug("Adding comment to ad {} by user {}", adId, principal.username());
+        User user = userRepository.findById(principal.id()).orElse(null);
+        if (user == null) {
+            log.warn("Failed to add comment: user {} not found", principal.username());
             return null;
         }
 
-        Long nextCommentNumber = commentRepository.countByAdId(adId) + 1;
+        Long nextCommentNumber = adRepository.allocateCommentNumber(adId).orElse(null);
+        if (nextCommentNumber == null) {
+            log.warn("Failed to add comment: ad {} not found", adId);
+            return null;
+        }
 
         Comment comment = new Comment();
         comment.setText(dto.getText());
         comment.setUser(user);
-        comment.setAd(ad);
+        comment.setAd(adRepository.getReferenceById(adId));
         comment.setCommentNumber(nextCommentNumber);
 
-        Comment savedComment = commentRepository.save(comment);
+        // Идентификатор выдается последовательностью без вставки, а время создания заполняется при INSERT,
+        // поэтому комментарий сбрасывается в БД до построения ответа
+        Comment savedComment = commentRepository.saveAndFlush(comment);
         log.info("Comment {} added successfully to ad {}", savedComment.getCommentNumber(), adId);
         return convertToDto(savedComment);
     }
@@ -83,24 +112,24 @@ public class CommentService {
      *
      * @param adId идентификатор объявления
      * @param commentNumber номер комментария в рамках объявления
-     * @param username имя пользователя, выполняющего операцию
+     * @param principal пользователь, выполняющий операцию
      * @return true если удаление успешно, false если нет прав
      */
-    public boolean deleteCommentWithPermission(Long adId, Long commentNumber, String username) {
-        log.debug("Deleting comment {} from ad {} by user {}", commentNumber, adId, username);
+    public boolean deleteCommentWithPermission(Long adId, Long commentNumber, AuthenticatedUser principal) {
+        log.debug("Deleting comment {} from ad {} by user {}", commentNumber, adId, principal.username());
         Comment comment = commentRepository.findByAdIdAndCommentNumber(adId, commentNumber).orElse(null);
         if (comment == null) {
             log.warn("Comment {} not found for deletion in ad {}", commentNumber, adId);
             return false;
         }
 
-        if (!hasDeletePermission(comment, username)) {
-            log.warn("User {} attempted to delete comment {} from ad {} without permission", username, commentNumber, adId);
+        if (!hasDeletePermission(comment, principal)) {
+            log.warn("User {} attempted to delete comment {} from ad {} without permission", principal.username(), commentNumber, adId);
             return false;
         }
 
         commentRepository.delete(comment);
-        log.info("Comment {} from ad {} deleted successfully by user {}", commentNumber, adId, username);
+        log.info("Comment {} from ad {} deleted successfully by user {}", commentNumber, adId, principal.username());
         return true;
     }
 
@@ -110,25 +139,25 @@ public class CommentService {
      * @param adId идентификатор объявления
      * @param commentNumber номер комментария в рамках объявления
      * @param dto DTO с обновленными данными
-     * @param username имя пользователя, выполняющего операцию
+     * @param principal пользователь, выполняющий операцию
      * @return DTO обновленного комментария или null если нет прав
      */
-    public CommentDTO updateCommentWithPermission(Long adId, Long commentNumber, CreateOrUpdateCommentDTO dto, String username) {
-        log.debug("Updating comment {} from ad {} by user {}", commentNumber, adId, username);
+    public CommentDTO updateCommentWithPermission(Long adId, Long commentNumber, CreateOrUpdateCommentDTO dto, AuthenticatedUser principal) {
+        log.debug("Updating comment {} from ad {} by user {}", commentNumber, adId, principal.username());
         Comment comment = commentRepository.findByAdIdAndCommentNumber(adId, commentNumber).orElse(null);
         if (comment == null) {
             log.warn("Comment {} not found for update in ad {}", commentNumber, adId);
             return null;
         }
 
-        if (!hasUpdatePermission(comment, username)) {
-            log.warn("User {} attempted to update comment {} from ad {} without permission", username, commentNumber, adId);
+        if (!hasUpdatePermission(comment, principal)) {
+            log.warn("User {} attempted to update comment {} from ad {} without permission", principal.username(), commentNumber, adId);
             return null;
         }
 
         comment.setText(dto.getText());
         Comment updatedComment = commentRepository.save(comment);
-        log.info("Comment {} from ad {} updated successfully by user {}", commentNumber, adId, username);
+        log.info("Comment {} from ad {} updated successfully by user {}", commentNumber, adId, principal.username());
         return convertToDto(updatedComment);
     }
 
@@ -136,28 +165,72 @@ public class CommentService {
      * Проверка прав доступа для редактирования комментария
      *
      * @param comment комментарий для проверки
-     * @param username имя пользователя
+     * @param principal пользователь, выполняющий операцию
      * @return true только если пользователь является автором комментария
      */
-    private boolean hasUpdatePermission(Comment comment, String username) {
-        return comment.getUser().getUsername().equals(username);
+    private boolean hasUpdatePermission(Comment comment, AuthenticatedUser principal) {
+        return comment.getUser().getId().equals(principal.id());
     }
 
     /**
-     * Проверка прав доступа для удаления комментария
+     * Проверка прав доступа для удаления комментария.
+     * Объявление загружается, только если пользователь не автор комментария; роль администратора
+     * из аутентификации сверяется с текущей ролью пользователя, которая читается из кэша второго уровня
      *
      * @param comment комментарий для проверки
-     * @param username имя пользователя
+     * @param principal пользователь, выполняющий операцию
      * @return true если пользователь является админом, автором комментария или автором объявления
      */
-    private boolean hasDeletePermission(Comment comment, String username) {
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user == null) return false;
-        if (user.getRole() == Role.ADMIN) return true;
-
-        boolean isCommentAuthor = comment.getUser().getUsername().equals(username);
-        boolean isAdAuthor = comment.getAd().getUser().getUsername().equals(username);
-        return isCommentAuthor || isAdAuthor;
+    private boolean hasDeletePermission(Comment comment, AuthenticatedUser principal) {
+        boolean isCommentAuthor = comment.getUser().getId().equals(principal.id());
+        if (isCommentAuthor || comment.getAd().getUser().getId().equals(principal.id())) return true;
+
+        return principal.isAdmin() && userRepository.findById(principal.id())
+                .map(user -> user.getRole() == Role.ADMIN)
+                .orElse(false);
+    }
+
+    /**
+     * Ограничение запрошенного размера страницы допустимым диапазоном
+     */
+    private int resolveLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageLimit;
+        }
+        return Math.min(limit, maxPageLimit);
+    }
+
+    /**
+     * Курсор - номер последнего комментария страницы в виде непрозрачной base64url-строки
+     */
+    private static String encodeCursor(long commentNumber) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(commentNumber).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String value) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+
+    /**
+     * Преобразование проекции комментария в DTO
+     *
+     * @param comment проекция комментария с данными автора
+     * @return DTO комментария
+     */
+    private CommentDTO convertToDto(CommentView comment) {
+        CommentDTO dto = new CommentDTO();
+        dto.setId(comment.commentNumber());
+        dto.setText(comment.text());
+        dto.setAuthor(comment.authorId());
+        dto.setAuthorFirstName(comment.authorFirstName());
+        dto.setCreatedAt(comment.createdAt().toEpochSecond(ZoneOffset.UTC) * 1000);
+        dto.setAuthorImage(ImageUrls.avatarPreview(comment.authorId(), null));
+        return dto;
     }
 
     /**
@@ -174,7 +247,7 @@ public class CommentService {
         dto.setAuthorFirstName(comment.getUser().getFirstName());
         dto.setCreatedAt(comment.getCreatedAt().toEpochSecond(ZoneOffset.UTC) * 1000);
 
-        String avatarUrl = "/users/" + comment.getUser().getId() + "/avatar";
+        String avatarUrl = ImageUrls.avatarPreview(comment.getUser().getId(), null);
         dto.setAuthorImage(avatarUrl);
 
         return dto;
@@ -0,0 +1,34 @@
+package ru.skypro.homework.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Вычисление хэша содержимого загружаемых файлов.
+ * Хэш сохраняется рядом с путем к файлу и используется как ETag и версия в URL изображения
+ */
+public final class ContentHash {
+    private static final String ALGORITHM = "SHA-256";
+
+    private ContentHash() {
+    }
+
+    /**
+     * Новый дайджест для подсчета хэша по мере чтения потока
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Завершение подсчета и представление хэша в виде hex-строки
+     */
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
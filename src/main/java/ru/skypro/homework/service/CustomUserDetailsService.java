@@ -1,6 +1,5 @@
 package ru.skypro.homework.service;
 
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -24,18 +23,14 @@ public class CustomUserDetailsService implements UserDetailsService {
      * Загрузка пользователя по имени пользователя для аутентификации Spring Security
      *
      * @param username имя пользователя
-     * @return UserDetails объект для Spring Security
+     * @return UserDetails объект для Spring Security с идентификатором и ролью пользователя
      * @throws UsernameNotFoundException если пользователь не найден
      */
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public AuthenticatedUserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + username));
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .roles(user.getRole().name())
-                .build();
+        return new AuthenticatedUserDetails(user.getId(), user.getUsername(), user.getPassword(), user.getRole());
     }
 }
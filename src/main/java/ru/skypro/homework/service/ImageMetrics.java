@@ -0,0 +1,111 @@
+package ru.skypro.homework.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Метрики ввода-вывода изображений.
+ * Счетчики байтов разделены по виду файла: исходник, превью из БД или уменьшенная копия.
+ * Прочитанными считаются байты, отданные клиентам и прочитанные при обработке,
+ * записанными - сохраненные при загрузке и созданные фоновой обработкой
+ */
+@Component
+public class ImageMetrics {
+    public static final String ORIGINAL = "original";
+    public static final String PREVIEW = "preview";
+    public static final String RESIZED = "resized";
+
+    private static final List<String> VARIANTS = List.of(ORIGINAL, PREVIEW, RESIZED);
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> bytesRead;
+    private final Map<String, Counter> bytesWritten;
+    private final Timer processingSuccess;
+    private final Timer processingFailure;
+    private final Counter processingRejected;
+
+    public ImageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.bytesRead = counters(registry, "app.images.bytes.read", "Image bytes read from disk or database");
+        this.bytesWritten = counters(registry, "app.images.bytes.written", "Image bytes written to disk or database");
+        this.processingSuccess = processingTimer(registry, "success");
+        this.processingFailure = processingTimer(registry, "failure");
+        this.processingRejected = Counter.builder("app.images.processing.rejected")
+                .description("Image processing tasks rejected because the queue was full")
+                .register(registry);
+    }
+
+    /**
+     * Учет прочитанных байтов изображения
+     *
+     * @param variant вид файла: {@link #ORIGINAL}, {@link #PREVIEW} или {@link #RESIZED}
+     * @param bytes   количество байтов
+     */
+    public void recordRead(String variant, long bytes) {
+        bytesRead.get(variant).increment(bytes);
+    }
+
+    /**
+     * Учет записанных байтов изображения
+     *
+     * @param variant вид файла: {@link #ORIGINAL}, {@link #PREVIEW} или {@link #RESIZED}
+     * @param bytes   количество байтов
+     */
+    public void recordWritten(String variant, long bytes) {
+        bytesWritten.get(variant).increment(bytes);
+    }
+
+    /**
+     * Учет длительности фоновой обработки изображения со всеми повторными попытками
+     *
+     * @param success  true если обработка завершилась без ошибки
+     * @param duration длительность в наносекундах
+     */
+    public void recordProcessing(boolean success, long duration) {
+        (success ? processingSuccess : processingFailure).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учет задачи обработки, отклоненной из-за заполненной очереди
+     */
+    public void recordProcessingRejected() {
+        processingRejected.increment();
+    }
+
+    /**
+     * Регистрация метрик пула потоков обработки: размер очереди, активные и завершенные задачи
+     *
+     * @param executor пул потоков
+     * @param name     имя пула в теге метрик
+     */
+    public void monitor(ThreadPoolExecutor executor, String name) {
+        new ExecutorServiceMetrics(executor, name, List.of()).bindTo(registry);
+    }
+
+    private static Map<String, Counter> counters(MeterRegistry registry, String name, String description) {
+        return VARIANTS.stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                variant -> Counter.builder(name)
+                        .description(description)
+                        .baseUnit(BaseUnits.BYTES)
+                        .tag("variant", variant)
+                        .register(registry)));
+    }
+
+    private static Timer processingTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("app.images.processing")
+                .description("Background image processing time including retries")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
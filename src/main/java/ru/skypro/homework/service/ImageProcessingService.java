@@ -0,0 +1,354 @@
+package ru.skypro.homework.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.skypro.homework.entity.AdPreview;
+import ru.skypro.homework.entity.AvatarPreview;
+import ru.skypro.homework.repository.AdPreviewRepository;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.AvatarPreviewRepository;
+import ru.skypro.homework.repository.AvatarRepository;
+import ru.skypro.homework.repository.projection.ImageFileView;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Фоновая обработка загруженных изображений.
+ * Превью генерируется пулом потоков фиксированного размера после фиксации транзакции загрузки,
+ * поэтому запрос не держит соединение с БД во время декодирования и масштабирования.
+ * Очередь задач ограничена: при ее переполнении задача отклоняется и учитывается метрикой, а по ссылке
+ * превью отдается исходное изображение. Выполнять задачу в вызывающем потоке нельзя: событие обрабатывается
+ * после фиксации, когда поток запроса еще держит соединение, а сохранение превью присоединилось бы
+ * к уже завершенной транзакции и было бы потеряно.
+ * Неудачная обработка повторяется с линейно растущей задержкой.
+ * Исходник декодируется один раз: из него строится превью для БД и набор копий разной ширины
+ * в {@link ImageVariantStorage}. Декодирование идет с прореживанием строк и столбцов до ширины
+ * наибольшей нужной копии и ограничено по числу пикселей, поэтому память не зависит от разрешения исходника.
+ * Пул остается на платформенных потоках и при включенных виртуальных потоках: обработка нагружает процессор,
+ * а число одновременно декодируемых растров должно оставаться ограниченным
+ */
+@Slf4j
+@Service
+public class ImageProcessingService {
+    private static final int PREVIEW_WIDTH = 100;
+
+    private final AdRepository adRepository;
+    private final AdPreviewRepository adPreviewRepository;
+    private final AvatarRepository avatarRepository;
+    private final AvatarPreviewRepository avatarPreviewRepository;
+    private final ImageVariantStorage variantStorage;
+    private final ImageMetrics imageMetrics;
+    private final long maxDecodedPixels;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final ThreadPoolExecutor executor;
+
+    public ImageProcessingService(AdRepository adRepository,
+                                  AdPreviewRepository adPreviewRepository,
+                                  AvatarRepository avatarRepository,
+                                  AvatarPreviewRepository avatarPreviewRepository,
+                                  ImageVariantStorage variantStorage,
+                                  ImageMetrics imageMetrics,
+                                  @Value("${images.processing.threads}") int threads,
+                                  @Value("${images.processing.queue-capacity}") int queueCapacity,
+                                  @Value("${images.processing.max-attempts}") int maxAttempts,
+                                  @Value("${images.processing.retry-delay}") Duration retryDelay,
+                                  @Value("${images.processing.max-decoded-pixels}") long maxDecodedPixels) {
+        this.adRepository = adRepository;
+        this.adPreviewRepository = adPreviewRepository;
+        this.avatarRepository = avatarRepository;
+        this.avatarPreviewRepository = avatarPreviewRepository;
+        this.variantStorage = variantStorage;
+        this.imageMetrics = imageMetrics;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.maxDecodedPixels = maxDecodedPixels;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-processing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        imageMetrics.monitor(executor, "image-processing");
+    }
+
+    /**
+     * Постановка изображения в очередь обработки после фиксации транзакции загрузки
+     *
+     * @param event событие загрузки изображения
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageUploaded(ImageUploadedEvent event) {
+        log.debug("Queueing {} image {} for processing, queue size: {}",
+                event.owner(), event.id(), executor.getQueue().size());
+        try {
+            executor.execute(() -> process(event));
+        } catch (RejectedExecutionException e) {
+            imageMetrics.recordProcessingRejected();
+            log.warn("Processing queue is full, {} image {} will be served without preview", event.owner(), event.id());
+        }
+    }
+
+    /**
+     * Генерация и сохранение превью с повторными попытками
+     *
+     * @param event событие загрузки изображения
+     */
+    void process(ImageUploadedEvent event) {
+        long start = System.nanoTime();
+        imageMetrics.recordProcessing(processWithRetries(event), System.nanoTime() - start);
+    }
+
+    private boolean processWithRetries(ImageUploadedEvent event) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                processOnce(event);
+                return true;
+            } catch (Exception e) {
+                if (attempt == maxAttempts) {
+                    log.error("Failed to process {} image {} after {} attempts", event.owner(), event.id(), attempt, e);
+                    return false;
+                }
+                log.warn("Failed to process {} image {} (attempt {}): {}", event.owner(), event.id(), attempt, e.getMessage());
+                if (!sleep(retryDelay.multipliedBy(attempt))) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void processOnce(ImageUploadedEvent event) throws IOException {
+        if (!isCurrent(event)) {
+            log.debug("{} image {} was replaced, skipping", event.owner(), event.id());
+            return;
+        }
+
+        Path filePath = Path.of(event.filePath());
+        String extension = getExtension(filePath);
+        boolean variantsNeeded = event.fileHash() != null
+                && ImageVariantStorage.isValidExtension(extension)
+                && !variantStorage.isReady(event.fileHash(), extension);
+        DecodedImage decoded = decode(filePath, event.mediaType(),
+                sourceWidth -> requiredWidth(sourceWidth, variantsNeeded), maxDecodedPixels);
+        if (decoded == null) {
+            log.warn("Unsupported image format for {} image {}", event.owner(), event.id());
+            return;
+        }
+        imageMetrics.recordRead(ImageMetrics.ORIGINAL, Files.size(filePath));
+        if (variantsNeeded) {
+            storeVariants(event.fileHash(), extension, decoded);
+        }
+        byte[] preview = encode(resize(decoded.image(), PREVIEW_WIDTH), extension);
+
+        if (!isCurrent(event)) {
+            log.debug("{} image {} was replaced during processing, skipping", event.owner(), event.id());
+            return;
+        }
+        switch (event.owner()) {
+            case AD -> adPreviewRepository.save(new AdPreview(event.id(), preview));
+            case AVATAR -> avatarPreviewRepository.save(new AvatarPreview(event.id(), preview));
+        }
+        imageMetrics.recordWritten(ImageMetrics.PREVIEW, preview.length);
+        log.debug("Preview stored for {} image {}", event.owner(), event.id());
+    }
+
+    /**
+     * Проверка, что изображение не было заменено или удалено после загрузки
+     */
+    private boolean isCurrent(ImageUploadedEvent event) {
+        Optional<ImageFileView> image = switch (event.owner()) {
+            case AD -> adRepository.findImageById(event.id());
+            case AVATAR -> avatarRepository.findImageById(event.id());
+        };
+        return image.map(view -> Objects.equals(view.fileHash(), event.fileHash())).orElse(false);
+    }
+
+    /**
+     * Сохранение копий всех настроенных значений ширины, меньших ширины исходника.
+     * Копии с тем же хэшем уже могли быть созданы для одинаковой загрузки
+     */
+    private void storeVariants(String fileHash, String extension, DecodedImage decoded) throws IOException {
+        Map<Integer, byte[]> variants = new LinkedHashMap<>();
+        long bytes = 0;
+        for (int width : variantStorage.getWidths()) {
+            if (width < decoded.sourceWidth()) {
+                byte[] variant = encode(resize(decoded.image(), width), extension);
+                variants.put(width, variant);
+                bytes += variant.length;
+            }
+        }
+        variantStorage.store(fileHash, extension, variants);
+        imageMetrics.recordWritten(ImageMetrics.RESIZED, bytes);
+    }
+
+    /**
+     * Наибольшая ширина, которая понадобится из декодированного изображения
+     */
+    private int requiredWidth(int sourceWidth, boolean variantsNeeded) {
+        int required = PREVIEW_WIDTH;
+        if (variantsNeeded) {
+            for (int width : variantStorage.getWidths()) {
+                if (width < sourceWidth) {
+                    required = Math.max(required, width);
+                }
+            }
+        }
+        return required;
+    }
+
+    /**
+     * Декодирование изображения с прореживанием.
+     * Размеры читаются из заголовка, после чего декодер пропускает строки и столбцы так,
+     * чтобы результат был не уже требуемой ширины и не превышал лимит числа пикселей
+     *
+     * @param filePath         путь к файлу изображения
+     * @param requiredWidth    требуемая ширина в зависимости от ширины исходника
+     * @param maxDecodedPixels максимальное число пикселей декодированного изображения
+     * @return декодированное изображение или null, если формат не поддерживается
+     * @throws IOException при ошибках чтения изображения
+     */
+    static DecodedImage decode(Path filePath, IntUnaryOperator requiredWidth, long maxDecodedPixels) throws IOException {
+        return decode(filePath, null, requiredWidth, maxDecodedPixels);
+    }
+
+    /**
+     * Декодирование изображения известного формата.
+     * Формат определен по сигнатуре при загрузке, поэтому декодер выбирается по типу содержимого
+     * без пробного чтения заголовка каждым зарегистрированным декодером
+     *
+     * @param mediaType тип содержимого или null, чтобы определить декодер по заголовку файла
+     */
+    static DecodedImage decode(Path filePath, String mediaType, IntUnaryOperator requiredWidth,
+                               long maxDecodedPixels) throws IOException {
+        if (!Files.isReadable(filePath)) {
+            throw new NoSuchFileException(filePath.toString());
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(filePath.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : readers(input, mediaType);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int step = subsampling(width, height, requiredWidth.applyAsInt(width), maxDecodedPixels);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return new DecodedImage(reader.read(0, param), width);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static Iterator<ImageReader> readers(ImageInputStream input, String mediaType) throws IOException {
+        if (mediaType != null) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByMIMEType(mediaType);
+            if (readers.hasNext()) {
+                return readers;
+            }
+        }
+        return ImageIO.getImageReaders(input);
+    }
+
+    /**
+     * Шаг прореживания: наибольший, при котором ширина результата не меньше требуемой,
+     * и увеличенный, пока число пикселей превышает лимит
+     */
+    static int subsampling(int width, int height, int requiredWidth, long maxDecodedPixels) {
+        int step = Math.max(1, width / Math.max(1, requiredWidth));
+        while (decodedPixels(width, height, step) > maxDecodedPixels && step < Math.max(width, height)) {
+            step++;
+        }
+        return step;
+    }
+
+    private static long decodedPixels(int width, int height, int step) {
+        return (long) ((width + step - 1) / step) * ((height + step - 1) / step);
+    }
+
+    static BufferedImage resize(BufferedImage image, int width) {
+        int height = Math.max(1, image.getHeight() * width / image.getWidth());
+        int type = image.getType() == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_RGB : image.getType();
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return resized;
+    }
+
+    static byte[] encode(BufferedImage image, String extension) throws IOException {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            ImageIO.write(image, extension, baos);
+            return baos.toByteArray();
+        }
+    }
+
+    private static String getExtension(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        return fileName.substring(fileName.lastIndexOf('.') + 1);
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Декодированное изображение
+     *
+     * @param image       растр после прореживания
+     * @param sourceWidth ширина исходного изображения
+     */
+    record DecodedImage(BufferedImage image, int sourceWidth) {
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Image processing did not finish in time, {} tasks dropped", executor.shutdownNow().size());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package ru.skypro.homework.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Однопроходное сохранение загружаемого изображения.
+ * Поток multipart читается один раз: первые {@link #HEADER_SIZE} байт буферизуются, по сигнатуре
+ * определяется формат и проверяется заголовок, затем эти же байты и остаток потока пишутся в файл
+ * с одновременным подсчетом SHA-256 и размера. Файл неподдерживаемого формата, с поврежденным заголовком
+ * или заявленного размера больше {@code images.upload.max-size} отклоняется до создания файла.
+ * Данные пишутся во временный файл рядом с целевым и переносятся на его место только после успешной записи,
+ * поэтому существующий файл по целевому пути не обрезается и не теряется при ошибке; если фактический размер
+ * превышает лимит, запись прерывается, как только лимит пройден, и временный файл удаляется.
+ * Формат определяется по содержимому, поэтому расширение файла и тип содержимого не зависят от имени файла
+ * и заголовка {@code Content-Type} клиента
+ */
+@Slf4j
+@Component
+public class ImageUploadWriter {
+    static final int HEADER_SIZE = 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ImageMetrics imageMetrics;
+    private final long maxSize;
+
+    public ImageUploadWriter(ImageMetrics imageMetrics,
+                             @Value("${images.upload.max-size}") DataSize maxSize) {
+        this.imageMetrics = imageMetrics;
+        this.maxSize = maxSize.toBytes();
+    }
+
+    /**
+     * Проверка и запись загруженного изображения
+     *
+     * @param file   загруженный файл
+     * @param target путь файла в зависимости от определенного формата
+     * @return размер, хэш и формат записанного файла
+     * @throws IllegalArgumentException если формат не поддерживается, заголовок поврежден или размер превышает лимит
+     * @throws IOException              при ошибках чтения загрузки или записи файла
+     */
+    public StoredImage store(MultipartFile file, Function<Format, Path> target) throws IOException {
+        if (file.getSize() > maxSize) {
+            throw new IllegalArgumentException("File is too big");
+        }
+        try (InputStream input = file.getInputStream()) {
+            byte[] header = input.readNBytes(HEADER_SIZE);
+            Format format = Format.detect(header);
+            if (format == null) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            if (!format.hasValidHeader(header)) {
+                throw new IllegalArgumentException("Corrupted " + format + " header");
+            }
+
+            Path path = target.apply(format);
+            Files.createDirectories(path.getParent());
+            MessageDigest digest = ContentHash.newDigest();
+            Path temp = Files.createTempFile(path.getParent(), "." + path.getFileName(), ".part");
+            long size;
+            try {
+                try (OutputStream output = Files.newOutputStream(temp)) {
+                    size = copy(header, input, output, digest);
+                }
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            imageMetrics.recordWritten(ImageMetrics.ORIGINAL, size);
+            log.debug("Stored {} image of {} bytes to {}", format, size, path);
+            return new StoredImage(path, size, ContentHash.toHex(digest), format);
+        }
+    }
+
+    /**
+     * Запись уже прочитанного заголовка и остатка потока с подсчетом хэша и контролем размера
+     *
+     * @return число записанных байтов
+     */
+    private long copy(byte[] header, InputStream input, OutputStream output, MessageDigest digest) throws IOException {
+        digest.update(header);
+        output.write(header);
+        long size = header.length;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            size += read;
+            if (size > maxSize) {
+                throw new IllegalArgumentException("File is too big");
+            }
+            digest.update(buffer, 0, read);
+            output.write(buffer, 0, read);
+        }
+        return size;
+    }
+
+    /**
+     * Поддерживаемые форматы изображений, которые умеет декодировать фоновая обработка
+     */
+    public enum Format {
+        JPEG("image/jpeg", "jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+        PNG("image/png", "png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+        GIF("image/gif", "gif", new byte[]{'G', 'I', 'F', '8'}),
+        BMP("image/bmp", "bmp", new byte[]{'B', 'M'});
+
+        private static final int IHDR = 0x49484452;
+
+        private final String mediaType;
+        private final String extension;
+        private final byte[] signature;
+
+        Format(String mediaType, String extension, byte[] signature) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+            this.signature = signature;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        /**
+         * Проверка заголовка после сигнатуры. Превью строится в фоне, поэтому это единственная проверка
+         * содержимого до ответа клиенту: у PNG, GIF и BMP размеры изображения находятся в первых байтах
+         * и должны быть положительными. У JPEG размеры могут находиться за метаданными EXIF
+         * далеко от начала файла, поэтому для него проверяется только сигнатура
+         *
+         * @param header первые байты файла с сигнатурой этого формата
+         * @return true если заголовок структурно корректен
+         */
+        boolean hasValidHeader(byte[] header) {
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            return switch (this) {
+                case JPEG -> true;
+                case PNG -> header.length >= 24
+                        && buffer.getInt(12) == IHDR
+                        && buffer.getInt(16) > 0
+                        && buffer.getInt(20) > 0;
+                case GIF -> header.length >= 10
+                        && buffer.order(ByteOrder.LITTLE_ENDIAN).getShort(6) != 0
+                        && buffer.order(ByteOrder.LITTLE_ENDIAN).getShort(8) != 0;
+                case BMP -> header.length >= 26
+                        && buffer.order(ByteOrder.LITTLE_ENDIAN).getInt(18) > 0
+                        && buffer.order(ByteOrder.LITTLE_ENDIAN).getInt(22) != 0;
+            };
+        }
+
+        /**
+         * Определение формата по сигнатуре в начале файла
+         *
+         * @param header первые байты файла
+         * @return формат или null, если сигнатура не распознана
+         */
+        static Format detect(byte[] header) {
+            for (Format format : values()) {
+                if (header.length >= format.signature.length
+                        && Arrays.equals(header, 0, format.signature.length, format.signature, 0, format.signature.length)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Записанное изображение
+     *
+     * @param path     путь к файлу
+     * @param size     размер в байтах
+     * @param fileHash SHA-256 содержимого в hex
+     * @param format   формат, определенный по содержимому
+     */
+    public record StoredImage(Path path, long size, String fileHash, Format format) {
+    }
+}
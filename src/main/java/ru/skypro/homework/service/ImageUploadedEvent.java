@@ -0,0 +1,23 @@
+package ru.skypro.homework.service;
+
+/**
+ * Событие загрузки нового файла изображения.
+ * Обрабатывается после фиксации транзакции, в которой файл был привязан к объявлению или аватару
+ *
+ * @param owner     тип владельца изображения
+ * @param id        идентификатор объявления или аватара
+ * @param filePath  путь к исходному файлу
+ * @param fileHash  хэш содержимого файла, по которому проверяется, что изображение не было заменено
+ * @param mediaType тип содержимого, определенный по сигнатуре при загрузке, или null, если он неизвестен
+ */
+public record ImageUploadedEvent(Owner owner, Long id, String filePath, String fileHash, String mediaType) {
+
+    public ImageUploadedEvent(Owner owner, Long id, String filePath, String fileHash) {
+        this(owner, id, filePath, fileHash, null);
+    }
+
+    public enum Owner {
+        AD,
+        AVATAR
+    }
+}
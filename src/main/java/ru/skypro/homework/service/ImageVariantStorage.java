@@ -0,0 +1,153 @@
+package ru.skypro.homework.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Хранилище уменьшенных копий изображений разной ширины.
+ * Файлы раскладываются по хэшу содержимого исходника и расширению:
+ * {@code <каталог>/<ab>/<хэш>.<расширение>/<ширина>.<расширение>}, поэтому одинаковые загрузки используют
+ * одни и те же копии, а набор копий никогда не меняется. Каталог набора появляется атомарно после записи всех копий:
+ * его наличие означает, что копии в этом формате готовы. Одинаковое содержимое может быть загружено с разными
+ * расширениями, поэтому готовность определяется парой хэша и расширения
+ */
+@Slf4j
+@Component
+public class ImageVariantStorage {
+    private final Path baseDir;
+    private final List<Integer> widths;
+
+    public ImageVariantStorage(@Value("${path.to.variants.folder}") String variantsDir,
+                               @Value("${images.variants.widths}") List<Integer> widths) {
+        this.baseDir = Path.of(variantsDir).toAbsolutePath().normalize();
+        this.widths = widths.stream().filter(width -> width > 0).distinct().sorted().toList();
+    }
+
+    /**
+     * Настроенные значения ширины копий по возрастанию
+     */
+    public List<Integer> getWidths() {
+        return widths;
+    }
+
+    /**
+     * Проверка, что копии изображения с заданным расширением уже сгенерированы
+     *
+     * @param fileHash  хэш содержимого исходного файла
+     * @param extension расширение исходного файла
+     * @return true если каталог копий существует
+     */
+    public boolean isReady(String fileHash, String extension) {
+        return fileHash != null && isValidExtension(extension) && Files.isDirectory(variantsDir(fileHash, extension));
+    }
+
+    /**
+     * Поиск наименьшей копии не меньше запрошенной ширины
+     *
+     * @param fileHash       хэш содержимого исходного файла
+     * @param extension      расширение исходного файла
+     * @param requestedWidth запрошенная ширина
+     * @return найденная копия или пустой Optional, если подходит только исходный файл
+     */
+    public Optional<ImageVariant> find(String fileHash, String extension, int requestedWidth) {
+        if (fileHash == null || !isValidExtension(extension)) {
+            return Optional.empty();
+        }
+        for (int width : widths) {
+            if (width < requestedWidth) {
+                continue;
+            }
+            Path path = variantPath(fileHash, width, extension);
+            if (Files.isReadable(path)) {
+                return Optional.of(new ImageVariant(width, path));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Атомарное сохранение набора копий изображения
+     *
+     * @param fileHash  хэш содержимого исходного файла
+     * @param extension расширение файлов копий
+     * @param variants  содержимое копий по ширине
+     * @throws IOException при ошибках записи файлов
+     */
+    public void store(String fileHash, String extension, Map<Integer, byte[]> variants) throws IOException {
+        Path target = variantsDir(fileHash, extension);
+        Files.createDirectories(target.getParent());
+        Path staging = Files.createDirectory(target.resolveSibling(fileHash + "." + UUID.randomUUID() + ".tmp"));
+        try {
+            for (Map.Entry<Integer, byte[]> variant : variants.entrySet()) {
+                Files.write(staging.resolve(fileName(variant.getKey(), extension)), variant.getValue());
+            }
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Stored {} variants for image {}", variants.size(), fileHash);
+        } catch (FileSystemException e) {
+            // ОС сообщает о занятом каталоге по-разному, поэтому проверяется сам результат
+            if (!Files.isDirectory(target)) {
+                throw e;
+            }
+            log.debug("Variants for image {} were stored concurrently", fileHash);
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+
+    /**
+     * Расширение берется из имени загруженного файла, поэтому в путь попадают только буквы и цифры
+     */
+    public static boolean isValidExtension(String extension) {
+        return extension != null && extension.matches("[A-Za-z0-9]{1,8}");
+    }
+
+    private Path variantPath(String fileHash, int width, String extension) {
+        return variantsDir(fileHash, extension).resolve(fileName(width, extension));
+    }
+
+    private Path variantsDir(String fileHash, String extension) {
+        if (!fileHash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid content hash");
+        }
+        if (!isValidExtension(extension)) {
+            throw new IllegalArgumentException("Invalid file extension");
+        }
+        return baseDir.resolve(fileHash.substring(0, 2)).resolve(fileHash + "." + extension.toLowerCase());
+    }
+
+    private static String fileName(int width, String extension) {
+        if (!isValidExtension(extension)) {
+            throw new IllegalArgumentException("Invalid file extension");
+        }
+        return width + "." + extension.toLowerCase();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    /**
+     * Найденная копия изображения
+     *
+     * @param width ширина копии
+     * @param path  путь к файлу копии
+     */
+    public record ImageVariant(int width, Path path) {
+    }
+}
@@ -0,0 +1,244 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Сервис выпуска и проверки подписанных токенов доступа.
+ * Токен состоит из полезной нагрузки в JSON и подписи HMAC-SHA256, закодированных base64url.
+ * Токен доступа содержит имя пользователя и роли и проверяется без обращения к БД и сессии.
+ * Токен обновления дополнительно содержит отпечаток хэша пароля, поэтому после смены пароля
+ * он перестает приниматься
+ */
+@Slf4j
+@Service
+public class TokenService {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String TYPE_ACCESS = "access";
+    private static final String TYPE_REFRESH = "refresh";
+    private static final int GENERATED_SECRET_LENGTH = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final ObjectMapper objectMapper;
+    private final CustomUserDetailsService userDetailsService;
+    private final Clock clock;
+
+    @Autowired
+    public TokenService(@Value("${security.token.secret}") String secret,
+                        @Value("${security.token.access-ttl}") Duration accessTtl,
+                        @Value("${security.token.refresh-ttl}") Duration refreshTtl,
+                        ObjectMapper objectMapper,
+                        CustomUserDetailsService userDetailsService) {
+        this(secret, accessTtl, refreshTtl, objectMapper, userDetailsService, Clock.systemUTC());
+    }
+
+    TokenService(String secret,
+                 Duration accessTtl,
+                 Duration refreshTtl,
+                 ObjectMapper objectMapper,
+                 CustomUserDetailsService userDetailsService,
+                 Clock clock) {
+        this.key = new SecretKeySpec(secretBytes(secret), ALGORITHM);
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.objectMapper = objectMapper;
+        this.userDetailsService = userDetailsService;
+        this.clock = clock;
+    }
+
+    /**
+     * Выпуск пары токенов для пользователя, прошедшего проверку пароля.
+     * Данные пользователя перечитываются, так как в результате аутентификации хэш пароля уже стерт
+     *
+     * @param username имя пользователя
+     * @return токены доступа и обновления
+     */
+    public IssuedTokens issue(String username) {
+        return issue(userDetailsService.loadUserByUsername(username));
+    }
+
+    private IssuedTokens issue(UserDetails userDetails) {
+        long now = clock.instant().getEpochSecond();
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+
+        String accessToken = sign(new Claims(TYPE_ACCESS, userDetails.getUsername(), userId(userDetails), roles,
+                now + accessTtl.toSeconds(), null));
+        String refreshToken = sign(new Claims(TYPE_REFRESH, userDetails.getUsername(), null, null,
+                now + refreshTtl.toSeconds(), passwordFingerprint(userDetails.getPassword())));
+
+        return new IssuedTokens(accessToken, refreshToken, accessTtl.toSeconds());
+    }
+
+    /**
+     * Проверка токена доступа без обращения к БД
+     *
+     * @param token токен из заголовка Authorization
+     * @return аутентификация или null, если токен недействителен или истек
+     */
+    public Authentication authenticate(String token) {
+        Claims claims = verify(token, TYPE_ACCESS);
+        if (claims == null) {
+            return null;
+        }
+
+        List<SimpleGrantedAuthority> authorities = claims.roles() == null
+                ? List.of()
+                : claims.roles().stream().map(SimpleGrantedAuthority::new).toList();
+        UserDetails principal;
+        if (claims.uid() != null) {
+            principal = new AuthenticatedUserDetails(claims.uid(), claims.sub(), "",
+                    AuthenticatedUserDetails.roleOf(authorities));
+        } else {
+            // Токен выпущен до появления идентификатора пользователя в утверждениях
+            principal = User.withUsername(claims.sub())
+                    .password("")
+                    .authorities(authorities)
+                    .build();
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+    }
+
+    /**
+     * Выпуск новой пары токенов по токену обновления.
+     * Пользователь перечитывается из БД, чтобы учесть смену пароля и ролей
+     *
+     * @param refreshToken токен обновления
+     * @return новые токены или null, если токен недействителен, истек или пароль был изменен
+     */
+    public IssuedTokens refresh(String refreshToken) {
+        Claims claims = verify(refreshToken, TYPE_REFRESH);
+        if (claims == null) {
+            return null;
+        }
+
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(claims.sub());
+        } catch (UsernameNotFoundException e) {
+            log.warn("Refresh token for unknown user: {}", claims.sub());
+            return null;
+        }
+
+        if (!MessageDigest.isEqual(
+                passwordFingerprint(userDetails.getPassword()).getBytes(StandardCharsets.US_ASCII),
+                String.valueOf(claims.pwd()).getBytes(StandardCharsets.US_ASCII))) {
+            log.warn("Refresh token for user {} was issued before password change", claims.sub());
+            return null;
+        }
+        return issue(userDetails);
+    }
+
+    private Claims verify(String token, String expectedType) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(hmac(payload), signature)) {
+                log.debug("Token signature mismatch");
+                return null;
+            }
+
+            Claims claims = objectMapper.readValue(payload, Claims.class);
+            if (!expectedType.equals(claims.typ())) {
+                log.debug("Unexpected token type: {}", claims.typ());
+                return null;
+            }
+            if (claims.exp() <= clock.instant().getEpochSecond()) {
+                log.debug("Token expired for user: {}", claims.sub());
+                return null;
+            }
+            return claims;
+        } catch (IllegalArgumentException | IOException e) {
+            log.debug("Malformed token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String sign(Claims claims) {
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(claims);
+            return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(hmac(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize token claims", e);
+        }
+    }
+
+    private byte[] hmac(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    private String passwordFingerprint(String passwordHash) {
+        return ENCODER.encodeToString(hmac(String.valueOf(passwordHash).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] secretBytes(String secret) {
+        if (secret != null && !secret.isBlank()) {
+            return Base64.getDecoder().decode(secret.trim());
+        }
+        log.warn("security.token.secret is not set, using a random key: tokens will not be accepted "
+                + "by other instances or after restart");
+        byte[] generated = new byte[GENERATED_SECRET_LENGTH];
+        new SecureRandom().nextBytes(generated);
+        return generated;
+    }
+
+    /**
+     * Выпущенные токены
+     *
+     * @param accessToken  токен доступа
+     * @param refreshToken токен обновления
+     * @param expiresIn    время жизни токена доступа в секундах
+     */
+    public record IssuedTokens(String accessToken, String refreshToken, long expiresIn) {
+    }
+
+    private static Long userId(UserDetails userDetails) {
+        return userDetails instanceof AuthenticatedUserDetails details ? details.getId() : null;
+    }
+
+    private record Claims(String typ, String sub, Long uid, List<String> roles, long exp, String pwd) {
+    }
+}
@@ -1,30 +1,35 @@
 package ru.skypro.homework.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.homework.config.CacheConfig;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.ImageUrls;
 import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.dto.user.UserProfileResponse;
 import ru.skypro.homework.dto.user.UserProfileUpdateRequest;
 import ru.skypro.homework.entity.Ad;
 import ru.skypro.homework.entity.Avatar;
 import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.AvatarPreviewRepository;
 import ru.skypro.homework.repository.AvatarRepository;
 import ru.skypro.homework.repository.UserRepository;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.*;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Objects;
-
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import java.time.LocalDateTime;
 
 /**
  * Сервис для работы с пользователями.
@@ -32,6 +37,7 @@ import static java.nio.file.StandardOpenOption.CREATE_NEW;
  */
 @Slf4j
 @Service
+@Timed(value = "app.service", description = "Service method execution time")
 @Transactional
 @RequiredArgsConstructor
 public class UserService {
@@ -40,15 +46,23 @@ public class UserService {
     private String avatarsDir;
 
     private final UserRepository userRepository;
+    private final AdRepository adRepository;
     private final AvatarRepository avatarRepository;
+    private final AvatarPreviewRepository avatarPreviewRepository;
     private final PasswordEncoder passwordEncoder;
+    private final BasicAuthCredentialCache credentialCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageUploadWriter imageUploadWriter;
+    private final CacheManager cacheManager;
 
     /**
-     * Получение профиля пользователя
+     * Получение профиля пользователя.
+     * Результат кэшируется до изменения профиля или аватара
      *
      * @param username имя пользователя
      * @return DTO профиля пользователя или null если пользователь не найден
      */
+    @Cacheable(cacheNames = CacheConfig.USER_PROFILES, unless = "#result == null")
     public UserProfileResponse getUserProfile(String username) {
         User user = userRepository.findByUsername(username).orElse(null);
         if (user == null) {
@@ -64,7 +78,7 @@ public class UserService {
 
         Avatar avatar = findAvatar(username);
         if (avatar != null) {
-            profile.setImage("/users/" + user.getId() + "/avatar");
+            profile.setImage(ImageUrls.avatar(user.getId(), avatar.getFileHash()));
         }
         return profile;
     }
@@ -76,6 +90,7 @@ public class UserService {
      * @param request  DTO с обновленными данными
      * @return true если обновление успешно, false если пользователь не найден
      */
+    @CacheEvict(cacheNames = CacheConfig.USER_PROFILES, key = "#username")
     public UserProfileResponse updateUserProfile(String username, UserProfileUpdateRequest request) {
         User user = userRepository.findByUsername(username).orElse(null);
         if (user == null) {
@@ -88,56 +103,79 @@ public class UserService {
 
         if (request.getRole() != null) {
             try {
-                user.setRole(Role.valueOf(request.getRole()));
+                Role role = Role.valueOf(request.getRole());
+                if (role != user.getRole()) {
+                    user.setRole(role);
+                    // Роль хранится в кэшированной аутентификации и используется при проверке прав
+                    AfterTransaction.afterCommit(() -> credentialCache.invalidate(username));
+                }
             } catch (IllegalArgumentException e) {
                 log.warn("Invalid role provided: {}", request.getRole());
             }
         }
 
         userRepository.save(user);
+        evictAdDetails(username);
 
         return getUserProfile(username);
     }
 
     /**
-     * Проверка прав доступа к объявлению
+     * Удаление из кэша карточек объявлений пользователя, содержащих его имя и телефон
      *
-     * @param ad       сущность объявления
      * @param username имя пользователя
-     * @return true если пользователь является админом или автором объявления
      */
-    public boolean hasPermission(Ad ad, String username) {
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user == null) {
-            return false;
+    private void evictAdDetails(String username) {
+        Cache adDetails = cacheManager.getCache(CacheConfig.AD_DETAILS);
+        if (adDetails != null) {
+            adRepository.findIdsByUsername(username).forEach(adDetails::evict);
         }
+    }
 
-        if (user.getRole() == Role.ADMIN) {
-            return true;
-        }
+    /**
+     * Проверка прав доступа к объявлению.
+     * Авторство проверяется по идентификатору из аутентификации без обращения к БД,
+     * роль администратора подтверждается через {@link #isAdmin(AuthenticatedUser)}
+     *
+     * @param ad        сущность объявления
+     * @param principal пользователь, выполняющий операцию
+     * @return true если пользователь является админом или автором объявления
+     */
+    public boolean hasPermission(Ad ad, AuthenticatedUser principal) {
+        return ad.getUser().getId().equals(principal.id()) || isAdmin(principal);
+    }
 
-        return ad.getUser().getUsername().equals(username);
+    /**
+     * Проверка, что пользователь является администратором на момент запроса.
+     * Роль в сессии или токене доступа фиксируется при входе и не меняется при понижении пользователя,
+     * поэтому для администратора она сверяется с текущей ролью в БД. Пользователь читается по идентификатору
+     * из кэша второго уровня, и запрос к БД выполняется только после изменения пользователя
+     *
+     * @param principal пользователь, выполняющий операцию
+     * @return true если и аутентификация, и текущая запись пользователя имеют роль администратора
+     */
+    public boolean isAdmin(AuthenticatedUser principal) {
+        return principal.isAdmin() && userRepository.findById(principal.id())
+                .map(user -> user.getRole() == Role.ADMIN)
+                .orElse(false);
     }
 
     /**
      * Загрузка аватара пользователя
      *
-     * @param username имя пользователя
-     * @param file     файл аватара
+     * @param principal пользователь, загружающий аватар
+     * @param file      файл аватара
      * @return true если загрузка успешна, false если пользователь не найден
      * @throws IOException              при ошибках работы с файловой системой
-     * @throws IllegalArgumentException если файл слишком большой
+     * @throws IllegalArgumentException если файл не является изображением поддерживаемого формата или слишком большой
      */
-    public boolean uploadAvatar(String username, MultipartFile file) throws IOException {
-        User user = userRepository.findByUsername(username).orElse(null);
+    @CacheEvict(cacheNames = CacheConfig.USER_PROFILES, key = "#principal.username()")
+    public boolean uploadAvatar(AuthenticatedUser principal, MultipartFile file) throws IOException {
+        User user = userRepository.findById(principal.id()).orElse(null);
         if (user == null) {
             return false;
         }
 
-        if (file.getSize() >= 5 * 1024 * 1024) {
-            throw new IllegalArgumentException("File is too big");
-        }
-
         uploadAvatarInternal(user, file);
         return true;
     }
@@ -152,31 +190,31 @@ public class UserService {
     private void uploadAvatarInternal(User user, MultipartFile file) throws IOException {
         log.info("Uploading avatar for user: {}", user.getUsername());
 
-        String extension = getExtension(Objects.requireNonNull(file.getOriginalFilename()));
-        String filename = user.getUsername() + "." + extension;
-        Path filePath = Path.of(avatarsDir, filename);
-
-        Files.createDirectories(filePath.getParent());
-        Files.deleteIfExists(filePath);
-
-        try (InputStream inputStream = file.getInputStream();
-             OutputStream outputStream = Files.newOutputStream(filePath, CREATE_NEW);
-             BufferedInputStream bis = new BufferedInputStream(inputStream, 1024);
-             BufferedOutputStream bos = new BufferedOutputStream(outputStream, 1024)) {
-            bis.transferTo(bos);
-        }
+        // Новый аватар пишется в отдельный файл: текущий остается на месте, пока замена не зафиксирована
+        String filename = user.getUsername() + "_" + System.currentTimeMillis() + ".";
+        ImageUploadWriter.StoredImage image = imageUploadWriter.store(file,
+                format -> Path.of(avatarsDir, filename + format.extension()));
 
         Avatar avatar = findAvatar(user.getUsername());
+        String oldFilePath = avatar != null ? avatar.getFilePath() : null;
+        AfterTransaction.replaceFile(oldFilePath, image.path());
+        boolean replacing = avatar != null;
         if (avatar == null) {
             avatar = new Avatar();
         }
         avatar.setUser(user);
-        avatar.setFilePath(filePath.toString());
-        avatar.setFileSize(file.getSize());
-        avatar.setMediaType(file.getContentType());
-        avatar.setData(generateAvatarPreview(filePath));
-
-        avatarRepository.save(avatar);
+        avatar.setFilePath(image.path().toString());
+        avatar.setFileSize(image.size());
+        avatar.setMediaType(image.format().mediaType());
+        avatar.setFileHash(image.fileHash());
+        avatar.setFileModifiedAt(LocalDateTime.now());
+
+        Avatar savedAvatar = avatarRepository.save(avatar);
+        if (replacing) {
+            avatarPreviewRepository.deleteById(savedAvatar.getId());
+        }
+        eventPublisher.publishEvent(new ImageUploadedEvent(ImageUploadedEvent.Owner.AVATAR,
+                savedAvatar.getId(), savedAvatar.getFilePath(), savedAvatar.getFileHash(), savedAvatar.getMediaType()));
         log.info("Avatar uploaded successfully for user: {}", user.getUsername());
     }
 
@@ -191,73 +229,25 @@ public class UserService {
         return avatarRepository.findByUser_Username(username).orElse(null);
     }
 
-    /**
-     * Генерация превью аватара
-     *
-     * @param filePath путь к файлу аватара
-     * @return массив байтов превью изображения
-     * @throws IOException при ошибках чтения/записи изображения
-     */
-    private byte[] generateAvatarPreview(Path filePath) throws IOException {
-        log.debug("Generating avatar preview for: {}", filePath);
-
-        try (InputStream inputStream = Files.newInputStream(filePath);
-             BufferedInputStream bis = new BufferedInputStream(inputStream, 1024);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            BufferedImage image = ImageIO.read(bis);
-            if (image == null) {
-                throw new IOException("Unsupported image format");
-            }
-
-            int height = image.getHeight() / (image.getWidth() / 100);
-            BufferedImage preview = new BufferedImage(100, height, image.getType());
-            Graphics2D graphics = preview.createGraphics();
-            graphics.drawImage(image, 0, 0, 100, height, null);
-            graphics.dispose();
-
-            ImageIO.write(preview, getExtension(filePath.getFileName().toString()), baos);
-            return baos.toByteArray();
-        }
-    }
-
-    /**
-     * Получение расширения файла из имени
-     */
-    private String getExtension(String fileName) {
-        return fileName.substring(fileName.lastIndexOf(".") + 1);
-    }
-
-    /**
-     * Проверка старого пароля пользователя
-     *
-     * @param username    имя пользователя
-     * @param oldPassword старый пароль для проверки
-     * @return true если старый пароль верный, false если нет или пользователь не найден
-     */
-    public boolean checkOldPassword(String username, String oldPassword) {
-        User user = userRepository.findByUsername(username).orElse(null);
-        return user != null && passwordEncoder.matches(oldPassword, user.getPassword());
-    }
-
     /**
      * Смена пароля пользователя
      *
-     * @param username        имя пользователя
+     * @param principal       пользователь, меняющий пароль
      * @param currentPassword текущий пароль
      * @param newPassword     новый пароль
-     * @return true если смена успешна, false если текущий пароль неверен
+     * @return true если смена успешна, false если текущий пароль неверен или пользователь не найден
      */
-    public boolean changePassword(String username, String currentPassword, String newPassword) {
-        if (!checkOldPassword(username, currentPassword)) {
+    public boolean changePassword(AuthenticatedUser principal, String currentPassword, String newPassword) {
+        User user = userRepository.findById(principal.id()).orElse(null);
+        if (user == null || !passwordEncoder.matches(currentPassword, user.getPassword())) {
             return false;
         }
 
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user != null) {
-            user.setPassword(passwordEncoder.encode(newPassword));
-            userRepository.save(user);
-        }
+        user.setPassword(passwordEncoder.encode(newPassword));
+        userRepository.save(user);
+        // Сброс до фиксации позволил бы параллельному запросу закэшировать старый пароль заново
+        String username = user.getUsername();
+        AfterTransaction.afterCommit(() -> credentialCache.invalidate(username));
         return true;
     }
 }
\ No newline at end of file
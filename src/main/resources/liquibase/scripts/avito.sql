@@ -105,4 +105,119 @@ COMMENT ON COLUMN comments.ad_id IS 'ID объявления';
 COMMENT ON INDEX idx_comments_ad_id IS 'Индекс для поиска комментариев по объявлению';
 COMMENT ON INDEX idx_comments_user_id IS 'Индекс для поиска комментариев по пользователю';
 COMMENT ON INDEX idx_comments_created_at IS 'Индекс для сортировки по дате создания';
-COMMENT ON INDEX idx_comments_ad_number IS 'Индекс для поиска по номеру комментария в объявлении';
\ No newline at end of file
+COMMENT ON INDEX idx_comments_ad_number IS 'Индекс для поиска по номеру комментария в объявлении';
+
+-- changeset byorck:5
+ALTER TABLE ads ADD COLUMN created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX idx_ads_price_id ON ads ((COALESCE(price, 0)), id);
+CREATE INDEX idx_ads_created_at_id ON ads (created_at DESC, id DESC);
+CREATE INDEX idx_ads_user_id_id ON ads (user_id, id);
+
+COMMENT ON COLUMN ads.created_at IS 'Дата и время создания объявления';
+
+COMMENT ON INDEX idx_ads_price_id IS 'Индекс для постраничной выдачи объявлений по цене';
+COMMENT ON INDEX idx_ads_created_at_id IS 'Индекс для постраничной выдачи объявлений по дате создания';
+COMMENT ON INDEX idx_ads_user_id_id IS 'Индекс для постраничной выдачи объявлений пользователя';
+
+-- changeset byorck:6
+CREATE TABLE ad_previews
+(
+    ad_id BIGINT PRIMARY KEY REFERENCES ads (id) ON DELETE CASCADE,
+    data  BYTEA
+);
+
+INSERT INTO ad_previews (ad_id, data)
+SELECT id, data FROM ads WHERE data IS NOT NULL;
+
+ALTER TABLE ads DROP COLUMN data;
+
+CREATE TABLE avatar_previews
+(
+    avatar_id BIGINT PRIMARY KEY REFERENCES avatars (id) ON DELETE CASCADE,
+    data      BYTEA
+);
+
+INSERT INTO avatar_previews (avatar_id, data)
+SELECT id, data FROM avatars WHERE data IS NOT NULL;
+
+ALTER TABLE avatars DROP COLUMN data;
+
+COMMENT ON TABLE ad_previews IS 'Превью изображений объявлений, вынесенные из ads, чтобы не читать их вместе с объявлением';
+COMMENT ON COLUMN ad_previews.ad_id IS 'ID объявления';
+COMMENT ON COLUMN ad_previews.data IS 'Превью изображения';
+
+COMMENT ON TABLE avatar_previews IS 'Превью аватаров, вынесенные из avatars, чтобы не читать их вместе с аватаром';
+COMMENT ON COLUMN avatar_previews.avatar_id IS 'ID аватара';
+COMMENT ON COLUMN avatar_previews.data IS 'Превью изображения';
+
+-- changeset byorck:7
+ALTER TABLE ads ADD COLUMN file_hash TEXT;
+ALTER TABLE ads ADD COLUMN file_modified_at TIMESTAMP;
+ALTER TABLE avatars ADD COLUMN file_hash TEXT;
+ALTER TABLE avatars ADD COLUMN file_modified_at TIMESTAMP;
+
+COMMENT ON COLUMN ads.file_hash IS 'SHA-256 содержимого файла изображения (ETag и версия URL)';
+COMMENT ON COLUMN ads.file_modified_at IS 'Дата и время загрузки файла изображения (Last-Modified)';
+COMMENT ON COLUMN avatars.file_hash IS 'SHA-256 содержимого файла аватара (ETag и версия URL)';
+COMMENT ON COLUMN avatars.file_modified_at IS 'Дата и время загрузки файла аватара (Last-Modified)';
+
+-- changeset byorck:8
+ALTER TABLE ads ADD COLUMN last_comment_number BIGINT;
+
+UPDATE ads a
+SET last_comment_number = COALESCE((SELECT MAX(c.comment_number) FROM comments c WHERE c.ad_id = a.id), 0);
+
+COMMENT ON COLUMN ads.last_comment_number IS 'Последний выданный номер комментария в рамках объявления';
+
+-- changeset byorck:9
+ALTER TABLE ads ADD COLUMN search_vector TSVECTOR
+    GENERATED ALWAYS AS (setweight(to_tsvector('russian'::regconfig, COALESCE(title, '')), 'A')
+        || setweight(to_tsvector('russian'::regconfig, COALESCE(description, '')), 'B')) STORED;
+
+CREATE INDEX idx_ads_search_vector ON ads USING GIN (search_vector);
+
+COMMENT ON COLUMN ads.search_vector IS 'Поисковый вектор заголовка (вес A) и описания (вес B)';
+COMMENT ON INDEX idx_ads_search_vector IS 'Индекс для полнотекстового поиска объявлений';
+
+-- changeset byorck:10
+CREATE INDEX idx_ads_user_price_id ON ads (user_id, (COALESCE(price, 0)), id);
+CREATE INDEX idx_ads_user_created_at_id ON ads (user_id, created_at DESC, id DESC);
+
+COMMENT ON INDEX idx_ads_user_price_id IS 'Индекс для выдачи объявлений автора по цене';
+COMMENT ON INDEX idx_ads_user_created_at_id IS 'Индекс для выдачи объявлений автора по дате создания';
+
+-- changeset byorck:11
+CREATE SEQUENCE ads_seq INCREMENT BY 50;
+CREATE SEQUENCE comments_seq INCREMENT BY 50;
+CREATE SEQUENCE users_seq INCREMENT BY 50;
+CREATE SEQUENCE avatars_seq INCREMENT BY 50;
+
+SELECT setval('ads_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM ads), 1));
+SELECT setval('comments_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM comments), 1));
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), 1));
+SELECT setval('avatars_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM avatars), 1));
+
+ALTER TABLE ads ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE ads ALTER COLUMN id SET DEFAULT nextval('ads_seq');
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE comments ALTER COLUMN id SET DEFAULT nextval('comments_seq');
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+ALTER TABLE avatars ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE avatars ALTER COLUMN id SET DEFAULT nextval('avatars_seq');
+
+COMMENT ON SEQUENCE ads_seq IS 'Идентификаторы объявлений, выдаются блоками по 50 для пакетной вставки';
+COMMENT ON SEQUENCE comments_seq IS 'Идентификаторы комментариев, выдаются блоками по 50 для пакетной вставки';
+COMMENT ON SEQUENCE users_seq IS 'Идентификаторы пользователей, выдаются блоками по 50 для пакетной вставки';
+COMMENT ON SEQUENCE avatars_seq IS 'Идентификаторы аватаров, выдаются блоками по 50 для пакетной вставки';
+
+-- changeset byorck:12
+ALTER TABLE ads ADD COLUMN updated_at TIMESTAMP;
+
+UPDATE ads SET updated_at = created_at;
+
+CREATE INDEX idx_ads_updated_at_id ON ads (updated_at, id);
+
+COMMENT ON COLUMN ads.updated_at IS 'Дата и время последнего изменения объявления';
+COMMENT ON INDEX idx_ads_updated_at_id IS 'Индекс для инкрементальной выгрузки каталога';
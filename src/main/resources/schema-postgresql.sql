@@ -0,0 +1,90 @@
+-- Объекты схемы, которые не описываются аннотациями сущностей.
+-- Выполняется после обновления схемы Hibernate, поэтому все команды идемпотентны
+
+-- Дата создания объявлений для сортировки выдачи по дате (changeset byorck:5).
+-- Hibernate добавляет столбец без значения по умолчанию и ограничения NOT NULL,
+-- поэтому объявления, созданные до его появления, получают время обновления схемы
+UPDATE ads SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE ads ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE ads ALTER COLUMN created_at SET NOT NULL;
+
+-- Индексы постраничной выдачи объявлений (changeset byorck:5, byorck:10)
+CREATE INDEX IF NOT EXISTS idx_ads_price_id ON ads ((COALESCE(price, 0)), id);
+CREATE INDEX IF NOT EXISTS idx_ads_created_at_id ON ads (created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_ads_user_id_id ON ads (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_ads_user_price_id ON ads (user_id, (COALESCE(price, 0)), id);
+CREATE INDEX IF NOT EXISTS idx_ads_user_created_at_id ON ads (user_id, created_at DESC, id DESC);
+
+-- Перенос превью в отдельные таблицы (changeset byorck:6).
+-- Таблицы превью создает Hibernate; превью из столбцов data копируются, только пока столбцы существуют.
+-- Тело блока - строка в одинарных кавычках, потому что скрипт делится на команды по точке с запятой
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''ads'' AND column_name = ''data'') THEN
+        INSERT INTO ad_previews (ad_id, data)
+        SELECT id, data FROM ads WHERE data IS NOT NULL
+        ON CONFLICT (ad_id) DO NOTHING;
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''avatars'' AND column_name = ''data'') THEN
+        INSERT INTO avatar_previews (avatar_id, data)
+        SELECT id, data FROM avatars WHERE data IS NOT NULL
+        ON CONFLICT (avatar_id) DO NOTHING;
+    END IF;
+END';
+ALTER TABLE ads DROP COLUMN IF EXISTS data;
+ALTER TABLE avatars DROP COLUMN IF EXISTS data;
+
+-- Превью удаляются вместе с объявлением или аватаром. Сущности превью ссылаются на владельца
+-- только идентификатором, поэтому Hibernate не создает внешние ключи; превью, оставшиеся
+-- от уже удаленных объявлений и аватаров, удаляются перед добавлением ключа
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''ad_previews_ad_id_fkey'') THEN
+        DELETE FROM ad_previews p WHERE NOT EXISTS (SELECT 1 FROM ads a WHERE a.id = p.ad_id);
+        ALTER TABLE ad_previews ADD CONSTRAINT ad_previews_ad_id_fkey
+            FOREIGN KEY (ad_id) REFERENCES ads (id) ON DELETE CASCADE;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''avatar_previews_avatar_id_fkey'') THEN
+        DELETE FROM avatar_previews p WHERE NOT EXISTS (SELECT 1 FROM avatars a WHERE a.id = p.avatar_id);
+        ALTER TABLE avatar_previews ADD CONSTRAINT avatar_previews_avatar_id_fkey
+            FOREIGN KEY (avatar_id) REFERENCES avatars (id) ON DELETE CASCADE;
+    END IF;
+END';
+
+-- Выгрузка каталога по времени изменения (changeset byorck:12).
+-- Объявления, созданные до появления столбца, считаются измененными в момент создания
+UPDATE ads SET updated_at = created_at WHERE updated_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_ads_updated_at_id ON ads (updated_at, id);
+
+-- Полнотекстовый поиск по объявлениям (changeset byorck:9).
+-- Сгенерированный столбец tsvector и GIN-индекс
+ALTER TABLE ads ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (setweight(to_tsvector('russian'::regconfig, COALESCE(title, '')), 'A')
+        || setweight(to_tsvector('russian'::regconfig, COALESCE(description, '')), 'B')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_ads_search_vector ON ads USING GIN (search_vector);
+
+-- Последовательности идентификаторов с шагом 50 (changeset byorck:11).
+-- Hibernate выдает идентификаторы блоками по значению последовательности, поэтому вставки объединяются в пакеты.
+-- Последовательность сдвигается за максимальный существующий идентификатор, столбцы, созданные как IDENTITY,
+-- переводятся на нее же, чтобы вставки без явного id не пересекались с выданными блоками
+CREATE SEQUENCE IF NOT EXISTS ads_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS avatars_seq INCREMENT BY 50;
+
+SELECT setval('ads_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM ads), (SELECT last_value FROM ads_seq)));
+SELECT setval('comments_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM comments), (SELECT last_value FROM comments_seq)));
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT last_value FROM users_seq)));
+SELECT setval('avatars_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM avatars), (SELECT last_value FROM avatars_seq)));
+
+ALTER TABLE ads ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE ads ALTER COLUMN id SET DEFAULT nextval('ads_seq');
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE comments ALTER COLUMN id SET DEFAULT nextval('comments_seq');
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+ALTER TABLE avatars ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE avatars ALTER COLUMN id SET DEFAULT nextval('avatars_seq');
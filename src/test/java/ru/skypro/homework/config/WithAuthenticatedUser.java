@@ -0,0 +1,44 @@
+package ru.skypro.homework.config;
+
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.test.context.support.WithSecurityContext;
+import org.springframework.security.test.context.support.WithSecurityContextFactory;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.service.AuthenticatedUserDetails;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Аутентификация теста пользователем с идентификатором, как после входа в приложение.
+ * В отличие от {@code @WithMockUser} не требует загрузки пользователя из БД при определении
+ * {@link ru.skypro.homework.dto.AuthenticatedUser}
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@WithSecurityContext(factory = WithAuthenticatedUser.Factory.class)
+public @interface WithAuthenticatedUser {
+
+    long id() default 1L;
+
+    String username() default "testuser";
+
+    Role role() default Role.USER;
+
+    class Factory implements WithSecurityContextFactory<WithAuthenticatedUser> {
+
+        @Override
+        public SecurityContext createSecurityContext(WithAuthenticatedUser annotation) {
+            AuthenticatedUserDetails principal = new AuthenticatedUserDetails(
+                    annotation.id(), annotation.username(), "password", annotation.role());
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                    principal, null, principal.getAuthorities()));
+            return context;
+        }
+    }
+}
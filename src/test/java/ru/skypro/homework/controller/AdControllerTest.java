@@ -9,25 +9,48 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.skypro.homework.config.WithAuthenticatedUser;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.dto.ad.AdCreateRequestDTO;
+import ru.skypro.homework.dto.ad.AdFilter;
 import ru.skypro.homework.dto.ad.AdFullResponseDTO;
+import ru.skypro.homework.dto.ad.AdImportReport;
 import ru.skypro.homework.dto.ad.AdUpdateRequestDTO;
 import ru.skypro.homework.entity.Ad;
 import ru.skypro.homework.entity.User;
+import ru.skypro.homework.service.AdCatalogSnapshotService;
+import ru.skypro.homework.service.AdExportService;
+import ru.skypro.homework.service.AdImportService;
 import ru.skypro.homework.service.AdService;
+import ru.skypro.homework.service.UserService;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -36,6 +59,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisplayName("Тестирование контроллера объявлений")
 class AdControllerTest {
 
+    private static final AuthenticatedUser PRINCIPAL = new AuthenticatedUser(1L, "testuser", Role.USER);
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -45,12 +70,24 @@ class AdControllerTest {
     @MockitoBean
     private AdService adService;
 
+    @MockitoBean
+    private AdImportService adImportService;
+
+    @MockitoBean
+    private AdExportService adExportService;
+
+    @MockitoBean
+    private AdCatalogSnapshotService snapshotService;
+
+    @MockitoBean
+    private UserService userService;
+
     @Nested
     @DisplayName("Тесты создания объявлений")
     class CreateAdTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное создание объявления")
         void createAd_Success() throws Exception {
             // Given
@@ -85,7 +122,7 @@ class AdControllerTest {
                     "test image content".getBytes()
             );
 
-            when(adService.createAd(anyString(), anyString(), anyInt(), anyString(), any()))
+            when(adService.createAd(eq(PRINCIPAL), anyString(), anyInt(), anyString(), any()))
                     .thenReturn(responseDTO);
 
             // When & Then
@@ -104,7 +141,7 @@ class AdControllerTest {
     class GetAdTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное получение всех объявлений")
         void getAllAds_Success() throws Exception {
             // Given
@@ -112,7 +149,7 @@ class AdControllerTest {
             response.put("count", 1);
             response.put("results", new Object[]{});
 
-            when(adService.getAllAds()).thenReturn(response);
+            when(adService.getAllAds(AdFilter.NONE, null, null, null)).thenReturn(response);
 
             // When & Then
             mockMvc.perform(get("/ads"))
@@ -121,7 +158,131 @@ class AdControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
+        @DisplayName("Первая страница выдается из снимка в gzip")
+        void getAllAds_FromSnapshot_ShouldReturnCompressedBytes() throws Exception {
+            // Given
+            byte[] json = "{\"count\":0,\"results\":[]}".getBytes(StandardCharsets.UTF_8);
+            byte[] gzip = {31, -117, 8, 0};
+            AdCatalogSnapshotService.Page page = new AdCatalogSnapshotService.Page(7, json, gzip);
+            when(snapshotService.page(null)).thenReturn(Optional.of(page));
+
+            // When & Then
+            mockMvc.perform(get("/ads").header("Accept-Encoding", "gzip, deflate, br"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Encoding", "gzip"))
+                    .andExpect(header().string("ETag", "\"ads-7-gzip\""))
+                    .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                    .andExpect(content().bytes(gzip));
+            mockMvc.perform(get("/ads").header("Accept-Encoding", "gzip;q=0"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Content-Encoding"))
+                    .andExpect(header().string("ETag", "\"ads-7\""))
+                    .andExpect(content().bytes(json));
+            verify(adService, never()).getAllAds(any(), any(), any(), any());
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Повторный запрос страницы снимка с ETag")
+        void getAllAds_FromSnapshotWithMatchingEtag_ShouldReturnNotModified() throws Exception {
+            // Given
+            AdCatalogSnapshotService.Page page = new AdCatalogSnapshotService.Page(7, new byte[]{'{', '}'}, new byte[0]);
+            when(snapshotService.page("cursor")).thenReturn(Optional.of(page));
+
+            // When & Then
+            mockMvc.perform(get("/ads").param("after", "cursor").header("If-None-Match", "\"ads-7\""))
+                    .andExpect(status().isNotModified());
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Выдача с фильтром не использует снимок")
+        void getAllAds_WithLimit_ShouldBypassSnapshot() throws Exception {
+            // Given
+            Map<String, Object> response = new HashMap<>();
+            response.put("count", 0);
+            when(adService.getAllAds(AdFilter.NONE, null, 5, null)).thenReturn(response);
+
+            // When & Then
+            mockMvc.perform(get("/ads").param("limit", "5"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.count").value(0));
+            verify(snapshotService, never()).page(any());
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Некорректный курсор страницы объявлений")
+        void getAllAds_WithInvalidCursor_ShouldReturnBadRequest() throws Exception {
+            // Given
+            when(adService.getAllAds(AdFilter.NONE, "broken", 10, "price"))
+                    .thenThrow(new IllegalArgumentException("Invalid cursor: broken"));
+
+            // When & Then
+            mockMvc.perform(get("/ads").param("after", "broken").param("limit", "10").param("sort", "price"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Получение объявлений с отбором по цене и автору")
+        void getAllAds_WithFilter_ShouldPassFilterToService() throws Exception {
+            // Given
+            Map<String, Object> response = new HashMap<>();
+            response.put("count", 1);
+            response.put("results", new Object[]{});
+
+            when(adService.getAllAds(new AdFilter(100, 500, 7L), null, null, "price")).thenReturn(response);
+
+            // When & Then
+            mockMvc.perform(get("/ads").param("minPrice", "100").param("maxPrice", "500")
+                            .param("authorId", "7").param("sort", "price"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.count").value(1));
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Минимальная цена больше максимальной")
+        void getAllAds_WithInvertedPriceRange_ShouldReturnBadRequest() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/ads").param("minPrice", "500").param("maxPrice", "100"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Успешный поиск объявлений")
+        void searchAds_Success() throws Exception {
+            // Given
+            Map<String, Object> response = new HashMap<>();
+            response.put("count", 1);
+            response.put("results", new Object[]{});
+
+            when(adService.searchAds("bike", null, 10)).thenReturn(response);
+
+            // When & Then
+            mockMvc.perform(get("/ads/search").param("q", "bike").param("limit", "10"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.count").value(1));
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Поиск с пустым запросом")
+        void searchAds_WithBlankQuery_ShouldReturnBadRequest() throws Exception {
+            // Given
+            when(adService.searchAds(" ", null, null))
+                    .thenThrow(new IllegalArgumentException("Search query must be 1-200 characters"));
+
+            // When & Then
+            mockMvc.perform(get("/ads/search").param("q", " "))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @WithAuthenticatedUser
         @DisplayName("Успешное получение объявления по ID")
         void getAdById_Success() throws Exception {
             // Given
@@ -145,7 +306,7 @@ class AdControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Объявление по ID не найдено")
         void getAdById_NotFound() throws Exception {
             // Given
@@ -157,7 +318,7 @@ class AdControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное получение собственных объявлений пользователя")
         void getMyAds_Success() throws Exception {
             // Given
@@ -165,7 +326,7 @@ class AdControllerTest {
             response.put("count", 2);
             response.put("results", new Object[]{});
 
-            when(adService.getUserAds("testuser")).thenReturn(response);
+            when(adService.getUserAds("testuser", null, null, null)).thenReturn(response);
 
             // When & Then
             mockMvc.perform(get("/ads/me"))
@@ -179,11 +340,11 @@ class AdControllerTest {
     class ManageAdTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное удаление объявления")
         void deleteAd_Success() throws Exception {
             // Given
-            when(adService.deleteAd(1L, "testuser")).thenReturn(true);
+            when(adService.deleteAd(1L, PRINCIPAL)).thenReturn(true);
 
             // When & Then
             mockMvc.perform(delete("/ads/1").with(csrf()))
@@ -191,7 +352,7 @@ class AdControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное обновление объявления")
         void updateAd_Success() throws Exception {
             // Given
@@ -210,7 +371,7 @@ class AdControllerTest {
 
             AdFullResponseDTO updatedAd = new AdFullResponseDTO(ad);
 
-            when(adService.updateAd(eq(1L), any(AdUpdateRequestDTO.class), eq("testuser")))
+            when(adService.updateAd(eq(1L), any(AdUpdateRequestDTO.class), eq(PRINCIPAL)))
                     .thenReturn(updatedAd);
 
             // When & Then
@@ -223,4 +384,103 @@ class AdControllerTest {
                     .andExpect(jsonPath("$.title").value("Updated Title"));
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Тесты импорта объявлений")
+    class ImportAdsTests {
+
+        @Test
+        @WithAuthenticatedUser(role = Role.ADMIN)
+        @DisplayName("Импорт CSV администратором")
+        void importAds_AsAdmin_ShouldReturnReport() throws Exception {
+            // Given
+            AdImportReport report = new AdImportReport(2, 1, 1, 15,
+                    List.of(new AdImportReport.RowError(3, "Title is required")));
+            when(userService.isAdmin(any())).thenReturn(true);
+            when(adImportService.importAds(any(), eq(AdImportService.Format.CSV))).thenReturn(report);
+
+            // When & Then
+            mockMvc.perform(post("/ads/import")
+                            .with(csrf())
+                            .contentType("text/csv")
+                            .content("title,price,description,authorId\nBike,100,,1\n"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(2))
+                    .andExpect(jsonPath("$.rejected").value(1))
+                    .andExpect(jsonPath("$.errors[0].line").value(3));
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Импорт обычным пользователем запрещен")
+        void importAds_AsUser_ShouldReturnForbidden() throws Exception {
+            // When & Then
+            mockMvc.perform(post("/ads/import")
+                            .with(csrf())
+                            .contentType("application/x-ndjson")
+                            .content("{\"title\":\"Bike\",\"authorId\":1}\n"))
+                    .andExpect(status().isForbidden());
+
+            verify(adImportService, never()).importAds(any(), any());
+        }
+
+        @Test
+        @WithAuthenticatedUser(role = Role.ADMIN)
+        @DisplayName("Импорт CSV без обязательных столбцов")
+        void importAds_WithInvalidHeader_ShouldReturnBadRequest() throws Exception {
+            // Given
+            when(userService.isAdmin(any())).thenReturn(true);
+            when(adImportService.importAds(any(), eq(AdImportService.Format.CSV)))
+                    .thenThrow(new IllegalArgumentException("CSV header must contain column: authorId"));
+
+            // When & Then
+            mockMvc.perform(post("/ads/import")
+                            .with(csrf())
+                            .contentType("text/csv")
+                            .content("title,price\nBike,100\n"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты выгрузки объявлений")
+    class ExportAdsTests {
+
+        @Test
+        @WithAuthenticatedUser(role = Role.ADMIN)
+        @DisplayName("Потоковая выгрузка NDJSON администратором")
+        void exportAds_AsAdmin_ShouldStreamNdjson() throws Exception {
+            // Given
+            LocalDateTime since = LocalDateTime.of(2024, 5, 1, 10, 0);
+            when(userService.isAdmin(any())).thenReturn(true);
+            doAnswer(invocation -> {
+                OutputStream output = invocation.getArgument(1);
+                output.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+                return 2L;
+            }).when(adExportService).exportAds(eq(since), any());
+
+            // When
+            MvcResult result = mockMvc.perform(get("/ads/export").param("updatedSince", "2024-05-01T10:00:00"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            assertEquals(Duration.ofMinutes(30).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+
+            // Then
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                    .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+        }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Выгрузка обычным пользователем запрещена")
+        void exportAds_AsUser_ShouldReturnForbidden() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/ads/export"))
+                    .andExpect(status().isForbidden());
+
+            verify(adExportService, never()).exportAds(any(), any());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.skypro.homework.controller;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -18,7 +19,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.skypro.homework.config.TestConfig;
 import ru.skypro.homework.config.WebSecurityConfig;
 import ru.skypro.homework.service.AuthService;
+import ru.skypro.homework.service.BasicAuthCredentialCache;
 import ru.skypro.homework.service.CustomUserDetailsService;
+import ru.skypro.homework.service.TokenService;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
@@ -30,7 +33,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Проверяет endpoints аутентификации и регистрации
  */
 @WebMvcTest(AuthController.class)
-@Import({WebSecurityConfig.class, TestConfig.class})
+@Import({WebSecurityConfig.class, TestConfig.class, SimpleMeterRegistry.class})
 @DisplayName("Тестирование контроллера авторизации")
 class AuthControllerTest {
 
@@ -46,6 +49,12 @@ class AuthControllerTest {
     @MockitoBean
     private AuthenticationManager authenticationManager;
 
+    @MockitoBean
+    private BasicAuthCredentialCache basicAuthCredentialCache;
+
+    @MockitoBean
+    private TokenService tokenService;
+
     @Nested
     @DisplayName("Тесты аутентификации")
     class LoginTests {
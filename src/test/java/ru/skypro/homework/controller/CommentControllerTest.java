@@ -8,10 +8,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.skypro.homework.config.WithAuthenticatedUser;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.dto.comment.CommentDTO;
 import ru.skypro.homework.dto.comment.CommentsDTO;
 import ru.skypro.homework.dto.comment.CreateOrUpdateCommentDTO;
@@ -33,6 +35,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisplayName("Тестирование контроллера комментариев")
 class CommentControllerTest {
 
+    private static final AuthenticatedUser PRINCIPAL = new AuthenticatedUser(1L, "testuser", Role.USER);
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -47,7 +51,7 @@ class CommentControllerTest {
     class GetCommentTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное получение комментариев к объявлению")
         void getComments_Success() throws Exception {
             // Given
@@ -55,13 +59,26 @@ class CommentControllerTest {
             commentsDTO.setCount(2);
             commentsDTO.setResults(List.of());
 
-            when(commentService.getCommentsByAdId(1L)).thenReturn(commentsDTO);
+            when(commentService.getCommentsByAdId(1L, null, null)).thenReturn(commentsDTO);
 
             // When & Then
             mockMvc.perform(get("/ads/1/comments"))
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.count").value(2));
         }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Некорректный курсор комментариев")
+        void getComments_WithInvalidCursor_ShouldReturnBadRequest() throws Exception {
+            // Given
+            when(commentService.getCommentsByAdId(1L, "broken", null))
+                    .thenThrow(new IllegalArgumentException("Invalid cursor: broken"));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/comments").param("after", "broken"))
+                    .andExpect(status().isBadRequest());
+        }
     }
 
     @Nested
@@ -69,7 +86,7 @@ class CommentControllerTest {
     class CreateCommentTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное добавление комментария")
         void addComment_Success() throws Exception {
             // Given
@@ -83,7 +100,7 @@ class CommentControllerTest {
             commentDTO.setAuthor(1L);
             commentDTO.setCreatedAt(System.currentTimeMillis());
 
-            when(commentService.addComment(eq(1L), any(CreateOrUpdateCommentDTO.class), eq("testuser")))
+            when(commentService.addComment(eq(1L), any(CreateOrUpdateCommentDTO.class), eq(PRINCIPAL)))
                     .thenReturn(commentDTO);
 
             // When & Then
@@ -98,14 +115,14 @@ class CommentControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Ошибка добавления комментария - объявление не найдено")
         void addComment_AdNotFound() throws Exception {
             // Given
             CreateOrUpdateCommentDTO createDTO = new CreateOrUpdateCommentDTO();
             createDTO.setText("Test comment");
 
-            when(commentService.addComment(eq(1L), any(CreateOrUpdateCommentDTO.class), eq("testuser")))
+            when(commentService.addComment(eq(1L), any(CreateOrUpdateCommentDTO.class), eq(PRINCIPAL)))
                     .thenReturn(null);
 
             // When & Then
@@ -122,11 +139,11 @@ class CommentControllerTest {
     class DeleteCommentTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное удаление комментария")
         void deleteComment_Success() throws Exception {
             // Given
-            when(commentService.deleteCommentWithPermission(1L, 1L, "testuser"))
+            when(commentService.deleteCommentWithPermission(1L, 1L, PRINCIPAL))
                     .thenReturn(true);
 
             // When & Then
@@ -136,11 +153,11 @@ class CommentControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Ошибка удаления комментария - недостаточно прав")
         void deleteComment_Forbidden() throws Exception {
             // Given
-            when(commentService.deleteCommentWithPermission(1L, 1L, "testuser"))
+            when(commentService.deleteCommentWithPermission(1L, 1L, PRINCIPAL))
                     .thenReturn(false);
 
             // When & Then
@@ -155,7 +172,7 @@ class CommentControllerTest {
     class UpdateCommentTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное обновление комментария")
         void updateComment_Success() throws Exception {
             // Given
@@ -169,7 +186,7 @@ class CommentControllerTest {
             updatedComment.setAuthor(1L);
             updatedComment.setCreatedAt(System.currentTimeMillis());
 
-            when(commentService.updateCommentWithPermission(eq(1L), eq(1L), any(CreateOrUpdateCommentDTO.class), eq("testuser")))
+            when(commentService.updateCommentWithPermission(eq(1L), eq(1L), any(CreateOrUpdateCommentDTO.class), eq(PRINCIPAL)))
                     .thenReturn(updatedComment);
 
             // When & Then
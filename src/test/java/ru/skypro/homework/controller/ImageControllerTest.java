@@ -0,0 +1,380 @@
+package ru.skypro.homework.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.skypro.homework.entity.AdPreview;
+import ru.skypro.homework.entity.AvatarPreview;
+import ru.skypro.homework.repository.AdPreviewRepository;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.AvatarPreviewRepository;
+import ru.skypro.homework.repository.AvatarRepository;
+import ru.skypro.homework.repository.projection.ImageFileView;
+import ru.skypro.homework.service.ImageVariantStorage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Тестирование контроллера изображений")
+class ImageControllerTest {
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private AdRepository adRepository;
+
+    @MockitoBean
+    private AdPreviewRepository adPreviewRepository;
+
+    @MockitoBean
+    private AvatarRepository avatarRepository;
+
+    @MockitoBean
+    private AvatarPreviewRepository avatarPreviewRepository;
+
+    @MockitoBean
+    private ImageVariantStorage variantStorage;
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Тесты получения превью объявлений")
+    class AdPreviewTests {
+
+        @Test
+        @DisplayName("Превью объявления отдается из БД")
+        void getAdImagePreview_WhenPreviewExists_ShouldReturnStoredBytes() throws Exception {
+            // Given
+            byte[] preview = {1, 2, 3};
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(image("ad.png", "image/png")));
+            when(adPreviewRepository.findById(1L)).thenReturn(Optional.of(new AdPreview(1L, preview)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image/preview"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("image/png"))
+                    .andExpect(content().bytes(preview));
+        }
+
+        @Test
+        @DisplayName("Параметр size=preview возвращает превью объявления")
+        void getAdImage_WithPreviewSize_ShouldReturnStoredBytes() throws Exception {
+            // Given
+            byte[] preview = {4, 5, 6};
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(image("ad.jpg", "image/jpeg")));
+            when(adPreviewRepository.findById(1L)).thenReturn(Optional.of(new AdPreview(1L, preview)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("size", "preview"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(preview));
+        }
+
+        @Test
+        @DisplayName("Без превью отдается исходное изображение объявления")
+        void getAdImagePreview_WhenPreviewMissing_ShouldFallBackToOriginal() throws Exception {
+            // Given
+            byte[] original = {7, 8, 9, 10};
+            Path file = Files.write(tempDir.resolve("ad.png"), original);
+            when(adPreviewRepository.findById(1L)).thenReturn(Optional.empty());
+            when(adRepository.findImageById(1L))
+                    .thenReturn(Optional.of(new ImageFileView(1L, file.toString(), "image/png", null, null)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image/preview"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(original));
+        }
+
+        @Test
+        @DisplayName("Неизвестный вариант изображения")
+        void getAdImage_WithUnknownSize_ShouldReturnBadRequest() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("size", "huge"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты потоковой отдачи файлов")
+    class StreamingTests {
+
+        @Test
+        @DisplayName("Исходное изображение отдается с Content-Length и поддержкой Range")
+        void getAdImage_ShouldStreamFileWithContentLength() throws Exception {
+            // Given
+            byte[] original = {1, 2, 3, 4, 5, 6, 7, 8};
+            Path file = Files.write(tempDir.resolve("ad.jpg"), original);
+            when(adRepository.findImageById(1L))
+                    .thenReturn(Optional.of(new ImageFileView(1L, file.toString(), "image/jpeg", null, null)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().longValue("Content-Length", original.length))
+                    .andExpect(header().string("Accept-Ranges", "bytes"))
+                    .andExpect(content().bytes(original));
+        }
+
+        @Test
+        @DisplayName("Запрос диапазона байтов возвращает 206 и часть файла")
+        void getAvatar_WithRange_ShouldReturnPartialContent() throws Exception {
+            // Given
+            byte[] original = {1, 2, 3, 4, 5, 6, 7, 8};
+            Path file = Files.write(tempDir.resolve("avatar.png"), original);
+            when(avatarRepository.findImageByUserId(1L))
+                    .thenReturn(Optional.of(new ImageFileView(1L, file.toString(), "image/png", null, null)));
+
+            // When & Then
+            mockMvc.perform(get("/users/1/avatar").header("Range", "bytes=2-4"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string("Content-Range", "bytes 2-4/8"))
+                    .andExpect(content().bytes(new byte[]{3, 4, 5}));
+        }
+
+        @Test
+        @DisplayName("Отсутствующий на диске файл")
+        void getAdImage_WhenFileMissing_ShouldReturnNotFound() throws Exception {
+            // Given
+            when(adRepository.findImageById(1L))
+                    .thenReturn(Optional.of(new ImageFileView(1L, tempDir.resolve("missing.jpg").toString(), "image/jpeg", null, null)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image"))
+                    .andExpect(status().isNotFound());
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты получения превью аватаров")
+    class AvatarPreviewTests {
+
+        @Test
+        @DisplayName("Превью аватара отдается из БД")
+        void getAvatarPreview_WhenPreviewExists_ShouldReturnStoredBytes() throws Exception {
+            // Given
+            byte[] preview = {11, 12};
+            when(avatarRepository.findImageByUserId(1L)).thenReturn(Optional.of(image("avatar.jpg", "image/jpeg")));
+            when(avatarPreviewRepository.findById(1L)).thenReturn(Optional.of(new AvatarPreview(1L, preview)));
+
+            // When & Then
+            mockMvc.perform(get("/users/1/avatar/preview"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("image/jpeg"))
+                    .andExpect(content().bytes(preview));
+        }
+
+        @Test
+        @DisplayName("Аватар не найден")
+        void getAvatarPreview_WhenAvatarMissing_ShouldReturnNotFound() throws Exception {
+            // Given
+            when(avatarRepository.findImageByUserId(1L)).thenReturn(Optional.empty());
+
+            // When & Then
+            mockMvc.perform(get("/users/1/avatar/preview"))
+                    .andExpect(status().isNotFound());
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты HTTP-кэширования изображений")
+    class CachingTests {
+
+        @Test
+        @DisplayName("Ответ содержит ETag и Last-Modified")
+        void getAdImage_ShouldReturnValidators() throws Exception {
+            // Given
+            Path file = Files.write(tempDir.resolve("ad.jpg"), new byte[]{1, 2, 3});
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(file)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"" + HASH + "\""))
+                    .andExpect(header().exists("Last-Modified"))
+                    .andExpect(header().string("Cache-Control", "no-cache"));
+        }
+
+        @Test
+        @DisplayName("Совпадающий If-None-Match возвращает 304 без чтения файла")
+        void getAdImage_WhenEtagMatches_ShouldReturnNotModified() throws Exception {
+            // Given
+            Path missing = tempDir.resolve("not-read.jpg");
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(missing)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").header("If-None-Match", "\"" + HASH + "\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().bytes(new byte[0]));
+        }
+
+        @Test
+        @DisplayName("Совпадающий ETag превью возвращает 304 без загрузки превью из БД")
+        void getAdImagePreview_WhenEtagMatches_ShouldNotLoadPreview() throws Exception {
+            // Given
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(tempDir.resolve("ad.jpg"))));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image/preview").header("If-None-Match", "\"" + HASH + "-preview\""))
+                    .andExpect(status().isNotModified());
+            verify(adPreviewRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("Ссылка с актуальной версией кэшируется как неизменяемая")
+        void getAvatar_WithCurrentVersion_ShouldBeImmutable() throws Exception {
+            // Given
+            Path file = Files.write(tempDir.resolve("avatar.png"), new byte[]{1, 2, 3});
+            when(avatarRepository.findImageByUserId(1L)).thenReturn(Optional.of(hashed(file)));
+
+            // When & Then
+            mockMvc.perform(get("/users/1/avatar").param("v", HASH.substring(0, 16)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+        }
+
+        @Test
+        @DisplayName("Ссылка с устаревшей версией требует перепроверки")
+        void getAvatar_WithStaleVersion_ShouldRequireRevalidation() throws Exception {
+            // Given
+            Path file = Files.write(tempDir.resolve("avatar.png"), new byte[]{1, 2, 3});
+            when(avatarRepository.findImageByUserId(1L)).thenReturn(Optional.of(hashed(file)));
+
+            // When & Then
+            mockMvc.perform(get("/users/1/avatar").param("v", "0000000000000000"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "no-cache"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты выбора копии по ширине")
+    class VariantTests {
+
+        @Test
+        @DisplayName("Параметр w выбирает подходящую копию")
+        void getAdImage_WithWidth_ShouldReturnVariant() throws Exception {
+            // Given
+            Path original = Files.write(tempDir.resolve("ad.jpg"), new byte[]{1, 2, 3});
+            Path variant = Files.write(tempDir.resolve("320.jpg"), new byte[]{4, 5});
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(original)));
+            when(variantStorage.find(HASH, "jpg", 300))
+                    .thenReturn(Optional.of(new ImageVariantStorage.ImageVariant(320, variant)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("w", "300").param("v", HASH.substring(0, 16)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(new byte[]{4, 5}))
+                    .andExpect(header().string("ETag", "\"" + HASH + "-w320\""))
+                    .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+        }
+
+        @Test
+        @DisplayName("Условный запрос копии проверяется по ETag без поиска копии на диске")
+        void getAdImage_WithWidthAndMatchingEtag_ShouldReturnNotModifiedWithoutLookup() throws Exception {
+            // Given
+            Path original = Files.write(tempDir.resolve("ad.jpg"), new byte[]{1, 2, 3});
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(original)));
+            when(variantStorage.getWidths()).thenReturn(List.of(160, 320, 640));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("w", "300")
+                            .header("If-None-Match", "\"" + HASH + "-w320\""))
+                    .andExpect(status().isNotModified());
+            verify(variantStorage, never()).find(any(), any(), anyInt());
+            verify(variantStorage, never()).isReady(any(), any());
+        }
+
+        @Test
+        @DisplayName("ETag копии меньше запрошенной ширины не подходит")
+        void getAdImage_WithEtagOfSmallerVariant_ShouldLookUpVariant() throws Exception {
+            // Given
+            Path original = Files.write(tempDir.resolve("ad.jpg"), new byte[]{1, 2, 3});
+            Path variant = Files.write(tempDir.resolve("640.jpg"), new byte[]{4, 5});
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(original)));
+            when(variantStorage.getWidths()).thenReturn(List.of(160, 320, 640));
+            when(variantStorage.find(HASH, "jpg", 500))
+                    .thenReturn(Optional.of(new ImageVariantStorage.ImageVariant(640, variant)));
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("w", "500")
+                            .header("If-None-Match", "\"" + HASH + "-w320\""))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(new byte[]{4, 5}))
+                    .andExpect(header().string("ETag", "\"" + HASH + "-w640\""));
+        }
+
+        @Test
+        @DisplayName("Пока копии не готовы, исходный файл отдается без неизменяемого кэширования")
+        void getAdImage_WhenVariantsPending_ShouldReturnOriginalWithoutImmutableCaching() throws Exception {
+            // Given
+            Path original = Files.write(tempDir.resolve("ad.jpg"), new byte[]{1, 2, 3});
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(original)));
+            when(variantStorage.find(any(), any(), anyInt())).thenReturn(Optional.empty());
+            when(variantStorage.isReady(HASH, "jpg")).thenReturn(false);
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("w", "300").param("v", HASH.substring(0, 16)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(new byte[]{1, 2, 3}))
+                    .andExpect(header().string("Cache-Control", "no-cache"));
+        }
+
+        @Test
+        @DisplayName("Если исходник уже меньше запрошенной ширины, он кэшируется как обычно")
+        void getAdImage_WhenOriginalIsSmaller_ShouldReturnCacheableOriginal() throws Exception {
+            // Given
+            Path original = Files.write(tempDir.resolve("ad.jpg"), new byte[]{1, 2, 3});
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(hashed(original)));
+            when(variantStorage.find(any(), any(), anyInt())).thenReturn(Optional.empty());
+            when(variantStorage.isReady(HASH, "jpg")).thenReturn(true);
+
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("w", "2000").param("v", HASH.substring(0, 16)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"" + HASH + "\""))
+                    .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+        }
+
+        @Test
+        @DisplayName("Неположительная ширина отклоняется")
+        void getAdImage_WithInvalidWidth_ShouldReturnBadRequest() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/ads/1/image").param("w", "0"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    private ImageFileView image(String name, String mediaType) {
+        return new ImageFileView(1L, tempDir.resolve(name).toString(), mediaType, null, null);
+    }
+
+    private ImageFileView hashed(Path file) {
+        return new ImageFileView(1L, file.toString(), "image/jpeg", HASH, LocalDateTime.of(2025, 1, 1, 12, 0));
+    }
+}
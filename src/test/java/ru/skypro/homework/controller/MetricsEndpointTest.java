@@ -0,0 +1,94 @@
+package ru.skypro.homework.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.skypro.homework.config.WithAuthenticatedUser;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.service.CommentService;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+@DisplayName("Тестирование эндпоинта метрик")
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Nested
+    @DisplayName("Тесты экспорта метрик Prometheus")
+    class PrometheusTests {
+
+        @Test
+        @WithAuthenticatedUser(role = Role.ADMIN)
+        @DisplayName("Метрики доступны администратору и включают пул соединений, изображения и кэши")
+        void prometheus_ShouldExposeApplicationMetrics() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/actuator/prometheus"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(containsString("hikaricp_connections_active")))
+                    .andExpect(content().string(containsString("app_images_bytes_read_bytes_total")))
+                    .andExpect(content().string(containsString("app_images_bytes_written_bytes_total")))
+                    .andExpect(content().string(containsString("app_auth_credential_cache_requests_total")))
+                    .andExpect(content().string(containsString("app_auth_password_verifications_seconds")))
+                    .andExpect(content().string(containsString("cache_gets_total{application=\"ads\",cache=\"adDetails\"")))
+                    .andExpect(content().string(containsString("cache=\"userProfiles\"")))
+                    .andExpect(content().string(containsString("cache=\"users\",cache_manager=\"hibernate\"")));
+        }
+
+        @Test
+        @WithAuthenticatedUser(role = Role.ADMIN)
+        @DisplayName("Вызовы методов сервисов учитываются таймером с именем метода")
+        void prometheus_ShouldExposeServiceTimers() throws Exception {
+            // Given
+            commentService.getCommentsByAdId(Long.MAX_VALUE, null, null);
+
+            // When & Then
+            mockMvc.perform(get("/actuator/prometheus"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(containsString("app_service_seconds_count")))
+                    .andExpect(content().string(containsString("method=\"getCommentsByAdId\"")));
+        }
+
+        @Test
+        @DisplayName("Метрики недоступны без аутентификации")
+        void prometheus_WhenAnonymous_ShouldReturnUnauthorized() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/actuator/prometheus"))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        @Test
+        @WithAuthenticatedUser(role = Role.USER)
+        @DisplayName("Метрики недоступны пользователю без роли администратора")
+        void prometheus_WhenNotAdmin_ShouldReturnForbidden() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/actuator/prometheus"))
+                    .andExpect(status().isForbidden());
+        }
+
+        @Test
+        @DisplayName("Состояние приложения доступно без аутентификации")
+        void health_ShouldBePublic() throws Exception {
+            // When & Then
+            mockMvc.perform(get("/actuator/health"))
+                    .andExpect(status().isOk());
+        }
+    }
+}
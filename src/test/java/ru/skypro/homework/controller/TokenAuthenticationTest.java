@@ -0,0 +1,160 @@
+package ru.skypro.homework.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Login;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.dto.user.PasswordChangeRequest;
+import ru.skypro.homework.dto.user.UserProfileResponse;
+import ru.skypro.homework.service.AuthenticatedUserDetails;
+import ru.skypro.homework.service.CustomUserDetailsService;
+import ru.skypro.homework.service.TokenService;
+import ru.skypro.homework.service.UserService;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверка режима аутентификации по токенам: вход без сессии и доступ по токену
+ */
+@SpringBootTest(properties = "security.auth.mode=token")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Тестирование аутентификации по токенам")
+class TokenAuthenticationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @MockitoBean
+    private AuthenticationManager authenticationManager;
+
+    @MockitoBean
+    private CustomUserDetailsService customUserDetailsService;
+
+    @MockitoBean
+    private UserService userService;
+
+    @Test
+    @DisplayName("Вход выдает токены и не создает сессию")
+    void login_ShouldReturnTokensWithoutSession() throws Exception {
+        // Given
+        Login login = new Login();
+        login.setUsername("user@mail.com");
+        login.setPassword("password");
+
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(UsernamePasswordAuthenticationToken.authenticated("user@mail.com", null, null));
+        when(customUserDetailsService.loadUserByUsername("user@mail.com")).thenReturn(user());
+
+        // When
+        MvcResult result = mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tokenType").value("Bearer"))
+                .andExpect(jsonPath("$.accessToken").isNotEmpty())
+                .andExpect(jsonPath("$.refreshToken").isNotEmpty())
+                .andReturn();
+
+        // Then
+        assertNull(result.getRequest().getSession(false));
+    }
+
+    @Test
+    @DisplayName("Запрос с токеном доступа аутентифицируется без сессии")
+    void getProfile_WithBearerToken_ShouldReturnOk() throws Exception {
+        // Given
+        when(customUserDetailsService.loadUserByUsername("user@mail.com")).thenReturn(user());
+        String accessToken = tokenService.issue("user@mail.com").accessToken();
+
+        UserProfileResponse profile = new UserProfileResponse();
+        profile.setEmail("user@mail.com");
+        when(userService.getUserProfile("user@mail.com")).thenReturn(profile);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/users/me").header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("user@mail.com"))
+                .andReturn();
+
+        // Then
+        assertNull(result.getRequest().getSession(false));
+    }
+
+    @Test
+    @DisplayName("Запрос с недействительным токеном отклоняется")
+    void getProfile_WithInvalidToken_ShouldReturnUnauthorized() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/users/me").header("Authorization", "Bearer invalid.token"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("Токен обновления выдает новый токен доступа")
+    void refresh_WithValidToken_ShouldReturnNewTokens() throws Exception {
+        // Given
+        when(customUserDetailsService.loadUserByUsername("user@mail.com")).thenReturn(user());
+        String refreshToken = tokenService.issue("user@mail.com").refreshToken();
+
+        // When & Then
+        mockMvc.perform(post("/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + refreshToken + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").isNotEmpty());
+    }
+
+    @Test
+    @DisplayName("Пользователь из токена доступа передается в контроллер без загрузки из БД")
+    void changePassword_WithBearerToken_ShouldResolveUserFromToken() throws Exception {
+        // Given
+        when(customUserDetailsService.loadUserByUsername("user@mail.com")).thenReturn(user());
+        String accessToken = tokenService.issue("user@mail.com").accessToken();
+
+        PasswordChangeRequest request = new PasswordChangeRequest();
+        request.setCurrentPassword("password");
+        request.setNewPassword("newPassword");
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "user@mail.com", Role.USER);
+        when(userService.changePassword(principal, "password", "newPassword")).thenReturn(true);
+
+        // When
+        mockMvc.perform(post("/users/set_password")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        // Then
+        verify(customUserDetailsService, times(1)).loadUserByUsername("user@mail.com");
+    }
+
+    private static AuthenticatedUserDetails user() {
+        return new AuthenticatedUserDetails(7L, "user@mail.com", "encodedPassword", Role.USER);
+    }
+}
@@ -10,10 +10,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.skypro.homework.config.WithAuthenticatedUser;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.dto.user.PasswordChangeRequest;
 import ru.skypro.homework.dto.user.UserProfileResponse;
 import ru.skypro.homework.dto.user.UserProfileUpdateRequest;
@@ -33,6 +35,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisplayName("Тестирование контроллера пользователей")
 class UserControllerTest {
 
+    private static final AuthenticatedUser PRINCIPAL = new AuthenticatedUser(1L, "testuser", Role.USER);
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -47,7 +51,7 @@ class UserControllerTest {
     class AvatarTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешная загрузка аватара пользователя")
         void uploadAvatar_Success() throws Exception {
             // Given
@@ -58,13 +62,34 @@ class UserControllerTest {
                     "test image content".getBytes()
             );
 
-            when(userService.uploadAvatar(eq("testuser"), any())).thenReturn(true);
+            when(userService.uploadAvatar(eq(PRINCIPAL), any())).thenReturn(true);
 
             mockMvc.perform(multipart(HttpMethod.PATCH, "/users/me/image")
                             .file(image)
                             .with(csrf()))
                     .andExpect(status().isOk());
         }
+
+        @Test
+        @WithAuthenticatedUser
+        @DisplayName("Загрузка файла, не являющегося изображением")
+        void uploadAvatar_NotAnImage_ShouldReturnBadRequest() throws Exception {
+            // Given
+            MockMultipartFile image = new MockMultipartFile(
+                    "image",
+                    "avatar.jpg",
+                    "image/jpeg",
+                    "not an image".getBytes()
+            );
+
+            when(userService.uploadAvatar(eq(PRINCIPAL), any()))
+                    .thenThrow(new IllegalArgumentException("Unsupported image format"));
+
+            mockMvc.perform(multipart(HttpMethod.PATCH, "/users/me/image")
+                            .file(image)
+                            .with(csrf()))
+                    .andExpect(status().isBadRequest());
+        }
     }
 
     @Nested
@@ -72,7 +97,7 @@ class UserControllerTest {
     class PasswordChangeTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешная смена пароля")
         void changePassword_Success() throws Exception {
             // Given
@@ -80,7 +105,7 @@ class UserControllerTest {
             request.setCurrentPassword("oldPassword");
             request.setNewPassword("newPassword");
 
-            when(userService.changePassword("testuser", "oldPassword", "newPassword"))
+            when(userService.changePassword(PRINCIPAL, "oldPassword", "newPassword"))
                     .thenReturn(true);
 
             // When & Then
@@ -92,7 +117,7 @@ class UserControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Ошибка смены пароля - неверный текущий пароль")
         void changePassword_Forbidden() throws Exception {
             // Given
@@ -100,7 +125,7 @@ class UserControllerTest {
             request.setCurrentPassword("wrongPassword");
             request.setNewPassword("newPassword");
 
-            when(userService.changePassword("testuser", "wrongPassword", "newPassword"))
+            when(userService.changePassword(PRINCIPAL, "wrongPassword", "newPassword"))
                     .thenReturn(false);
 
             // When & Then
@@ -117,7 +142,7 @@ class UserControllerTest {
     class ProfileTests {
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное получение профиля пользователя")
         void getProfile_Success() throws Exception {
             // Given
@@ -140,7 +165,7 @@ class UserControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Профиль пользователя не найден")
         void getProfile_NotFound() throws Exception {
             // Given
@@ -152,7 +177,7 @@ class UserControllerTest {
         }
 
         @Test
-        @WithMockUser(username = "testuser")
+        @WithAuthenticatedUser
         @DisplayName("Успешное обновление профиля пользователя")
         void updateProfile_Success() throws Exception {
             // Given
@@ -0,0 +1,215 @@
+package ru.skypro.homework.controller;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.service.AdService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка, что обработка запросов в виртуальных потоках не закрепляет их за потоками-носителями.
+ * Приложение запускается на случайном порту с пулом из двух соединений, поэтому параллельные запросы
+ * ждут соединение, читают и пишут в БД, проходят кэш Basic-аутентификации и читают файлы изображений.
+ * События {@code jdk.VirtualThreadPinned} записываются JFR; тест выполняется только на Java 21 и новее
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "path.to.avatars.folder=target/pinning-test/avatars",
+        "path.to.ads.folder=target/pinning-test/ads",
+        "path.to.variants.folder=target/pinning-test/variants",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.org.springframework.transaction=WARN"})
+@ActiveProfiles("test")
+@DisplayName("Тестирование закрепления виртуальных потоков")
+class VirtualThreadPinningTest {
+    private static final int CLIENTS = 32;
+    private static final int ROUNDS_PER_CLIENT = 10;
+    private static final String PASSWORD = "password";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AdService adService;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User user;
+    private long adId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        user = new User();
+        user.setUsername("pinning-" + UUID.randomUUID() + "@mail.ru");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setFirstName("Author");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", png);
+        MockMultipartFile image = new MockMultipartFile("image", "image.png", "image/png", png.toByteArray());
+        adId = adService.createAd(new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole()),
+                "Pinning test ad", 100, "description", image).getPk();
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll(commentRepository.findAll().stream()
+                .filter(comment -> comment.getAd().getId().equals(adId))
+                .toList());
+        adRepository.deleteById(adId);
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    @DisplayName("Параллельные запросы к БД и файлам не закрепляют виртуальные потоки")
+    void concurrentRequests_ShouldNotPinVirtualThreads() throws Exception {
+        // Given
+        Path dump = Files.createTempFile("pinning", ".jfr");
+        List<RecordedEvent> pinned;
+
+        // When
+        int failures;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            failures = runClients();
+            recording.stop();
+            recording.dump(dump);
+            pinned = RecordingFile.readAllEvents(dump);
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+
+        // Then
+        assertEquals(0, failures, "All requests must succeed");
+        assertTrue(pinned.isEmpty(), () -> "Pinned virtual threads:\n" + pinned.stream()
+                .map(VirtualThreadPinningTest::describe)
+                .collect(Collectors.joining("\n\n")));
+    }
+
+    /**
+     * Выполнение запросов параллельными клиентами
+     *
+     * @return число неуспешных ответов
+     */
+    private int runClients() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        String authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((user.getUsername() + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(executor.submit(() -> {
+                    int failed = 0;
+                    for (int i = 0; i < ROUNDS_PER_CLIENT; i++) {
+                        for (HttpRequest request : round(authorization)) {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                failed++;
+                            }
+                        }
+                    }
+                    return failed;
+                }));
+            }
+            int failures = 0;
+            for (Future<Integer> future : futures) {
+                failures += future.get(2, TimeUnit.MINUTES);
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<HttpRequest> round(String authorization) {
+        return List.of(
+                get("/users/me", authorization),
+                get("/ads?limit=5", authorization),
+                get("/ads/" + adId + "/comments", authorization),
+                get("/ads/" + adId + "/image", authorization),
+                HttpRequest.newBuilder(uri("/ads/" + adId + "/comments"))
+                        .header("Authorization", authorization)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"Pinning test comment\"}"))
+                        .build());
+    }
+
+    private HttpRequest get(String path, String authorization) {
+        return HttpRequest.newBuilder(uri(path)).header("Authorization", authorization).GET().build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return event.getThread() + " (no stack trace)";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .limit(20)
+                .map(RecordedFrame::getMethod)
+                .map(method -> "  at " + method.getType().getName() + "." + method.getName())
+                .collect(Collectors.joining("\n"));
+    }
+}
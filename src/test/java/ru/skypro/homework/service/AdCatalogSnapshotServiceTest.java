@@ -0,0 +1,119 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.skypro.homework.dto.ad.AdFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Тестирование AdCatalogSnapshotService")
+class AdCatalogSnapshotServiceTest {
+
+    @Mock
+    private AdService adService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AdCatalogSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        snapshotService = new AdCatalogSnapshotService(adService, objectMapper, 3, Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Снимок недоступен до первой перестройки")
+    void page_BeforeRebuild_ShouldBeEmpty() {
+        assertTrue(snapshotService.page(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Перестройка сохраняет страницы по курсорам до последней страницы")
+    void rebuild_ShouldStorePagesByCursor() throws IOException {
+        // Given
+        when(adService.getAllAds(AdFilter.NONE, null, null, null)).thenReturn(page(2, "c1"));
+        when(adService.getAllAds(AdFilter.NONE, "c1", null, null)).thenReturn(page(2, null));
+
+        // When
+        snapshotService.rebuild();
+
+        // Then
+        AdCatalogSnapshotService.Page first = snapshotService.page(null).orElseThrow();
+        assertArrayEquals(objectMapper.writeValueAsBytes(page(2, "c1")), first.json());
+        assertArrayEquals(first.json(), gunzip(first.gzip()));
+        assertTrue(snapshotService.page("c1").isPresent());
+        assertTrue(snapshotService.page("c2").isEmpty());
+        assertNotEquals(first.etag(), first.gzipEtag());
+    }
+
+    @Test
+    @DisplayName("Неизменившаяся страница сохраняет версию при перестройке")
+    void rebuild_WhenPageUnchanged_ShouldKeepVersion() {
+        // Given
+        when(adService.getAllAds(AdFilter.NONE, null, null, null))
+                .thenReturn(page(2, null))
+                .thenReturn(page(2, null))
+                .thenReturn(page(3, null));
+
+        // When
+        snapshotService.rebuild();
+        String initial = snapshotService.page(null).orElseThrow().etag();
+        snapshotService.rebuild();
+        String unchanged = snapshotService.page(null).orElseThrow().etag();
+        snapshotService.rebuild();
+        String changed = snapshotService.page(null).orElseThrow().etag();
+
+        // Then
+        assertEquals(initial, unchanged);
+        assertNotEquals(initial, changed);
+    }
+
+    @Test
+    @DisplayName("Ошибка перестройки сбрасывает снимок")
+    void rebuild_WhenListingFails_ShouldDropSnapshot() {
+        // Given
+        when(adService.getAllAds(AdFilter.NONE, null, null, null))
+                .thenReturn(page(1, null))
+                .thenThrow(new IllegalStateException("database unavailable"));
+        snapshotService.rebuild();
+
+        // When
+        snapshotService.rebuild();
+
+        // Then
+        assertTrue(snapshotService.page(null).isEmpty());
+    }
+
+    private static Map<String, Object> page(int count, String next) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("count", count);
+        body.put("next", next);
+        return body;
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return input.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.projection.AdExportView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Тестирование AdExportService")
+class AdExportServiceTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Mock
+    private AdRepository adRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ObjectMapper objectMapper;
+    private AdExportService adExportService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        adExportService = new AdExportService(adRepository, transactionManager, objectMapper, Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Выгрузка всего каталога по одному объекту в строке")
+    void exportAds_ShouldWriteOneJsonObjectPerLine() throws IOException {
+        // Given
+        AtomicBoolean closed = new AtomicBoolean();
+        when(adRepository.streamForExport()).thenReturn(Stream.of(
+                        new AdExportView(1L, 7L, "Bike", 100, "Red, almost new", "abc", CREATED, CREATED),
+                        new AdExportView(2L, 8L, "Sofa", null, null, null, CREATED, CREATED.plusDays(1)))
+                .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long exported = adExportService.exportAds(null, output);
+
+        // Then
+        assertEquals(2, exported);
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1L, first.get("id").asLong());
+        assertEquals(7L, first.get("authorId").asLong());
+        assertEquals("Red, almost new", first.get("description").asText());
+        assertEquals("2024-05-02T10:00:00", objectMapper.readTree(lines[1]).get("updatedAt").asText());
+        assertTrue(closed.get(), "Cursor stream must be closed");
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Инкрементальная выгрузка по времени изменения с окном перекрытия")
+    void exportAds_WithUpdatedSince_ShouldUseIncrementalQueryWithOverlap() throws IOException {
+        // Given
+        LocalDateTime since = CREATED.plusHours(1);
+        when(adRepository.streamForExportUpdatedSince(since.minusMinutes(5))).thenReturn(Stream.empty());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long exported = adExportService.exportAds(since, output);
+
+        // Then
+        assertEquals(0, exported);
+        assertEquals(0, output.size());
+        verify(adRepository, never()).streamForExport();
+    }
+}
@@ -0,0 +1,168 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.homework.dto.ad.AdImportReport;
+import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Тестирование AdImportService")
+class AdImportServiceTest {
+
+    @Mock
+    private AdRepository adRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private AdImportService adImportService;
+
+    @BeforeEach
+    void setUp() {
+        adImportService = new AdImportService(adRepository, userRepository,
+                new TransactionTemplate(transactionManager), eventPublisher, new ObjectMapper(), 2, 10);
+        User author = new User();
+        author.setId(1L);
+        lenient().when(userRepository.findExistingIds(anyCollection())).thenReturn(List.of(1L));
+        lenient().when(userRepository.getReferenceById(1L)).thenReturn(author);
+    }
+
+    @Test
+    @DisplayName("Импорт CSV с полями в кавычках пакетами заданного размера")
+    void importAds_Csv_ShouldSaveRowsInChunks() throws IOException {
+        // Given
+        String csv = """
+                authorId,title,price,description
+                1,Bike,100,"Red, almost new"
+                1,"Sofa ""Comfort""\",,"Two lines
+                of description"
+                1,Table,50,
+                """;
+        List<List<Ad>> savedChunks = captureSavedChunks();
+
+        // When
+        AdImportReport report = adImportService.importAds(input(csv), AdImportService.Format.CSV);
+
+        // Then
+        assertEquals(3, report.imported());
+        assertEquals(0, report.rejected());
+        assertEquals(2, report.chunks());
+        assertEquals(List.of(2, 1), savedChunks.stream().map(List::size).toList());
+        Ad sofa = savedChunks.get(0).get(1);
+        assertEquals("Sofa \"Comfort\"", sofa.getTitle());
+        assertNull(sofa.getPrice());
+        assertEquals("Two lines\nof description", sofa.getDescription());
+        assertEquals("Red, almost new", savedChunks.get(0).get(0).getDescription());
+        verify(transactionManager, times(2)).commit(any());
+        verify(eventPublisher, times(2)).publishEvent(any(AdCatalogChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Отклонение некорректных строк NDJSON с номерами строк")
+    void importAds_NdjsonWithInvalidRows_ShouldReportErrors() throws IOException {
+        // Given
+        String ndjson = """
+                {"title":"Bike","price":100,"authorId":1}
+                {"title":"","authorId":1}
+
+                not json
+                {"title":"Lamp","price":-5,"authorId":1}
+                {"title":"Chair","authorId":2}
+                """;
+        captureSavedChunks();
+
+        // When
+        AdImportReport report = adImportService.importAds(input(ndjson), AdImportService.Format.NDJSON);
+
+        // Then
+        assertEquals(1, report.imported());
+        assertEquals(4, report.rejected());
+        assertEquals(List.of(2L, 4L, 5L, 6L),
+                report.errors().stream().map(AdImportReport.RowError::line).toList());
+        assertEquals("Author not found: 2", report.errors().get(3).message());
+    }
+
+    @Test
+    @DisplayName("Ошибка сохранения пакета не отменяет зафиксированные пакеты")
+    void importAds_WhenChunkFails_ShouldKeepPreviousChunks() throws IOException {
+        // Given
+        String ndjson = """
+                {"title":"A","authorId":1}
+                {"title":"B","authorId":1}
+                {"title":"C","authorId":1}
+                """;
+        when(adRepository.saveAll(anyList()))
+                .thenReturn(List.of())
+                .thenThrow(new DataIntegrityViolationException("constraint violated"));
+
+        // When
+        AdImportReport report = adImportService.importAds(input(ndjson), AdImportService.Format.NDJSON);
+
+        // Then
+        assertEquals(2, report.imported());
+        assertEquals(1, report.rejected());
+        assertEquals(1, report.chunks());
+        assertEquals(3L, report.errors().get(0).line());
+    }
+
+    @Test
+    @DisplayName("CSV без обязательного столбца")
+    void importAds_CsvWithoutRequiredColumn_ShouldThrow() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+                adImportService.importAds(input("title,price\nBike,100\n"), AdImportService.Format.CSV));
+        verifyNoInteractions(adRepository);
+    }
+
+    @Test
+    @DisplayName("Определение формата по типу содержимого")
+    void format_FromContentType() {
+        assertEquals(AdImportService.Format.CSV, AdImportService.Format.fromContentType("text/csv; charset=UTF-8"));
+        assertEquals(AdImportService.Format.NDJSON, AdImportService.Format.fromContentType("application/x-ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> AdImportService.Format.fromContentType("application/json"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Ad>> captureSavedChunks() {
+        List<List<Ad>> chunks = new ArrayList<>();
+        when(adRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Ad> ads = new ArrayList<>((List<Ad>) invocation.getArgument(0));
+            chunks.add(ads);
+            return ads;
+        });
+        return chunks;
+    }
+
+    private static InputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,169 @@
+package ru.skypro.homework.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.dto.ad.AdFilter;
+import ru.skypro.homework.dto.ad.AdShortResponseDTO;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка, что выдача объявлений с фильтрами читает таблицу по индексам.
+ * Объявления создаются в транзакции теста и удаляются ее откатом; после сбора статистики
+ * число последовательных и индексных чтений таблицы берется из pg_stat_xact_user_tables текущей транзакции
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("Тестирование планов запросов выдачи объявлений")
+class AdListingQueryPlanTest {
+    private static final int SEEDED_ADS = 20_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private AdService adService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        author = createUser();
+        User other = createUser();
+        // Каждое сотое объявление принадлежит автору, каждое пятидесятое - без цены
+        entityManager.createNativeQuery("insert into ads (title, price, file_size, created_at, user_id)"
+                        + " select 'Объявление ' || g, case when g % 50 = 0 then null else g % 10000 end, 0,"
+                        + " localtimestamp - g * interval '1 minute',"
+                        + " case when g % 100 = 1 then :author else :other end"
+                        + " from generate_series(1, :count) g")
+                .setParameter("author", author.getId())
+                .setParameter("other", other.getId())
+                .setParameter("count", SEEDED_ADS)
+                .executeUpdate();
+        entityManager.createNativeQuery("analyze ads").executeUpdate();
+    }
+
+    @Nested
+    @DisplayName("Тесты отсутствия последовательного чтения")
+    class IndexUsageTests {
+
+        @Test
+        @DisplayName("Выдача без фильтров по каждой сортировке")
+        void getAllAds_WithoutFilter_ShouldUseIndexes() {
+            assertIndexScansOnly(AdFilter.NONE, "id");
+            assertIndexScansOnly(AdFilter.NONE, "price");
+            assertIndexScansOnly(AdFilter.NONE, "created");
+        }
+
+        @Test
+        @DisplayName("Отбор по диапазону цены")
+        void getAllAds_WithPriceRange_ShouldUseIndexes() {
+            AdFilter filter = new AdFilter(100, 500, null);
+            assertIndexScansOnly(filter, "id");
+            assertIndexScansOnly(filter, "price");
+            assertIndexScansOnly(filter, "created");
+        }
+
+        @Test
+        @DisplayName("Отбор по автору")
+        void getAllAds_WithAuthor_ShouldUseIndexes() {
+            AdFilter filter = new AdFilter(null, null, author.getId());
+            assertIndexScansOnly(filter, "id");
+            assertIndexScansOnly(filter, "price");
+            assertIndexScansOnly(filter, "created");
+        }
+
+        @Test
+        @DisplayName("Отбор по автору и цене")
+        void getAllAds_WithAuthorAndPrice_ShouldUseIndexes() {
+            AdFilter filter = new AdFilter(1000, null, author.getId());
+            assertIndexScansOnly(filter, "price");
+            assertIndexScansOnly(filter, "created");
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты результатов отбора")
+    class FilterResultTests {
+
+        @Test
+        @DisplayName("На всех страницах только объявления автора в заданном диапазоне цены")
+        void getAllAds_WithFilter_ShouldReturnOnlyMatchingAds() {
+            // Given
+            AdFilter filter = new AdFilter(2000, 6000, author.getId());
+
+            // When
+            Map<String, Object> first = adService.getAllAds(filter, null, PAGE_SIZE, "price");
+            Map<String, Object> second = adService.getAllAds(filter, (String) first.get("next"), PAGE_SIZE, "price");
+
+            // Then
+            List<AdShortResponseDTO> ads = new ArrayList<>(results(first));
+            ads.addAll(results(second));
+            assertEquals(2 * PAGE_SIZE, ads.size());
+            assertTrue(ads.stream().allMatch(ad -> ad.getAuthor().equals(author.getId())));
+            assertTrue(ads.stream().allMatch(ad -> ad.getPrice() >= 2000 && ad.getPrice() <= 6000));
+            assertEquals(ads.stream().map(AdShortResponseDTO::getPrice).sorted().toList(),
+                    ads.stream().map(AdShortResponseDTO::getPrice).toList());
+        }
+    }
+
+    /**
+     * Чтение первой и второй страницы с проверкой, что таблица объявлений читалась только по индексам
+     */
+    private void assertIndexScansOnly(AdFilter filter, String sort) {
+        long[] before = scans();
+
+        Map<String, Object> first = adService.getAllAds(filter, null, PAGE_SIZE, sort);
+        assertNotNull(first.get("next"), "Seeded data must span several pages");
+        adService.getAllAds(filter, (String) first.get("next"), PAGE_SIZE, sort);
+
+        long[] after = scans();
+        assertEquals(0, after[0] - before[0], "Sequential scans of ads for " + filter + ", sort " + sort);
+        assertTrue(after[1] - before[1] >= 2, "Index scans of ads for " + filter + ", sort " + sort);
+    }
+
+    /**
+     * Число последовательных и индексных чтений таблицы объявлений в текущей транзакции
+     */
+    private long[] scans() {
+        Object[] row = (Object[]) entityManager.createNativeQuery("select seq_scan, idx_scan"
+                        + " from pg_stat_xact_user_tables where relname = 'ads' and schemaname = current_schema()")
+                .getSingleResult();
+        return new long[]{((Number) row[0]).longValue(), ((Number) row[1]).longValue()};
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setUsername("plan-" + UUID.randomUUID() + "@mail.ru");
+        user.setPassword("password");
+        user.setFirstName("Author");
+        user.setRole(Role.USER);
+        return userRepository.save(user);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AdShortResponseDTO> results(Map<String, Object> response) {
+        return (List<AdShortResponseDTO>) response.get("results");
+    }
+}
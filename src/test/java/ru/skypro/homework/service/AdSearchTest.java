@@ -0,0 +1,152 @@
+package ru.skypro.homework.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.dto.ad.AdSearchResultDTO;
+import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка полнотекстового поиска объявлений на PostgreSQL.
+ * Каждое объявление содержит случайное слово, чтобы результаты не зависели от других данных в БД
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Тестирование полнотекстового поиска объявлений")
+class AdSearchTest {
+
+    @Autowired
+    private AdService adService;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Ad> ads = new ArrayList<>();
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("search-" + UUID.randomUUID() + "@mail.ru");
+        user.setPassword("password");
+        user.setFirstName("Author");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+        token = randomWord();
+    }
+
+    @AfterEach
+    void tearDown() {
+        adRepository.deleteAll(ads);
+        userRepository.delete(user);
+    }
+
+    @Test
+    @DisplayName("Совпадение в заголовке релевантнее совпадения в описании")
+    void searchAds_ShouldRankTitleMatchesFirst() {
+        // Given
+        Ad inDescription = createAd("горный " + token, "отличный велосипед для города");
+        Ad inTitle = createAd("велосипед " + token, "почти новый");
+        createAd("самокат " + token, "складной");
+
+        // When
+        List<AdSearchResultDTO> results = results(adService.searchAds("велосипед " + token, null, null));
+
+        // Then
+        assertEquals(List.of(inTitle.getId(), inDescription.getId()),
+                results.stream().map(AdSearchResultDTO::getPk).toList());
+    }
+
+    @Test
+    @DisplayName("Выдача продолжается по курсору без повторов")
+    void searchAds_ShouldPaginateWithCursor() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            createAd("лодка " + token, "описание " + i);
+        }
+
+        // When
+        Map<String, Object> first = adService.searchAds(token, null, 2);
+        Map<String, Object> second = adService.searchAds(token, (String) first.get("next"), 2);
+
+        // Then
+        assertEquals(2, first.get("count"));
+        assertEquals(1, second.get("count"));
+        assertFalse(second.containsKey("next"));
+        List<Long> ids = new ArrayList<>(results(first).stream().map(AdSearchResultDTO::getPk).toList());
+        ids.addAll(results(second).stream().map(AdSearchResultDTO::getPk).toList());
+        assertEquals(3, ids.stream().distinct().count());
+    }
+
+    @Test
+    @DisplayName("Совпадения выделяются, а пользовательская разметка экранируется")
+    void searchAds_ShouldHighlightAndEscape() {
+        // Given
+        createAd("<b>велосипед</b> " + token, "продается велосипед");
+
+        // When
+        AdSearchResultDTO result = results(adService.searchAds("велосипед " + token, null, null)).get(0);
+
+        // Then
+        assertTrue(result.getTitleHighlight().startsWith("&lt;b&gt;<mark>велосипед</mark>&lt;/b&gt;"),
+                result.getTitleHighlight());
+        assertEquals("продается <mark>велосипед</mark>", result.getDescriptionHighlight());
+    }
+
+    @Test
+    @DisplayName("Объявления без всех слов запроса не находятся")
+    void searchAds_WithoutAllTerms_ShouldReturnEmpty() {
+        // Given
+        createAd("велосипед " + token, "горный");
+
+        // When
+        Map<String, Object> response = adService.searchAds("самокат " + token, null, null);
+
+        // Then
+        assertEquals(0, response.get("count"));
+    }
+
+    private Ad createAd(String title, String description) {
+        Ad ad = new Ad();
+        ad.setTitle(title);
+        ad.setDescription(description);
+        ad.setPrice(100);
+        ad.setUser(user);
+        ad = adRepository.save(ad);
+        ads.add(ad);
+        return ad;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AdSearchResultDTO> results(Map<String, Object> response) {
+        return (List<AdSearchResultDTO>) response.get("results");
+    }
+
+    private static String randomWord() {
+        StringBuilder word = new StringBuilder("zz");
+        for (int i = 0; i < 10; i++) {
+            word.append((char) ('a' + ThreadLocalRandom.current().nextInt(26)));
+        }
+        return word.toString();
+    }
+}
@@ -4,34 +4,43 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.dto.ad.AdFilter;
 import ru.skypro.homework.dto.ad.AdFullResponseDTO;
+import ru.skypro.homework.dto.ad.AdSearchResultDTO;
 import ru.skypro.homework.dto.ad.AdUpdateRequestDTO;
 import ru.skypro.homework.entity.Ad;
 import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdPreviewRepository;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.repository.projection.AdDetailsView;
+import ru.skypro.homework.repository.projection.AdSearchView;
+import ru.skypro.homework.repository.projection.AdSummaryView;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,9 +53,18 @@ class AdServiceTest {
     @Mock
     private AdRepository adRepository;
 
+    @Mock
+    private AdPreviewRepository adPreviewRepository;
+
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ImageUploadWriter imageUploadWriter;
+
     @InjectMocks
     private AdService adService;
 
@@ -58,7 +76,7 @@ class AdServiceTest {
         @DisplayName("Создание объявления с валидными данными")
         void createAd_WithValidData_ShouldReturnAdFullResponseDTO() throws IOException {
             // Given
-            String username = "test@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
             String title = "Test Ad";
             Integer price = 1000;
             String description = "Test Description";
@@ -71,58 +89,84 @@ class AdServiceTest {
             );
 
             User user = new User();
-            user.setUsername(username);
+            user.setUsername(principal.username());
             user.setFirstName("John");
             user.setLastName("Doe");
             user.setPhone("+79998887766");
 
             ReflectionTestUtils.setField(adService, "adDir", "/tmp/test");
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+            when(userRepository.findById(1L)).thenReturn(Optional.of(user));
             when(adRepository.save(any(Ad.class))).thenAnswer(invocation -> {
                 Ad ad = invocation.getArgument(0);
                 ad.setId(1L);
-                ad.setFilePath("/tmp/test/test_file.jpg");
                 return ad;
             });
 
-            try (MockedStatic<Files> filesMock = mockStatic(Files.class)) {
-                filesMock.when(() -> Files.createDirectories(any(Path.class))).thenReturn(Paths.get("/tmp/test"));
-                filesMock.when(() -> Files.copy(any(InputStream.class), any(Path.class), any(CopyOption.class)))
-                        .thenReturn(1L);
-
-                try (MockedStatic<ImageIO> imageIOMock = mockStatic(ImageIO.class)) {
-                    BufferedImage mockImage = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
-                    imageIOMock.when(() -> ImageIO.read(any(InputStream.class))).thenReturn(mockImage);
-                    imageIOMock.when(() -> ImageIO.write(any(BufferedImage.class), anyString(), any(OutputStream.class)))
-                            .thenReturn(true);
-
-                    // When
-                    AdFullResponseDTO result = adService.createAd(username, title, price, description, imageFile);
-
-                    // Then
-                    assertNotNull(result);
-                    assertEquals(1L, result.getPk());
-                    assertEquals(title, result.getTitle());
-                    assertEquals(price, result.getPrice());
-                    assertEquals(description, result.getDescription());
-                }
-            }
+            when(imageUploadWriter.store(eq(imageFile), any())).thenAnswer(invocation -> {
+                Function<ImageUploadWriter.Format, Path> target = invocation.getArgument(1);
+                return new ImageUploadWriter.StoredImage(target.apply(ImageUploadWriter.Format.JPEG),
+                        18, "hash", ImageUploadWriter.Format.JPEG);
+            });
+
+            // When
+            AdFullResponseDTO result = adService.createAd(principal, title, price, description, imageFile);
+
+            // Then
+            assertNotNull(result);
+            assertEquals(1L, result.getPk());
+            assertEquals(title, result.getTitle());
+            assertEquals(price, result.getPrice());
+            assertEquals(description, result.getDescription());
+            verify(adRepository).save(argThat(ad -> Path.of(ad.getFilePath()).startsWith(Path.of("/tmp/test"))
+                    && ad.getFilePath().endsWith(".jpg")
+                    && "image/jpeg".equals(ad.getMediaType())
+                    && ad.getFileSize() == 18L
+                    && "hash".equals(ad.getFileHash())));
+            verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                    event instanceof ImageUploadedEvent uploaded
+                            && uploaded.owner() == ImageUploadedEvent.Owner.AD
+                            && uploaded.id().equals(1L)
+                            && "image/jpeg".equals(uploaded.mediaType())));
+            verifyNoInteractions(adPreviewRepository);
+        }
+
+        @Test
+        @DisplayName("Создание объявления с файлом, не являющимся изображением")
+        void createAd_WithNonImageFile_ShouldRejectBeforeSaving() throws IOException {
+            // Given
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
+            MockMultipartFile imageFile = new MockMultipartFile(
+                    "image", "test.jpg", "image/jpeg", "not an image".getBytes()
+            );
+            User user = new User();
+            user.setUsername(principal.username());
+
+            ReflectionTestUtils.setField(adService, "adDir", "/tmp/test");
+            when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+            when(imageUploadWriter.store(eq(imageFile), any()))
+                    .thenThrow(new IllegalArgumentException("Unsupported image format"));
+
+            // When & Then
+            assertThrows(IllegalArgumentException.class, () ->
+                    adService.createAd(principal, "Title", 1000, "Description", imageFile));
+            verify(adRepository, never()).save(any(Ad.class));
+            verifyNoInteractions(eventPublisher);
         }
 
         @Test
         @DisplayName("Создание объявления несуществующим пользователем")
         void createAd_WithNonExistentUser_ShouldReturnNull() throws IOException {
             // Given
-            String username = "nonexistent@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "nonexistent@mail.ru", Role.USER);
             MockMultipartFile imageFile = new MockMultipartFile(
                     "image", "test.jpg", "image/jpeg", "test".getBytes()
             );
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+            when(userRepository.findById(1L)).thenReturn(Optional.empty());
 
             // When
-            AdFullResponseDTO result = adService.createAd(username, "Title", 1000, "Description", imageFile);
+            AdFullResponseDTO result = adService.createAd(principal, "Title", 1000, "Description", imageFile);
 
             // Then
             assertNull(result);
@@ -137,30 +181,62 @@ class AdServiceTest {
         @DisplayName("Получение всех объявлений")
         void getAllAds_ShouldReturnMapWithCountAndResults() {
             // Given
-            User user = new User();
-            user.setId(1L);
+            AdSummaryView ad1 = new AdSummaryView(1L, 1L, 1000, "Ad 1", LocalDateTime.now(), null);
+            AdSummaryView ad2 = new AdSummaryView(2L, 1L, 2000, "Ad 2", LocalDateTime.now(), null);
 
-            Ad ad1 = new Ad();
-            ad1.setId(1L);
-            ad1.setTitle("Ad 1");
-            ad1.setPrice(1000);
-            ad1.setUser(user);
-
-            Ad ad2 = new Ad();
-            ad2.setId(2L);
-            ad2.setTitle("Ad 2");
-            ad2.setPrice(2000);
-            ad2.setUser(user);
-
-            when(adRepository.findAll()).thenReturn(List.of(ad1, ad2));
+            ReflectionTestUtils.setField(adService, "defaultPageLimit", 20);
+            ReflectionTestUtils.setField(adService, "maxPageLimit", 100);
+            when(adRepository.findFilteredPageAfterId(AdFilter.NONE, 0L, Limit.of(21))).thenReturn(List.of(ad1, ad2));
 
             // When
-            Map<String, Object> result = adService.getAllAds();
+            Map<String, Object> result = adService.getAllAds(AdFilter.NONE, null, null, null);
 
             // Then
             assertNotNull(result);
             assertEquals(2, result.get("count"));
             assertTrue(result.containsKey("results"));
+            assertFalse(result.containsKey("next"));
+        }
+
+        @Test
+        @DisplayName("Получение следующей страницы объявлений по курсору")
+        void getAllAds_WhenMorePagesExist_ShouldReturnCursorForNextPage() {
+            // Given
+            AdSummaryView ad1 = new AdSummaryView(1L, 1L, 1000, "Ad 1", LocalDateTime.now(), null);
+            AdSummaryView ad2 = new AdSummaryView(2L, 1L, 2000, "Ad 2", LocalDateTime.now(), null);
+            AdSummaryView ad3 = new AdSummaryView(3L, 1L, 3000, "Ad 3", LocalDateTime.now(), null);
+
+            ReflectionTestUtils.setField(adService, "defaultPageLimit", 20);
+            ReflectionTestUtils.setField(adService, "maxPageLimit", 100);
+            when(adRepository.findFilteredPageAfterPrice(AdFilter.NONE, Integer.MIN_VALUE, 0L, Limit.of(3))).thenReturn(List.of(ad1, ad2, ad3));
+            when(adRepository.findFilteredPageAfterPrice(AdFilter.NONE, 2000, 2L, Limit.of(3))).thenReturn(List.of(ad3));
+
+            // When
+            Map<String, Object> firstPage = adService.getAllAds(AdFilter.NONE, null, 2, "price");
+            Map<String, Object> secondPage = adService.getAllAds(AdFilter.NONE, (String) firstPage.get("next"), 2, "price");
+
+            // Then
+            assertEquals(2, firstPage.get("count"));
+            assertNotNull(firstPage.get("next"));
+            assertEquals(1, secondPage.get("count"));
+            assertFalse(secondPage.containsKey("next"));
+        }
+
+        @Test
+        @DisplayName("Курсор, выданный для другой сортировки, отклоняется")
+        void getAllAds_WithCursorOfOtherSort_ShouldThrow() {
+            // Given
+            AdSummaryView ad1 = new AdSummaryView(1L, 1L, 1000, "Ad 1", LocalDateTime.now(), null);
+            AdSummaryView ad2 = new AdSummaryView(2L, 1L, 2000, "Ad 2", LocalDateTime.now(), null);
+
+            ReflectionTestUtils.setField(adService, "defaultPageLimit", 1);
+            ReflectionTestUtils.setField(adService, "maxPageLimit", 100);
+            when(adRepository.findFilteredPageAfterId(AdFilter.NONE, 0L, Limit.of(2))).thenReturn(List.of(ad1, ad2));
+            String cursor = (String) adService.getAllAds(AdFilter.NONE, null, null, "id").get("next");
+
+            // When & Then
+            assertThrows(IllegalArgumentException.class, () -> adService.getAllAds(AdFilter.NONE, cursor, null, "price"));
+            assertThrows(IllegalArgumentException.class, () -> adService.getAllAds(AdFilter.NONE, "not-a-cursor", null, "id"));
         }
 
         @Test
@@ -168,20 +244,14 @@ class AdServiceTest {
         void getUserAds_ShouldReturnUserAds() {
             // Given
             String username = "test@mail.ru";
-            User user = new User();
-            user.setId(1L);
-            user.setUsername(username);
+            AdSummaryView ad = new AdSummaryView(1L, 1L, 1000, "User Ad", LocalDateTime.now(), null);
 
-            Ad ad = new Ad();
-            ad.setId(1L);
-            ad.setTitle("User Ad");
-            ad.setPrice(1000);
-            ad.setUser(user);
-
-            when(adRepository.findByUser_Username(username)).thenReturn(List.of(ad));
+            ReflectionTestUtils.setField(adService, "defaultPageLimit", 20);
+            ReflectionTestUtils.setField(adService, "maxPageLimit", 100);
+            when(adRepository.findUserPageAfterId(username, 0L, Limit.of(21))).thenReturn(List.of(ad));
 
             // When
-            Map<String, Object> result = adService.getUserAds(username);
+            Map<String, Object> result = adService.getUserAds(username, null, null, null);
 
             // Then
             assertNotNull(result);
@@ -193,20 +263,10 @@ class AdServiceTest {
         void getAdById_WhenAdExists_ShouldReturnAdFullResponseDTO() {
             // Given
             Long adId = 1L;
-            User user = new User();
-            user.setFirstName("John");
-            user.setLastName("Doe");
-            user.setUsername("test@mail.ru");
-            user.setPhone("+79998887766");
+            AdDetailsView ad = new AdDetailsView(adId, "Test Ad", 1000, "Test Description",
+                    "John", "Doe", "test@mail.ru", "+79998887766", null);
 
-            Ad ad = new Ad();
-            ad.setId(adId);
-            ad.setTitle("Test Ad");
-            ad.setPrice(1000);
-            ad.setDescription("Test Description");
-            ad.setUser(user);
-
-            when(adRepository.findById(adId)).thenReturn(Optional.of(ad));
+            when(adRepository.findDetailsById(adId)).thenReturn(Optional.of(ad));
 
             // When
             AdFullResponseDTO result = adService.getAdById(adId);
@@ -215,6 +275,7 @@ class AdServiceTest {
             assertNotNull(result);
             assertEquals(adId, result.getPk());
             assertEquals("Test Ad", result.getTitle());
+            assertEquals("test@mail.ru", result.getEmail());
         }
 
         @Test
@@ -222,7 +283,7 @@ class AdServiceTest {
         void getAdById_WhenAdNotExists_ShouldReturnNull() {
             // Given
             Long adId = 999L;
-            when(adRepository.findById(adId)).thenReturn(Optional.empty());
+            when(adRepository.findDetailsById(adId)).thenReturn(Optional.empty());
 
             // When
             AdFullResponseDTO result = adService.getAdById(adId);
@@ -232,6 +293,64 @@ class AdServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Тесты поиска объявлений")
+    class SearchAdsTests {
+
+        @Test
+        @DisplayName("Пустой или слишком длинный запрос отклоняется")
+        void searchAds_WithInvalidQuery_ShouldThrow() {
+            // When & Then
+            assertThrows(IllegalArgumentException.class, () -> adService.searchAds(" ", null, null));
+            assertThrows(IllegalArgumentException.class, () -> adService.searchAds("a".repeat(201), null, null));
+            verifyNoInteractions(adRepository);
+        }
+
+        @Test
+        @DisplayName("Следующая страница запрашивается после ранга и ID последнего результата")
+        void searchAds_WhenMorePagesExist_ShouldReturnCursorForNextPage() {
+            // Given
+            AdSearchView ad1 = new AdSearchView(5L, 1L, 100, "Bike", null, 0.9f, "Bike", null);
+            AdSearchView ad2 = new AdSearchView(3L, 1L, 200, "Bike", null, 0.5f, "Bike", null);
+
+            ReflectionTestUtils.setField(adService, "defaultPageLimit", 20);
+            ReflectionTestUtils.setField(adService, "maxPageLimit", 100);
+            when(adRepository.search("bike", Float.MAX_VALUE, Long.MAX_VALUE, 2)).thenReturn(List.of(ad1, ad2));
+            when(adRepository.search("bike", 0.9f, 5L, 2)).thenReturn(List.of(ad2));
+
+            // When
+            Map<String, Object> firstPage = adService.searchAds("bike", null, 1);
+            Map<String, Object> secondPage = adService.searchAds("bike", (String) firstPage.get("next"), 1);
+
+            // Then
+            assertEquals(1, firstPage.get("count"));
+            assertNotNull(firstPage.get("next"));
+            assertEquals(1, secondPage.get("count"));
+            assertFalse(secondPage.containsKey("next"));
+            assertThrows(IllegalArgumentException.class, () -> adService.searchAds("bike", "not-a-cursor", 1));
+        }
+
+        @Test
+        @DisplayName("Границы совпадений заменяются тегом mark после экранирования текста")
+        void searchAds_ShouldEscapeHeadlineAndMarkMatches() {
+            // Given
+            String headline = "<b>" + AdSearchView.HIGHLIGHT_START + "Bike" + AdSearchView.HIGHLIGHT_END + "</b>";
+            AdSearchView ad = new AdSearchView(1L, 1L, 100, "<b>Bike</b>", null, 0.5f, headline, null);
+
+            ReflectionTestUtils.setField(adService, "defaultPageLimit", 20);
+            ReflectionTestUtils.setField(adService, "maxPageLimit", 100);
+            when(adRepository.search("bike", Float.MAX_VALUE, Long.MAX_VALUE, 21)).thenReturn(List.of(ad));
+
+            // When
+            @SuppressWarnings("unchecked")
+            List<AdSearchResultDTO> results = (List<AdSearchResultDTO>) adService.searchAds("bike", null, null).get("results");
+
+            // Then
+            assertEquals("&lt;b&gt;<mark>Bike</mark>&lt;/b&gt;", results.get(0).getTitleHighlight());
+            assertNull(results.get(0).getDescriptionHighlight());
+        }
+    }
+
     @Nested
     @DisplayName("Тесты удаления объявлений")
     class DeleteAdTests {
@@ -241,20 +360,20 @@ class AdServiceTest {
         void deleteAd_WhenAuthorized_ShouldReturnTrue() {
             // Given
             Long adId = 1L;
-            String username = "test@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
 
             User user = new User();
-            user.setUsername(username);
+            user.setUsername(principal.username());
 
             Ad ad = new Ad();
             ad.setId(adId);
             ad.setUser(user);
 
             when(adRepository.findById(adId)).thenReturn(Optional.of(ad));
-            when(userService.hasPermission(ad, username)).thenReturn(true);
+            when(userService.hasPermission(ad, principal)).thenReturn(true);
 
             // When
-            boolean result = adService.deleteAd(adId, username);
+            boolean result = adService.deleteAd(adId, principal);
 
             // Then
             assertTrue(result);
@@ -266,7 +385,7 @@ class AdServiceTest {
         void deleteAd_WhenNotAuthorized_ShouldReturnFalse() {
             // Given
             Long adId = 1L;
-            String username = "other@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(2L, "other@mail.ru", Role.USER);
 
             User user = new User();
             user.setUsername("test@mail.ru");
@@ -276,10 +395,10 @@ class AdServiceTest {
             ad.setUser(user);
 
             when(adRepository.findById(adId)).thenReturn(Optional.of(ad));
-            when(userService.hasPermission(ad, username)).thenReturn(false);
+            when(userService.hasPermission(ad, principal)).thenReturn(false);
 
             // When
-            boolean result = adService.deleteAd(adId, username);
+            boolean result = adService.deleteAd(adId, principal);
 
             // Then
             assertFalse(result);
@@ -296,7 +415,7 @@ class AdServiceTest {
         void updateAd_WhenAuthorized_ShouldReturnUpdatedAd() {
             // Given
             Long adId = 1L;
-            String username = "test@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
 
             AdUpdateRequestDTO updateRequest = new AdUpdateRequestDTO();
             updateRequest.setTitle("Updated Title");
@@ -304,7 +423,7 @@ class AdServiceTest {
             updateRequest.setDescription("Updated Description");
 
             User user = new User();
-            user.setUsername(username);
+            user.setUsername(principal.username());
             user.setFirstName("John");
             user.setLastName("Doe");
 
@@ -316,11 +435,11 @@ class AdServiceTest {
             ad.setUser(user);
 
             when(adRepository.findById(adId)).thenReturn(Optional.of(ad));
-            when(userService.hasPermission(ad, username)).thenReturn(true);
+            when(userService.hasPermission(ad, principal)).thenReturn(true);
             when(adRepository.save(any(Ad.class))).thenReturn(ad);
 
             // When
-            AdFullResponseDTO result = adService.updateAd(adId, updateRequest, username);
+            AdFullResponseDTO result = adService.updateAd(adId, updateRequest, principal);
 
             // Then
             assertNotNull(result);
@@ -334,7 +453,7 @@ class AdServiceTest {
         void updateAd_WhenNotAuthorized_ShouldReturnNull() {
             // Given
             Long adId = 1L;
-            String username = "other@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(2L, "other@mail.ru", Role.USER);
 
             AdUpdateRequestDTO updateRequest = new AdUpdateRequestDTO();
             updateRequest.setTitle("Updated Title");
@@ -347,14 +466,86 @@ class AdServiceTest {
             ad.setUser(user);
 
             when(adRepository.findById(adId)).thenReturn(Optional.of(ad));
-            when(userService.hasPermission(ad, username)).thenReturn(false);
+            when(userService.hasPermission(ad, principal)).thenReturn(false);
 
             // When
-            AdFullResponseDTO result = adService.updateAd(adId, updateRequest, username);
+            AdFullResponseDTO result = adService.updateAd(adId, updateRequest, principal);
 
             // Then
             assertNull(result);
             verify(adRepository, never()).save(any(Ad.class));
         }
+
+        @Test
+        @DisplayName("Прежнее изображение объявления удаляется только после фиксации транзакции")
+        void updateAdImage_ShouldDeleteOldFileOnlyAfterCommit(@TempDir Path adDir) throws IOException {
+            // Given
+            Path oldFile = Files.writeString(adDir.resolve("old.jpg"), "old");
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
+            MockMultipartFile imageFile = new MockMultipartFile("image", "new.jpg", "image/jpeg", "new".getBytes());
+            Ad ad = stubImageUpdate(adDir, oldFile, principal, imageFile);
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                // When
+                boolean result = adService.updateAdImage(ad.getId(), imageFile, principal);
+
+                // Then
+                assertTrue(result);
+                assertTrue(Files.exists(oldFile));
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                assertFalse(Files.exists(oldFile));
+                assertTrue(Files.exists(Path.of(ad.getFilePath())));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        @Test
+        @DisplayName("При откате транзакции новое изображение удаляется, а прежнее остаётся")
+        void updateAdImage_OnRollback_ShouldKeepOldFileAndDeleteNew(@TempDir Path adDir) throws IOException {
+            // Given
+            Path oldFile = Files.writeString(adDir.resolve("old.jpg"), "old");
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
+            MockMultipartFile imageFile = new MockMultipartFile("image", "new.jpg", "image/jpeg", "new".getBytes());
+            Ad ad = stubImageUpdate(adDir, oldFile, principal, imageFile);
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                // When
+                adService.updateAdImage(ad.getId(), imageFile, principal);
+                Path newFile = Path.of(ad.getFilePath());
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+                // Then
+                assertTrue(Files.exists(oldFile));
+                assertFalse(Files.exists(newFile));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        private Ad stubImageUpdate(Path adDir, Path oldFile, AuthenticatedUser principal,
+                                   MockMultipartFile imageFile) throws IOException {
+            User user = new User();
+            user.setUsername(principal.username());
+
+            Ad ad = new Ad();
+            ad.setId(1L);
+            ad.setUser(user);
+            ad.setFilePath(oldFile.toString());
+
+            ReflectionTestUtils.setField(adService, "adDir", adDir.toString());
+            when(adRepository.findById(ad.getId())).thenReturn(Optional.of(ad));
+            when(userService.hasPermission(ad, principal)).thenReturn(true);
+            when(imageUploadWriter.store(eq(imageFile), any())).thenAnswer(invocation -> {
+                Function<ImageUploadWriter.Format, Path> target = invocation.getArgument(1);
+                Path path = Files.write(target.apply(ImageUploadWriter.Format.JPEG), imageFile.getBytes());
+                return new ImageUploadWriter.StoredImage(path, 3, "hash", ImageUploadWriter.Format.JPEG);
+            });
+            return ad;
+        }
     }
-}
\ No newline at end of file
+}
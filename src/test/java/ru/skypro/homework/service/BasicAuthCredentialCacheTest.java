@@ -0,0 +1,201 @@
+package ru.skypro.homework.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тестирование кэша учетных данных Basic-аутентификации")
+class BasicAuthCredentialCacheTest {
+
+    private static final String HEADER = "Basic dGVzdEBtYWlsLnJ1OnBhc3N3b3Jk";
+
+    private MutableClock clock;
+    private BasicAuthCredentialCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T12:00:00Z"));
+        cache = new BasicAuthCredentialCache(Duration.ofMinutes(5), 2, clock);
+    }
+
+    @Nested
+    @DisplayName("Тесты чтения и записи")
+    class GetPutTests {
+
+        @Test
+        @DisplayName("Повторный запрос с тем же заголовком обслуживается из кэша")
+        void get_AfterPut_ShouldReturnUserDetails() {
+            // Given
+            UserDetails user = user("test@mail.ru");
+            cache.put(HEADER, user, 0);
+
+            // When
+            UserDetails result = cache.get(HEADER);
+
+            // Then
+            assertSame(user, result);
+            assertEquals(1, cache.getHits());
+            assertEquals(0, cache.getMisses());
+        }
+
+        @Test
+        @DisplayName("Другой заголовок не совпадает с сохраненным")
+        void get_WithDifferentHeader_ShouldMiss() {
+            // Given
+            cache.put(HEADER, user("test@mail.ru"), 0);
+
+            // When
+            UserDetails result = cache.get("Basic dGVzdEBtYWlsLnJ1Ondyb25n");
+
+            // Then
+            assertNull(result);
+            assertEquals(0, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+
+        @Test
+        @DisplayName("Запись с истекшим сроком жизни удаляется")
+        void get_AfterTtl_ShouldMiss() {
+            // Given
+            cache.put(HEADER, user("test@mail.ru"), 0);
+            clock.advance(Duration.ofMinutes(5));
+
+            // When
+            UserDetails result = cache.get(HEADER);
+
+            // Then
+            assertNull(result);
+            assertEquals(0, cache.size());
+        }
+
+        @Test
+        @DisplayName("При превышении размера вытесняется давно не использованная запись")
+        void put_OverMaxSize_ShouldEvictLeastRecentlyUsed() {
+            // Given
+            cache.put("Basic a", user("a@mail.ru"), 0);
+            cache.put("Basic b", user("b@mail.ru"), 0);
+            cache.get("Basic a");
+
+            // When
+            cache.put("Basic c", user("c@mail.ru"), 0);
+
+            // Then
+            assertEquals(2, cache.size());
+            assertNotNull(cache.get("Basic a"));
+            assertNull(cache.get("Basic b"));
+            assertNotNull(cache.get("Basic c"));
+        }
+
+        @Test
+        @DisplayName("Доля попаданий в кэш")
+        void getHitRate_ShouldReturnShareOfHits() {
+            // Given
+            cache.put(HEADER, user("test@mail.ru"), 0);
+
+            // When
+            cache.get(HEADER);
+            cache.get(HEADER);
+            cache.get(HEADER);
+            cache.get("Basic other");
+
+            // Then
+            assertEquals(0.75, cache.getHitRate(), 1e-9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты инвалидации")
+    class InvalidateTests {
+
+        @Test
+        @DisplayName("Смена пароля удаляет все записи пользователя")
+        void invalidate_ShouldRemoveOnlyUserEntries() {
+            // Given
+            cache.put("Basic a", user("test@mail.ru"), 0);
+            cache.put("Basic b", user("other@mail.ru"), 0);
+
+            // When
+            cache.invalidate("test@mail.ru");
+
+            // Then
+            assertNull(cache.get("Basic a"));
+            assertNotNull(cache.get("Basic b"));
+        }
+
+        @Test
+        @DisplayName("Прежний пароль, проверенный во время смены, не возвращается в кэш")
+        void put_AfterInvalidateDuringVerification_ShouldNotCache() {
+            // Given
+            long generation = cache.generation("test@mail.ru");
+            UserDetails loadedBeforeChange = user("test@mail.ru");
+
+            // When
+            cache.invalidate("test@mail.ru");
+            cache.put(HEADER, loadedBeforeChange, generation);
+
+            // Then
+            assertNull(cache.get(HEADER));
+            assertEquals(0, cache.size());
+        }
+
+        @Test
+        @DisplayName("После инвалидации записи с новым поколением снова кэшируются")
+        void put_WithGenerationReadAfterInvalidate_ShouldCache() {
+            // Given
+            cache.invalidate("test@mail.ru");
+            long generation = cache.generation("test@mail.ru");
+
+            // When
+            cache.put(HEADER, user("test@mail.ru"), generation);
+
+            // Then
+            assertNotNull(cache.get(HEADER));
+        }
+    }
+
+    private static UserDetails user(String username) {
+        return User.builder()
+                .username(username)
+                .password("encoded")
+                .roles("USER")
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ru.skypro.homework.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.dto.comment.CommentDTO;
+import ru.skypro.homework.dto.comment.CreateOrUpdateCommentDTO;
+import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.repository.projection.CommentView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка выдачи номеров комментариев при параллельном добавлении к одному объявлению
+ * на реальной БД с ограничением UNIQUE (ad_id, comment_number)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Тестирование нумерации комментариев при параллельной записи")
+class CommentNumberingConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int COMMENTS_PER_THREAD = 25;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private AuthenticatedUser principal;
+    private Ad ad;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("concurrency-" + UUID.randomUUID() + "@mail.ru");
+        user.setPassword("password");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+        principal = new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole());
+
+        ad = new Ad();
+        ad.setTitle("Concurrency test ad");
+        ad.setUser(user);
+        ad = adRepository.save(ad);
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll(commentRepository.findAll().stream()
+                .filter(comment -> comment.getAd().getId().equals(ad.getId()))
+                .toList());
+        adRepository.deleteById(ad.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    @DisplayName("Параллельные комментарии получают уникальные последовательные номера")
+    void addComment_FromManyThreads_ShouldAssignUniqueNumbers() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<Long> numbers = new ArrayList<>();
+                for (int i = 0; i < COMMENTS_PER_THREAD; i++) {
+                    CreateOrUpdateCommentDTO dto = new CreateOrUpdateCommentDTO();
+                    dto.setText("Comment " + i);
+                    CommentDTO comment = commentService.addComment(ad.getId(), dto, principal);
+                    numbers.add(comment.getId());
+                }
+                return numbers;
+            }));
+        }
+        start.countDown();
+
+        List<Long> returned = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            returned.addAll(future.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Then
+        int total = THREADS * COMMENTS_PER_THREAD;
+        Set<Long> expected = LongStream.rangeClosed(1, total).boxed().collect(Collectors.toSet());
+        Set<Long> stored = commentRepository.findPageBefore(ad.getId(), Long.MAX_VALUE, Limit.unlimited()).stream()
+                .map(CommentView::commentNumber)
+                .collect(Collectors.toSet());
+
+        assertEquals(total, returned.size());
+        assertEquals(expected, Set.copyOf(returned));
+        assertEquals(expected, stored);
+    }
+
+    @Test
+    @DisplayName("Номер удаленного комментария не выдается повторно")
+    void addComment_AfterDelete_ShouldNotReuseNumber() {
+        // Given
+        CreateOrUpdateCommentDTO dto = new CreateOrUpdateCommentDTO();
+        dto.setText("Comment");
+        commentService.addComment(ad.getId(), dto, principal);
+        CommentDTO second = commentService.addComment(ad.getId(), dto, principal);
+        commentService.deleteCommentWithPermission(ad.getId(), second.getId(), principal);
+
+        // When
+        CommentDTO third = commentService.addComment(ad.getId(), dto, principal);
+
+        // Then
+        assertEquals(3L, third.getId());
+    }
+}
@@ -0,0 +1,112 @@
+package ru.skypro.homework.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.dto.comment.CommentsDTO;
+import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.entity.Comment;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.CommentRepository;
+import ru.skypro.homework.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка, что чтение страницы комментариев выполняется одним запросом
+ * независимо от количества комментариев и их авторов
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@DisplayName("Тестирование количества запросов при чтении комментариев")
+class CommentQueryCountTest {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Ad> ads = new ArrayList<>();
+    private final List<Comment> comments = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll(comments);
+        adRepository.deleteAll(ads);
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    @DisplayName("Число SQL-запросов не зависит от числа комментариев")
+    void getCommentsByAdId_ShouldUseConstantStatementCount() {
+        // Given
+        Ad smallAd = createAdWithComments(2);
+        Ad largeAd = createAdWithComments(20);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // When
+        statistics.clear();
+        CommentsDTO small = commentService.getCommentsByAdId(smallAd.getId(), null, null);
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        CommentsDTO large = commentService.getCommentsByAdId(largeAd.getId(), null, null);
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        // Then
+        assertEquals(2, small.getCount());
+        assertEquals(20, large.getCount());
+        assertEquals(1, smallStatements);
+        assertEquals(smallStatements, largeStatements);
+    }
+
+    private Ad createAdWithComments(int count) {
+        User owner = createUser();
+        Ad ad = new Ad();
+        ad.setTitle("Query count test ad");
+        ad.setUser(owner);
+        ad = adRepository.save(ad);
+        ads.add(ad);
+
+        for (int i = 1; i <= count; i++) {
+            Comment comment = new Comment("Comment " + i, createUser(), ad);
+            comment.setCommentNumber((long) i);
+            comments.add(commentRepository.save(comment));
+        }
+        return ad;
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setUsername("query-count-" + UUID.randomUUID() + "@mail.ru");
+        user.setPassword("password");
+        user.setFirstName("Author");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+        users.add(user);
+        return user;
+    }
+}
@@ -8,6 +8,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.skypro.homework.dto.AuthenticatedUser;
 import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.dto.comment.CommentDTO;
 import ru.skypro.homework.dto.comment.CommentsDTO;
@@ -18,6 +21,7 @@ import ru.skypro.homework.entity.User;
 import ru.skypro.homework.repository.AdRepository;
 import ru.skypro.homework.repository.CommentRepository;
 import ru.skypro.homework.repository.UserRepository;
+import ru.skypro.homework.repository.projection.CommentView;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -44,12 +48,14 @@ class CommentServiceTest {
     private CommentService commentService;
 
     private User testUser;
+    private AuthenticatedUser principal;
     private Ad testAd;
     private Comment testComment;
 
     @BeforeEach
     void setUp() {
         testUser = createTestUser();
+        principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
         testAd = createTestAd();
         testComment = createTestComment();
     }
@@ -62,17 +68,50 @@ class CommentServiceTest {
         @DisplayName("Получение комментариев по ID объявления")
         void getCommentsByAdId_ShouldReturnCommentsDTO() {
             // Arrange
-            List<Comment> comments = List.of(testComment);
-            when(commentRepository.findByAdIdOrderByCreatedAtDesc(1L)).thenReturn(comments);
+            ReflectionTestUtils.setField(commentService, "defaultPageLimit", 50);
+            ReflectionTestUtils.setField(commentService, "maxPageLimit", 200);
+            List<CommentView> comments = List.of(commentView(1L));
+            when(commentRepository.findPageBefore(1L, Long.MAX_VALUE, Limit.of(51))).thenReturn(comments);
 
             // Act
-            CommentsDTO result = commentService.getCommentsByAdId(1L);
+            CommentsDTO result = commentService.getCommentsByAdId(1L, null, null);
 
             // Assert
             assertNotNull(result, "Результат не должен быть null");
             assertEquals(1, result.getCount(), "Количество комментариев должно быть 1");
             assertEquals(1, result.getResults().size(), "Размер списка комментариев должен быть 1");
-            verify(commentRepository, times(1)).findByAdIdOrderByCreatedAtDesc(1L);
+            assertEquals("Test", result.getResults().get(0).getAuthorFirstName(), "Имя автора берется из проекции");
+            assertNull(result.getNext(), "На последней странице курсора нет");
+        }
+
+        @Test
+        @DisplayName("Курсор следующей страницы комментариев")
+        void getCommentsByAdId_WhenMoreComments_ShouldReturnNextCursor() {
+            // Arrange
+            ReflectionTestUtils.setField(commentService, "defaultPageLimit", 50);
+            ReflectionTestUtils.setField(commentService, "maxPageLimit", 200);
+            when(commentRepository.findPageBefore(1L, Long.MAX_VALUE, Limit.of(3)))
+                    .thenReturn(List.of(commentView(5L), commentView(4L), commentView(3L)));
+            when(commentRepository.findPageBefore(1L, 4L, Limit.of(3)))
+                    .thenReturn(List.of(commentView(3L)));
+
+            // Act
+            CommentsDTO first = commentService.getCommentsByAdId(1L, null, 2);
+            CommentsDTO second = commentService.getCommentsByAdId(1L, first.getNext(), 2);
+
+            // Assert
+            assertEquals(2, first.getCount(), "Первая страница ограничена лимитом");
+            assertNotNull(first.getNext(), "Курсор следующей страницы должен быть");
+            assertEquals(3L, second.getResults().get(0).getId(), "Вторая страница продолжает первую");
+            assertNull(second.getNext(), "На последней странице курсора нет");
+        }
+
+        @Test
+        @DisplayName("Некорректный курсор комментариев")
+        void getCommentsByAdId_WithInvalidCursor_ShouldThrow() {
+            // Act & Assert
+            assertThrows(IllegalArgumentException.class,
+                    () -> commentService.getCommentsByAdId(1L, "not a cursor", null));
         }
     }
 
@@ -87,18 +126,18 @@ class CommentServiceTest {
             CreateOrUpdateCommentDTO dto = new CreateOrUpdateCommentDTO();
             dto.setText("Test comment");
 
-            when(adRepository.findById(1L)).thenReturn(Optional.of(testAd));
-            when(userRepository.findByUsername("test@mail.ru")).thenReturn(Optional.of(testUser));
-            when(commentRepository.countByAdId(1L)).thenReturn(0L);
-            when(commentRepository.save(any(Comment.class))).thenReturn(testComment);
+            when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+            when(adRepository.allocateCommentNumber(1L)).thenReturn(Optional.of(1L));
+            when(adRepository.getReferenceById(1L)).thenReturn(testAd);
+            when(commentRepository.saveAndFlush(any(Comment.class))).thenReturn(testComment);
 
             // Act
-            CommentDTO result = commentService.addComment(1L, dto, "test@mail.ru");
+            CommentDTO result = commentService.addComment(1L, dto, principal);
 
             // Assert
             assertNotNull(result, "Результат не должен быть null");
             assertEquals("Test comment", result.getText(), "Текст комментария должен совпадать");
-            verify(commentRepository, times(1)).save(any(Comment.class));
+            verify(commentRepository, times(1)).saveAndFlush(argThat(comment -> comment.getCommentNumber() == 1L));
         }
 
         @Test
@@ -108,14 +147,15 @@ class CommentServiceTest {
             CreateOrUpdateCommentDTO dto = new CreateOrUpdateCommentDTO();
             dto.setText("Test comment");
 
-            when(adRepository.findById(1L)).thenReturn(Optional.empty());
+            when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+            when(adRepository.allocateCommentNumber(1L)).thenReturn(Optional.empty());
 
             // Act
-            CommentDTO result = commentService.addComment(1L, dto, "test@mail.ru");
+            CommentDTO result = commentService.addComment(1L, dto, principal);
 
             // Assert
             assertNull(result, "Результат должен быть null для несуществующего объявления");
-            verify(commentRepository, never()).save(any(Comment.class));
+            verify(commentRepository, never()).saveAndFlush(any(Comment.class));
         }
     }
 
@@ -128,10 +168,9 @@ class CommentServiceTest {
         void deleteCommentWithPermission_ByAuthor_ShouldReturnTrue() {
             // Arrange
             when(commentRepository.findByAdIdAndCommentNumber(1L, 1L)).thenReturn(Optional.of(testComment));
-            when(userRepository.findByUsername("test@mail.ru")).thenReturn(Optional.of(testUser));
 
             // Act
-            boolean result = commentService.deleteCommentWithPermission(1L, 1L, "test@mail.ru");
+            boolean result = commentService.deleteCommentWithPermission(1L, 1L, principal);
 
             // Assert
             assertTrue(result, "Результат должен быть true при удалении автором");
@@ -142,16 +181,48 @@ class CommentServiceTest {
         @DisplayName("Удаление комментария без прав доступа должно возвращать false")
         void deleteCommentWithPermission_WithoutPermission_ShouldReturnFalse() {
             // Arrange
+            AuthenticatedUser other = new AuthenticatedUser(2L, "other@mail.ru", Role.USER);
             when(commentRepository.findByAdIdAndCommentNumber(1L, 1L)).thenReturn(Optional.of(testComment));
-            when(userRepository.findByUsername("other@mail.ru")).thenReturn(Optional.of(createOtherUser()));
 
             // Act
-            boolean result = commentService.deleteCommentWithPermission(1L, 1L, "other@mail.ru");
+            boolean result = commentService.deleteCommentWithPermission(1L, 1L, other);
 
             // Assert
             assertFalse(result, "Результат должен быть false без прав доступа");
             verify(commentRepository, never()).delete(any(Comment.class));
         }
+
+        @Test
+        @DisplayName("Администратор удаляет чужой комментарий")
+        void deleteCommentWithPermission_ByAdmin_ShouldReturnTrue() {
+            // Arrange
+            AuthenticatedUser admin = new AuthenticatedUser(3L, "admin@mail.ru", Role.ADMIN);
+            when(commentRepository.findByAdIdAndCommentNumber(1L, 1L)).thenReturn(Optional.of(testComment));
+            when(userRepository.findById(3L)).thenReturn(Optional.of(userWithRole(3L, Role.ADMIN)));
+
+            // Act
+            boolean result = commentService.deleteCommentWithPermission(1L, 1L, admin);
+
+            // Assert
+            assertTrue(result, "Администратор может удалить любой комментарий");
+            verify(commentRepository, times(1)).delete(testComment);
+        }
+
+        @Test
+        @DisplayName("Администратор, пониженный после входа, не удаляет чужой комментарий")
+        void deleteCommentWithPermission_ByDemotedAdmin_ShouldReturnFalse() {
+            // Arrange
+            AuthenticatedUser admin = new AuthenticatedUser(3L, "admin@mail.ru", Role.ADMIN);
+            when(commentRepository.findByAdIdAndCommentNumber(1L, 1L)).thenReturn(Optional.of(testComment));
+            when(userRepository.findById(3L)).thenReturn(Optional.of(userWithRole(3L, Role.USER)));
+
+            // Act
+            boolean result = commentService.deleteCommentWithPermission(1L, 1L, admin);
+
+            // Assert
+            assertFalse(result, "Роль из аутентификации сверяется с текущей ролью пользователя");
+            verify(commentRepository, never()).delete(any(Comment.class));
+        }
     }
 
     @Nested
@@ -169,7 +240,7 @@ class CommentServiceTest {
             when(commentRepository.save(any(Comment.class))).thenReturn(testComment);
 
             // Act
-            CommentDTO result = commentService.updateCommentWithPermission(1L, 1L, dto, "test@mail.ru");
+            CommentDTO result = commentService.updateCommentWithPermission(1L, 1L, dto, principal);
 
             // Assert
             assertNotNull(result, "Результат не должен быть null");
@@ -187,13 +258,10 @@ class CommentServiceTest {
         return user;
     }
 
-    private User createOtherUser() {
+    private static User userWithRole(Long id, Role role) {
         User user = new User();
-        user.setId(2L);
-        user.setUsername("other@mail.ru");
-        user.setFirstName("Other");
-        user.setLastName("User");
-        user.setRole(Role.USER);
+        user.setId(id);
+        user.setRole(role);
         return user;
     }
 
@@ -214,4 +282,8 @@ class CommentServiceTest {
         comment.setCreatedAt(LocalDateTime.now());
         return comment;
     }
-}
\ No newline at end of file
+
+    private static CommentView commentView(Long commentNumber) {
+        return new CommentView(commentNumber, "Test comment", LocalDateTime.now(), 1L, "Test");
+    }
+}
@@ -0,0 +1,408 @@
+package ru.skypro.homework.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.skypro.homework.entity.AdPreview;
+import ru.skypro.homework.entity.AvatarPreview;
+import ru.skypro.homework.repository.AdPreviewRepository;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.AvatarPreviewRepository;
+import ru.skypro.homework.repository.AvatarRepository;
+import ru.skypro.homework.repository.projection.ImageFileView;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Тестирование ImageProcessingService")
+class ImageProcessingServiceTest {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Mock
+    private AdRepository adRepository;
+
+    @Mock
+    private AdPreviewRepository adPreviewRepository;
+
+    @Mock
+    private AvatarRepository avatarRepository;
+
+    @Mock
+    private AvatarPreviewRepository avatarPreviewRepository;
+
+    @TempDir
+    private Path tempDir;
+
+    private ImageVariantStorage variantStorage;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageProcessingService imageProcessingService;
+
+    @BeforeEach
+    void setUp() {
+        variantStorage = new ImageVariantStorage(tempDir.resolve("variants").toString(), List.of(100, 320, 800));
+        meterRegistry = new SimpleMeterRegistry();
+        imageProcessingService = new ImageProcessingService(adRepository, adPreviewRepository,
+                avatarRepository, avatarPreviewRepository, variantStorage, new ImageMetrics(meterRegistry),
+                1, 10, 3, Duration.ZERO, 4_000_000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        imageProcessingService.shutdown();
+    }
+
+    @Nested
+    @DisplayName("Тесты очереди обработки")
+    class QueueTests {
+
+        @Test
+        @DisplayName("При заполненной очереди задача отклоняется, а не выполняется в потоке запроса")
+        void onImageUploaded_WhenQueueFull_ShouldRejectWithoutRunningInCaller() throws Exception {
+            // Given
+            ImageProcessingService service = new ImageProcessingService(adRepository, adPreviewRepository,
+                    avatarRepository, avatarPreviewRepository, variantStorage, new ImageMetrics(meterRegistry),
+                    1, 1, 1, Duration.ZERO, 4_000_000);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            when(adRepository.findImageById(1L)).thenAnswer(invocation -> {
+                started.countDown();
+                release.await();
+                return Optional.empty();
+            });
+            try {
+                service.onImageUploaded(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, "ad1.png", HASH));
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+                service.onImageUploaded(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 2L, "ad2.png", HASH));
+
+                // When
+                service.onImageUploaded(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 3L, "ad3.png", HASH));
+
+                // Then
+                verify(adRepository, never()).findImageById(3L);
+                assertEquals(1, meterRegistry.get("app.images.processing.rejected").counter().count());
+            } finally {
+                release.countDown();
+                service.shutdown();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты генерации превью")
+    class PreviewTests {
+
+        @Test
+        @DisplayName("Превью объявления сохраняется с шириной 100 и исходными пропорциями")
+        void process_ForAd_ShouldSavePreview() throws IOException {
+            // Given
+            Path image = writePng("ad.png", 400, 200);
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, image, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, image.toString(), HASH));
+
+            // Then
+            ArgumentCaptor<AdPreview> captor = ArgumentCaptor.forClass(AdPreview.class);
+            verify(adPreviewRepository).save(captor.capture());
+            BufferedImage preview = ImageIO.read(new ByteArrayInputStream(captor.getValue().getData()));
+            assertEquals(1L, captor.getValue().getAdId());
+            assertEquals(100, preview.getWidth());
+            assertEquals(50, preview.getHeight());
+        }
+
+        @Test
+        @DisplayName("Превью аватара с шириной меньше 100 пикселей генерируется без ошибки")
+        void process_ForSmallAvatar_ShouldSavePreview() throws IOException {
+            // Given
+            Path image = writePng("avatar.png", 50, 80);
+            when(avatarRepository.findImageById(2L)).thenReturn(Optional.of(view(2L, image, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AVATAR, 2L, image.toString(), HASH));
+
+            // Then
+            ArgumentCaptor<AvatarPreview> captor = ArgumentCaptor.forClass(AvatarPreview.class);
+            verify(avatarPreviewRepository).save(captor.capture());
+            BufferedImage preview = ImageIO.read(new ByteArrayInputStream(captor.getValue().getData()));
+            assertEquals(100, preview.getWidth());
+            assertEquals(160, preview.getHeight());
+        }
+
+        @Test
+        @DisplayName("Превью не сохраняется, если изображение уже заменено")
+        void process_WhenImageReplaced_ShouldSkip() throws IOException {
+            // Given
+            Path image = writePng("ad.png", 400, 200);
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, image, "other-hash")));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, image.toString(), HASH));
+
+            // Then
+            verifyNoInteractions(adPreviewRepository);
+        }
+
+        @Test
+        @DisplayName("Неподдерживаемый формат не обрабатывается повторно")
+        void process_WithUnsupportedFormat_ShouldNotRetry() throws IOException {
+            // Given
+            Path file = Files.writeString(tempDir.resolve("ad.png"), "not an image");
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, file, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, file.toString(), HASH));
+
+            // Then
+            verify(adRepository, times(1)).findImageById(1L);
+            verifyNoInteractions(adPreviewRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты копий разной ширины")
+    class VariantTests {
+
+        @Test
+        @DisplayName("Создаются копии всех значений ширины меньше исходной")
+        void process_ShouldStoreVariantsNarrowerThanOriginal() throws IOException {
+            // Given
+            Path image = writePng("ad.png", 640, 480);
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, image, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, image.toString(), HASH));
+
+            // Then
+            assertTrue(variantStorage.isReady(HASH, "png"));
+            assertFalse(variantStorage.isReady(HASH, "jpg"));
+            ImageVariantStorage.ImageVariant variant = variantStorage.find(HASH, "png", 200).orElseThrow();
+            assertEquals(320, variant.width());
+            assertEquals(240, ImageIO.read(variant.path().toFile()).getHeight());
+            assertTrue(variantStorage.find(HASH, "png", 700).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Повторная загрузка того же содержимого не пересоздает копии")
+        void process_WithSameContent_ShouldReuseVariants() throws IOException {
+            // Given
+            Path image = writePng("ad.png", 640, 480);
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, image, HASH)));
+            when(avatarRepository.findImageById(2L)).thenReturn(Optional.of(view(2L, image, HASH)));
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, image.toString(), HASH));
+            Path variant = variantStorage.find(HASH, "png", 100).orElseThrow().path();
+            Files.write(variant, new byte[]{1});
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AVATAR, 2L, image.toString(), HASH));
+
+            // Then
+            assertArrayEquals(new byte[]{1}, Files.readAllBytes(variant));
+            verify(avatarPreviewRepository).save(any(AvatarPreview.class));
+        }
+
+        @Test
+        @DisplayName("То же содержимое с другим расширением получает собственные копии")
+        void process_WithSameContentAndOtherExtension_ShouldStoreVariants() throws IOException {
+            // Given
+            Path png = writePng("ad.png", 640, 480);
+            Path renamed = Files.copy(png, tempDir.resolve("avatar.bmp"));
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, png, HASH)));
+            when(avatarRepository.findImageById(2L)).thenReturn(Optional.of(view(2L, renamed, HASH)));
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, png.toString(), HASH));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AVATAR, 2L, renamed.toString(), HASH));
+
+            // Then
+            assertTrue(variantStorage.isReady(HASH, "bmp"));
+            assertEquals(320, variantStorage.find(HASH, "bmp", 200).orElseThrow().width());
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты хранилища копий")
+    class StorageTests {
+
+        @Test
+        @DisplayName("Набор копий, сохраненный параллельной задачей, не приводит к ошибке")
+        void store_WhenAlreadyStored_ShouldKeepExistingVariants() throws IOException {
+            // Given
+            variantStorage.store(HASH, "png", Map.of(100, new byte[]{1}));
+
+            // When
+            variantStorage.store(HASH, "png", Map.of(100, new byte[]{2}));
+
+            // Then
+            Path variant = variantStorage.find(HASH, "png", 100).orElseThrow().path();
+            assertArrayEquals(new byte[]{1}, Files.readAllBytes(variant));
+            try (var files = Files.list(variant.getParent().getParent())) {
+                assertEquals(1, files.count());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты декодирования с прореживанием")
+    class DecodingTests {
+
+        @Test
+        @DisplayName("Большое изображение декодируется с шагом, сохраняющим нужную ширину")
+        void decode_LargeImage_ShouldSubsampleToRequiredWidth() throws IOException {
+            // Given
+            Path image = writePng("large.png", 3000, 2000);
+
+            // When
+            ImageProcessingService.DecodedImage decoded = ImageProcessingService.decode(image, width -> 320, 4_000_000);
+
+            // Then
+            assertEquals(3000, decoded.sourceWidth());
+            assertEquals(334, decoded.image().getWidth());
+            assertEquals(223, decoded.image().getHeight());
+        }
+
+        @Test
+        @DisplayName("Шаг прореживания увеличивается до соблюдения лимита пикселей")
+        void subsampling_ShouldRespectPixelLimit() {
+            // When & Then
+            assertEquals(1, ImageProcessingService.subsampling(800, 600, 800, 4_000_000));
+            assertEquals(7, ImageProcessingService.subsampling(6000, 4000, 800, 4_000_000));
+            assertEquals(60, ImageProcessingService.subsampling(6000, 4000, 100, 4_000_000));
+            assertEquals(5, ImageProcessingService.subsampling(6000, 4000, 6000, 1_000_000));
+        }
+
+        @Test
+        @DisplayName("Копии получаются из прореженного изображения с исходными пропорциями")
+        void process_LargeImage_ShouldStoreVariantsFromSubsampledImage() throws IOException {
+            // Given
+            Path image = writePng("large.png", 3000, 2000);
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, image, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, image.toString(), HASH));
+
+            // Then
+            BufferedImage variant = ImageIO.read(variantStorage.find(HASH, "png", 800).orElseThrow().path().toFile());
+            assertEquals(800, variant.getWidth());
+            assertEquals(533, variant.getHeight());
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты повторных попыток")
+    class RetryTests {
+
+        @Test
+        @DisplayName("Временная ошибка сохранения приводит к повторной попытке")
+        void process_WhenSaveFailsOnce_ShouldRetry() throws IOException {
+            // Given
+            Path image = writePng("ad.png", 400, 200);
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, image, HASH)));
+            when(adPreviewRepository.save(any(AdPreview.class)))
+                    .thenThrow(new IllegalStateException("Connection reset"))
+                    .thenAnswer(invocation -> invocation.getArgument(0));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, image.toString(), HASH));
+
+            // Then
+            verify(adPreviewRepository, times(2)).save(any(AdPreview.class));
+        }
+
+        @Test
+        @DisplayName("Количество попыток ограничено")
+        void process_WhenFileMissing_ShouldStopAfterMaxAttempts() {
+            // Given
+            Path missing = tempDir.resolve("missing.png");
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, missing, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, missing.toString(), HASH));
+
+            // Then
+            verify(adRepository, times(3)).findImageById(1L);
+            verifyNoInteractions(adPreviewRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты метрик")
+    class MetricsTests {
+
+        @Test
+        @DisplayName("Прочитанные и записанные байты учитываются по виду файла")
+        void process_ShouldRecordImageBytes() throws IOException {
+            // Given
+            Path image = writePng("ad.png", 640, 480);
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, image, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, image.toString(), HASH));
+
+            // Then
+            ArgumentCaptor<AdPreview> captor = ArgumentCaptor.forClass(AdPreview.class);
+            verify(adPreviewRepository).save(captor.capture());
+            long variantBytes = Files.size(variantStorage.find(HASH, "png", 100).orElseThrow().path())
+                    + Files.size(variantStorage.find(HASH, "png", 320).orElseThrow().path());
+            assertEquals(Files.size(image), bytes("app.images.bytes.read", ImageMetrics.ORIGINAL));
+            assertEquals(captor.getValue().getData().length, bytes("app.images.bytes.written", ImageMetrics.PREVIEW));
+            assertEquals(variantBytes, bytes("app.images.bytes.written", ImageMetrics.RESIZED));
+            assertEquals(1, meterRegistry.get("app.images.processing").tag("outcome", "success").timer().count());
+        }
+
+        @Test
+        @DisplayName("Обработка, исчерпавшая попытки, учитывается как неудачная")
+        void process_WhenFileMissing_ShouldRecordFailure() {
+            // Given
+            Path missing = tempDir.resolve("missing.png");
+            when(adRepository.findImageById(1L)).thenReturn(Optional.of(view(1L, missing, HASH)));
+
+            // When
+            imageProcessingService.process(new ImageUploadedEvent(ImageUploadedEvent.Owner.AD, 1L, missing.toString(), HASH));
+
+            // Then
+            assertEquals(1, meterRegistry.get("app.images.processing").tag("outcome", "failure").timer().count());
+            assertEquals(0, meterRegistry.get("app.images.processing").tag("outcome", "success").timer().count());
+        }
+
+        private long bytes(String name, String variant) {
+            return (long) meterRegistry.get(name).tag("variant", variant).counter().count();
+        }
+    }
+
+    private Path writePng(String name, int width, int height) throws IOException {
+        Path path = tempDir.resolve(name);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", path.toFile());
+        return path;
+    }
+
+    private static ImageFileView view(Long id, Path path, String hash) {
+        return new ImageFileView(id, path.toString(), "image/png", hash, LocalDateTime.now());
+    }
+}
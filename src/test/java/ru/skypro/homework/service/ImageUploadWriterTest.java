@@ -0,0 +1,166 @@
+package ru.skypro.homework.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тестирование ImageUploadWriter")
+class ImageUploadWriterTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageUploadWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new ImageUploadWriter(new ImageMetrics(meterRegistry), DataSize.ofKilobytes(16));
+    }
+
+    @Test
+    @DisplayName("Изображение записывается за один проход с хэшем и форматом по сигнатуре")
+    void store_Png_ShouldWriteFileWithHashAndDetectedFormat() throws IOException {
+        // Given
+        byte[] png = png(64, 32);
+        MockMultipartFile file = new MockMultipartFile("image", "photo.jpg", "image/jpeg", png);
+
+        // When
+        ImageUploadWriter.StoredImage image = writer.store(file,
+                format -> tempDir.resolve("ads").resolve("photo." + format.extension()));
+
+        // Then
+        assertEquals(ImageUploadWriter.Format.PNG, image.format());
+        assertEquals(tempDir.resolve("ads").resolve("photo.png"), image.path());
+        assertArrayEquals(png, Files.readAllBytes(image.path()));
+        assertEquals(png.length, image.size());
+        assertEquals(HexFormat.of().formatHex(ContentHash.newDigest().digest(png)), image.fileHash());
+        assertEquals(png.length, meterRegistry.get("app.images.bytes.written").tag("variant", "original")
+                .counter().count());
+    }
+
+    @Test
+    @DisplayName("Файл без сигнатуры изображения отклоняется до создания файла")
+    void store_UnknownSignature_ShouldRejectWithoutWriting() {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("image", "script.png", "image/png",
+                "<?php echo 'not an image'; ?>".getBytes());
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+                writer.store(file, format -> tempDir.resolve("script." + format.extension())));
+        assertEquals(0, tempDir.toFile().list().length);
+    }
+
+    @Test
+    @DisplayName("PNG с поврежденным заголовком отклоняется до создания файла")
+    void store_PngWithCorruptedHeader_ShouldRejectWithoutWriting() throws IOException {
+        // Given
+        byte[] png = png(64, 32);
+        Arrays.fill(png, 12, 24, (byte) 0);
+        MockMultipartFile file = new MockMultipartFile("image", "photo.png", "image/png", png);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+                writer.store(file, format -> tempDir.resolve("photo." + format.extension())));
+        assertEquals(0, tempDir.toFile().list().length);
+    }
+
+    @Test
+    @DisplayName("Заявленный размер больше лимита отклоняется без чтения")
+    void store_DeclaredSizeOverLimit_ShouldRejectBeforeReading() {
+        // Given
+        byte[] content = new byte[17 * 1024];
+        MockMultipartFile file = new MockMultipartFile("image", "big.png", "image/png", content) {
+            @Override
+            public InputStream getInputStream() {
+                throw new AssertionError("Oversized upload must not be read");
+            }
+        };
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+                writer.store(file, format -> tempDir.resolve("big." + format.extension())));
+    }
+
+    @Test
+    @DisplayName("Превышение лимита при чтении прерывает запись и удаляет файл")
+    void store_ActualSizeOverLimit_ShouldDeletePartialFile() {
+        // Given
+        byte[] content = Arrays.copyOf(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}, 64 * 1024);
+        MockMultipartFile file = new MockMultipartFile("image", "big.jpg", "image/jpeg", new byte[0]) {
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(content);
+            }
+        };
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+                writer.store(file, format -> tempDir.resolve("big." + format.extension())));
+        assertEquals(0, tempDir.toFile().list().length);
+    }
+
+    @Test
+    @DisplayName("Ошибка записи не затрагивает существующий файл по целевому пути")
+    void store_FailedWriteOverExistingFile_ShouldKeepExistingFile() throws IOException {
+        // Given
+        byte[] existing = png(8, 8);
+        Path target = tempDir.resolve("avatar.jpg");
+        Files.write(target, existing);
+        byte[] content = Arrays.copyOf(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}, 64 * 1024);
+        MockMultipartFile file = new MockMultipartFile("image", "avatar.jpg", "image/jpeg", new byte[0]) {
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(content);
+            }
+        };
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> writer.store(file, format -> target));
+        assertArrayEquals(existing, Files.readAllBytes(target));
+        assertEquals(1, tempDir.toFile().list().length);
+    }
+
+    @Test
+    @DisplayName("Успешная запись заменяет существующий файл целиком")
+    void store_OverExistingFile_ShouldReplaceItWhole() throws IOException {
+        // Given
+        Path target = tempDir.resolve("avatar.png");
+        Files.write(target, png(256, 256));
+        byte[] png = png(4, 4);
+        MockMultipartFile file = new MockMultipartFile("image", "avatar.png", "image/png", png);
+
+        // When
+        writer.store(file, format -> target);
+
+        // Then
+        assertArrayEquals(png, Files.readAllBytes(target));
+        assertEquals(1, tempDir.toFile().list().length);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+}
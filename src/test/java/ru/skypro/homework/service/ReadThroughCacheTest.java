@@ -0,0 +1,193 @@
+package ru.skypro.homework.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import ru.skypro.homework.config.CacheConfig;
+import ru.skypro.homework.dto.AuthenticatedUser;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.dto.ad.AdFullResponseDTO;
+import ru.skypro.homework.dto.ad.AdUpdateRequestDTO;
+import ru.skypro.homework.dto.user.UserProfileResponse;
+import ru.skypro.homework.dto.user.UserProfileUpdateRequest;
+import ru.skypro.homework.entity.Ad;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.UserRepository;
+
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Проверка кэширования карточки объявления и профиля пользователя:
+ * повторное чтение не обращается к БД, изменения сразу видны после удаления записи из кэша
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@DisplayName("Тестирование кэша карточек объявлений и профилей")
+class ReadThroughCacheTest {
+
+    @Autowired
+    private AdService adService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Ad ad;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("cache-" + UUID.randomUUID() + "@mail.ru");
+        user.setPassword("password");
+        user.setFirstName("Author");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+
+        ad = new Ad();
+        ad.setTitle("Cached ad");
+        ad.setPrice(100);
+        ad.setUser(user);
+        ad = adRepository.save(ad);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        adRepository.deleteById(ad.getId());
+        userRepository.delete(user);
+        Objects.requireNonNull(cacheManager.getCache(CacheConfig.AD_DETAILS)).clear();
+        Objects.requireNonNull(cacheManager.getCache(CacheConfig.USER_PROFILES)).clear();
+    }
+
+    @Nested
+    @DisplayName("Тесты карточки объявления")
+    class AdDetailsTests {
+
+        @Test
+        @DisplayName("Повторное чтение карточки не выполняет SQL-запросов")
+        void getAdById_SecondCall_ShouldNotQueryDatabase() {
+            // Given
+            adService.getAdById(ad.getId());
+
+            // When
+            statistics.clear();
+            AdFullResponseDTO result = adService.getAdById(ad.getId());
+
+            // Then
+            assertEquals("Cached ad", result.getTitle());
+            assertEquals(0, statistics.getPrepareStatementCount());
+        }
+
+        @Test
+        @DisplayName("После изменения объявления возвращаются новые данные")
+        void updateAd_ShouldEvictAdDetails() {
+            // Given
+            adService.getAdById(ad.getId());
+            AdUpdateRequestDTO request = new AdUpdateRequestDTO();
+            request.setTitle("Updated ad");
+            request.setPrice(200);
+
+            // When
+            adService.updateAd(ad.getId(), request,
+                    new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole()));
+
+            // Then
+            assertEquals("Updated ad", adService.getAdById(ad.getId()).getTitle());
+        }
+
+        @Test
+        @DisplayName("После изменения профиля автора карточка содержит новое имя")
+        void updateUserProfile_ShouldEvictAuthorAdDetails() {
+            // Given
+            adService.getAdById(ad.getId());
+            UserProfileUpdateRequest request = new UserProfileUpdateRequest();
+            request.setFirstName("Renamed");
+
+            // When
+            userService.updateUserProfile(user.getUsername(), request);
+
+            // Then
+            assertEquals("Renamed", adService.getAdById(ad.getId()).getAuthorFirstName());
+        }
+
+        @Test
+        @DisplayName("Отсутствующее объявление не кэшируется")
+        void getAdById_WhenAdMissing_ShouldNotCacheNull() {
+            // Given
+            assertNull(adService.getAdById(Long.MAX_VALUE));
+
+            // When
+            statistics.clear();
+            adService.getAdById(Long.MAX_VALUE);
+
+            // Then
+            assertEquals(1, statistics.getPrepareStatementCount());
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты профиля пользователя")
+    class UserProfileTests {
+
+        @Test
+        @DisplayName("Повторное чтение профиля не выполняет SQL-запросов")
+        void getUserProfile_SecondCall_ShouldNotQueryDatabase() {
+            // Given
+            userService.getUserProfile(user.getUsername());
+
+            // When
+            statistics.clear();
+            UserProfileResponse result = userService.getUserProfile(user.getUsername());
+
+            // Then
+            assertEquals("Author", result.getFirstName());
+            assertEquals(0, statistics.getPrepareStatementCount());
+        }
+
+        @Test
+        @DisplayName("После изменения профиля возвращаются новые данные")
+        void updateUserProfile_ShouldEvictProfile() {
+            // Given
+            userService.getUserProfile(user.getUsername());
+            UserProfileUpdateRequest request = new UserProfileUpdateRequest();
+            request.setFirstName("Renamed");
+            request.setPhone("+79990000000");
+
+            // When
+            userService.updateUserProfile(user.getUsername(), request);
+
+            // Then
+            UserProfileResponse result = userService.getUserProfile(user.getUsername());
+            assertEquals("Renamed", result.getFirstName());
+            assertEquals("+79990000000", result.getPhone());
+        }
+    }
+}
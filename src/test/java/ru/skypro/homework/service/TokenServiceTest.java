@@ -0,0 +1,168 @@
+package ru.skypro.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import ru.skypro.homework.dto.Role;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Тестирование сервиса токенов")
+class TokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = tokenService(NOW);
+    }
+
+    @Nested
+    @DisplayName("Тесты токена доступа")
+    class AccessTokenTests {
+
+        @Test
+        @DisplayName("Токен доступа проверяется и содержит имя и роли пользователя")
+        void authenticate_WithIssuedToken_ShouldReturnAuthentication() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            String accessToken = tokenService.issue("test@mail.ru").accessToken();
+
+            // When
+            Authentication authentication = tokenService.authenticate(accessToken);
+
+            // Then
+            assertNotNull(authentication);
+            assertTrue(authentication.isAuthenticated());
+            assertEquals("test@mail.ru", authentication.getName());
+            assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+            AuthenticatedUserDetails principal = assertInstanceOf(AuthenticatedUserDetails.class, authentication.getPrincipal());
+            assertEquals(1L, principal.getId());
+        }
+
+        @Test
+        @DisplayName("Токен с измененной подписью отклоняется")
+        void authenticate_WithTamperedToken_ShouldReturnNull() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            String accessToken = tokenService.issue("test@mail.ru").accessToken();
+            String tampered = accessToken.substring(0, accessToken.length() - 2)
+                    + (accessToken.endsWith("AA") ? "BB" : "AA");
+
+            // When & Then
+            assertNull(tokenService.authenticate(tampered));
+            assertNull(tokenService.authenticate("not-a-token"));
+        }
+
+        @Test
+        @DisplayName("Токен, подписанный другим ключом, отклоняется")
+        void authenticate_WithForeignKey_ShouldReturnNull() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            TokenService foreign = new TokenService("", Duration.ofMinutes(15), Duration.ofDays(14),
+                    new ObjectMapper(), userDetailsService, Clock.fixed(NOW, ZoneOffset.UTC));
+            String accessToken = foreign.issue("test@mail.ru").accessToken();
+
+            // When & Then
+            assertNull(tokenService.authenticate(accessToken));
+        }
+
+        @Test
+        @DisplayName("Истекший токен доступа отклоняется")
+        void authenticate_WhenExpired_ShouldReturnNull() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            String accessToken = tokenService.issue("test@mail.ru").accessToken();
+
+            // When
+            Authentication authentication = tokenService(NOW.plus(Duration.ofMinutes(15))).authenticate(accessToken);
+
+            // Then
+            assertNull(authentication);
+        }
+
+        @Test
+        @DisplayName("Токен обновления не принимается как токен доступа")
+        void authenticate_WithRefreshToken_ShouldReturnNull() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            String refreshToken = tokenService.issue("test@mail.ru").refreshToken();
+
+            // When & Then
+            assertNull(tokenService.authenticate(refreshToken));
+        }
+    }
+
+    @Nested
+    @DisplayName("Тесты токена обновления")
+    class RefreshTokenTests {
+
+        @Test
+        @DisplayName("Токен обновления выдает новую пару токенов")
+        void refresh_WithValidToken_ShouldIssueNewTokens() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            String refreshToken = tokenService.issue("test@mail.ru").refreshToken();
+
+            // When
+            TokenService.IssuedTokens tokens = tokenService.refresh(refreshToken);
+
+            // Then
+            assertNotNull(tokens);
+            assertEquals(900, tokens.expiresIn());
+            assertNotNull(tokenService.authenticate(tokens.accessToken()));
+        }
+
+        @Test
+        @DisplayName("После смены пароля токен обновления отклоняется")
+        void refresh_AfterPasswordChange_ShouldReturnNull() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            String refreshToken = tokenService.issue("test@mail.ru").refreshToken();
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("newEncodedPassword"));
+
+            // When & Then
+            assertNull(tokenService.refresh(refreshToken));
+        }
+
+        @Test
+        @DisplayName("Токен доступа не принимается как токен обновления")
+        void refresh_WithAccessToken_ShouldReturnNull() {
+            // Given
+            when(userDetailsService.loadUserByUsername("test@mail.ru")).thenReturn(user("encodedPassword"));
+            String accessToken = tokenService.issue("test@mail.ru").accessToken();
+
+            // When & Then
+            assertNull(tokenService.refresh(accessToken));
+        }
+    }
+
+    private TokenService tokenService(Instant now) {
+        return new TokenService(SECRET, Duration.ofMinutes(15), Duration.ofDays(14),
+                new ObjectMapper(), userDetailsService, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static AuthenticatedUserDetails user(String password) {
+        return new AuthenticatedUserDetails(1L, "test@mail.ru", password, Role.USER);
+    }
+}
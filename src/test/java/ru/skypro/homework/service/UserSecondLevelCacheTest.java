@@ -0,0 +1,89 @@
+package ru.skypro.homework.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.skypro.homework.dto.Role;
+import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.UserRepository;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка, что загрузка пользователя для аутентификации после первого чтения
+ * обслуживается кэшем второго уровня без запросов к БД и видит зафиксированные изменения
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@DisplayName("Тестирование кэша второго уровня для пользователей")
+class UserSecondLevelCacheTest {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("l2-cache-" + UUID.randomUUID() + "@mail.ru");
+        user.setPassword("password");
+        user.setFirstName("Cached");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    @DisplayName("Повторная загрузка по имени не обращается к БД")
+    void loadUserByUsername_Repeated_ShouldNotQueryDatabase() {
+        // Given
+        userDetailsService.loadUserByUsername(user.getUsername());
+
+        // When
+        statistics.clear();
+        AuthenticatedUserDetails details = userDetailsService.loadUserByUsername(user.getUsername());
+
+        // Then
+        assertEquals(user.getId(), details.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    @DisplayName("Изменение пользователя видно после фиксации")
+    void findByUsername_AfterUpdate_ShouldReturnCommittedState() {
+        // Given
+        userRepository.findByUsername(user.getUsername()).orElseThrow();
+        user.setPassword("changed");
+        userRepository.save(user);
+
+        // When
+        User reloaded = userRepository.findByUsername(user.getUsername()).orElseThrow();
+
+        // Then
+        assertEquals("changed", reloaded.getPassword());
+    }
+}
@@ -6,31 +6,37 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.skypro.homework.config.CacheConfig;
+import ru.skypro.homework.dto.AuthenticatedUser;
 import ru.skypro.homework.dto.Role;
 import ru.skypro.homework.dto.user.UserProfileResponse;
 import ru.skypro.homework.dto.user.UserProfileUpdateRequest;
 import ru.skypro.homework.entity.Ad;
 import ru.skypro.homework.entity.Avatar;
 import ru.skypro.homework.entity.User;
+import ru.skypro.homework.repository.AdRepository;
+import ru.skypro.homework.repository.AvatarPreviewRepository;
 import ru.skypro.homework.repository.AvatarRepository;
 import ru.skypro.homework.repository.UserRepository;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,9 +49,27 @@ class UserServiceTest {
     @Mock
     private AvatarRepository avatarRepository;
 
+    @Mock
+    private AvatarPreviewRepository avatarPreviewRepository;
+
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private BasicAuthCredentialCache credentialCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ImageUploadWriter imageUploadWriter;
+
+    @Mock
+    private AdRepository adRepository;
+
+    @Mock
+    private CacheManager cacheManager;
+
     @InjectMocks
     private UserService userService;
 
@@ -133,6 +157,31 @@ class UserServiceTest {
             assertEquals("UpdatedDoe", user.getLastName());
             assertEquals("+79998887700", user.getPhone());
             assertEquals(Role.ADMIN, user.getRole());
+            verify(credentialCache, times(1)).invalidate(username);
+        }
+
+        @Test
+        @DisplayName("Обновление профиля удаляет из кэша карточки объявлений пользователя")
+        void updateUserProfile_ShouldEvictUserAdDetails() {
+            // Given
+            String username = "test@mail.ru";
+            User user = new User();
+            user.setId(1L);
+            user.setUsername(username);
+            user.setRole(Role.USER);
+            Cache adDetails = mock(Cache.class);
+
+            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+            when(cacheManager.getCache(CacheConfig.AD_DETAILS)).thenReturn(adDetails);
+            when(adRepository.findIdsByUsername(username)).thenReturn(List.of(10L, 11L));
+
+            // When
+            userService.updateUserProfile(username, new UserProfileUpdateRequest());
+
+            // Then
+            verify(adDetails).evict(10L);
+            verify(adDetails).evict(11L);
+            verifyNoMoreInteractions(adDetails);
         }
     }
 
@@ -144,69 +193,91 @@ class UserServiceTest {
         @DisplayName("Проверка прав доступа для администратора")
         void hasPermission_WhenAdmin_ShouldReturnTrue() {
             // Given
-            String username = "admin@mail.ru";
-            User user = new User();
-            user.setUsername(username);
-            user.setRole(Role.ADMIN);
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "admin@mail.ru", Role.ADMIN);
+            User admin = new User();
+            admin.setId(1L);
+            admin.setRole(Role.ADMIN);
 
             User adUser = new User();
+            adUser.setId(2L);
             adUser.setUsername("other@mail.ru");
 
             Ad ad = new Ad();
             ad.setUser(adUser);
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+            when(userRepository.findById(1L)).thenReturn(Optional.of(admin));
 
             // When
-            boolean result = userService.hasPermission(ad, username);
+            boolean result = userService.hasPermission(ad, principal);
 
             // Then
             assertTrue(result);
         }
 
+        @Test
+        @DisplayName("Администратор, пониженный после входа, теряет права на чужие объявления")
+        void hasPermission_WhenAdminDemotedAfterLogin_ShouldReturnFalse() {
+            // Given
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "admin@mail.ru", Role.ADMIN);
+            User demoted = new User();
+            demoted.setId(1L);
+            demoted.setRole(Role.USER);
+
+            User adUser = new User();
+            adUser.setId(2L);
+            adUser.setUsername("other@mail.ru");
+
+            Ad ad = new Ad();
+            ad.setUser(adUser);
+
+            when(userRepository.findById(1L)).thenReturn(Optional.of(demoted));
+
+            // When
+            boolean result = userService.hasPermission(ad, principal);
+
+            // Then
+            assertFalse(result);
+        }
+
         @Test
         @DisplayName("Проверка прав доступа для автора объявления")
         void hasPermission_WhenAdAuthor_ShouldReturnTrue() {
             // Given
-            String username = "author@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "author@mail.ru", Role.USER);
             User user = new User();
-            user.setUsername(username);
-            user.setRole(Role.USER);
+            user.setId(1L);
+            user.setUsername(principal.username());
 
             Ad ad = new Ad();
             ad.setUser(user);
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
-
             // When
-            boolean result = userService.hasPermission(ad, username);
+            boolean result = userService.hasPermission(ad, principal);
 
             // Then
             assertTrue(result);
+            verifyNoInteractions(userRepository);
         }
 
         @Test
         @DisplayName("Проверка прав доступа для неавторизованного пользователя")
         void hasPermission_WhenNotAuthorized_ShouldReturnFalse() {
             // Given
-            String username = "other@mail.ru";
-            User user = new User();
-            user.setUsername(username);
-            user.setRole(Role.USER);
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "other@mail.ru", Role.USER);
 
             User adUser = new User();
+            adUser.setId(2L);
             adUser.setUsername("author@mail.ru");
 
             Ad ad = new Ad();
             ad.setUser(adUser);
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
-
             // When
-            boolean result = userService.hasPermission(ad, username);
+            boolean result = userService.hasPermission(ad, principal);
 
             // Then
             assertFalse(result);
+            verifyNoInteractions(userRepository);
         }
     }
 
@@ -218,7 +289,7 @@ class UserServiceTest {
         @DisplayName("Успешная загрузка аватара с валидным файлом")
         void uploadAvatar_WithValidFile_ShouldReturnTrue() throws IOException {
             // Given
-            String username = "test@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
 
             String fakePath = "/fake/avatars/path";
             ReflectionTestUtils.setField(userService, "avatarsDir", fakePath);
@@ -228,46 +299,50 @@ class UserServiceTest {
             );
 
             User user = new User();
-            user.setUsername(username);
+            user.setUsername(principal.username());
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
-            when(avatarRepository.findByUser_Username(username)).thenReturn(Optional.empty());
+            when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+            when(avatarRepository.findByUser_Username(principal.username())).thenReturn(Optional.empty());
             when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-            try (MockedStatic<ImageIO> imageIOMock = mockStatic(ImageIO.class);
-                 MockedStatic<Files> filesMock = mockStatic(Files.class)) {
+            when(imageUploadWriter.store(eq(file), any())).thenAnswer(invocation -> {
+                Function<ImageUploadWriter.Format, Path> target = invocation.getArgument(1);
+                return new ImageUploadWriter.StoredImage(target.apply(ImageUploadWriter.Format.PNG),
+                        4, "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08", ImageUploadWriter.Format.PNG);
+            });
 
-                BufferedImage mockImage = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
-                imageIOMock.when(() -> ImageIO.read(any(InputStream.class))).thenReturn(mockImage);
-                imageIOMock.when(() -> ImageIO.write(any(BufferedImage.class), anyString(), any(OutputStream.class)))
-                        .thenReturn(true);
-
-                filesMock.when(() -> Files.createDirectories(any(Path.class))).thenReturn(null);
-                filesMock.when(() -> Files.deleteIfExists(any(Path.class))).thenReturn(true);
-                filesMock.when(() -> Files.newOutputStream(any(Path.class), any())).thenReturn(mock(OutputStream.class));
-
-                // When
-                boolean result = userService.uploadAvatar(username, file);
+            // When
+            boolean result = userService.uploadAvatar(principal, file);
 
-                // Then
-                assertTrue(result);
-                verify(avatarRepository, times(1)).save(any(Avatar.class));
-            }
+            // Then
+            assertTrue(result);
+            verify(avatarRepository, times(1)).save(argThat(avatar ->
+                    "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08".equals(avatar.getFileHash())
+                            && avatar.getFilePath().startsWith(Path.of(fakePath, "test@mail.ru_").toString())
+                            && avatar.getFilePath().endsWith(".png")
+                            && "image/png".equals(avatar.getMediaType())
+                            && avatar.getFileModifiedAt() != null));
+            verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                    event instanceof ImageUploadedEvent uploaded
+                            && uploaded.owner() == ImageUploadedEvent.Owner.AVATAR
+                            && "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08".equals(uploaded.fileHash())
+                            && "image/png".equals(uploaded.mediaType())));
+            verifyNoInteractions(avatarPreviewRepository);
         }
 
         @Test
         @DisplayName("Загрузка аватара для несуществующего пользователя")
         void uploadAvatar_WhenUserNotFound_ShouldReturnFalse() throws IOException {
             // Given
-            String username = "nonexistent@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "nonexistent@mail.ru", Role.USER);
             MockMultipartFile file = new MockMultipartFile(
                     "avatar", "avatar.jpg", "image/jpeg", new byte[0]
             );
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+            when(userRepository.findById(1L)).thenReturn(Optional.empty());
 
             // When
-            boolean result = userService.uploadAvatar(username, file);
+            boolean result = userService.uploadAvatar(principal, file);
 
             // Then
             assertFalse(result);
@@ -282,48 +357,80 @@ class UserServiceTest {
         @DisplayName("Успешная смена пароля при правильном текущем пароле")
         void changePassword_WhenCurrentPasswordCorrect_ShouldReturnTrue() {
             // Given
-            String username = "test@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
             String currentPassword = "oldPassword";
             String newPassword = "newPassword";
 
             User user = new User();
-            user.setUsername(username);
+            user.setUsername(principal.username());
             user.setPassword("encodedOldPassword");
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+            when(userRepository.findById(1L)).thenReturn(Optional.of(user));
             when(passwordEncoder.matches(currentPassword, user.getPassword())).thenReturn(true);
             when(passwordEncoder.encode(newPassword)).thenReturn("encodedNewPassword");
             when(userRepository.save(any(User.class))).thenReturn(user);
 
             // When
-            boolean result = userService.changePassword(username, currentPassword, newPassword);
+            boolean result = userService.changePassword(principal, currentPassword, newPassword);
 
             // Then
             assertTrue(result);
             verify(userRepository, times(1)).save(user);
+            verify(userRepository, never()).findByUsername(anyString());
+            verify(credentialCache, times(1)).invalidate(principal.username());
+        }
+
+        @Test
+        @DisplayName("Кэш Basic-аутентификации сбрасывается только после фиксации смены пароля")
+        void changePassword_InTransaction_ShouldInvalidateCredentialsAfterCommit() {
+            // Given
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
+            User user = new User();
+            user.setUsername(principal.username());
+            user.setPassword("encodedOldPassword");
+
+            when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+            when(passwordEncoder.matches("oldPassword", user.getPassword())).thenReturn(true);
+            when(passwordEncoder.encode("newPassword")).thenReturn("encodedNewPassword");
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                // When
+                boolean result = userService.changePassword(principal, "oldPassword", "newPassword");
+
+                // Then
+                assertTrue(result);
+                verify(credentialCache, never()).invalidate(anyString());
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                verify(credentialCache, times(1)).invalidate(principal.username());
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
         }
 
         @Test
         @DisplayName("Смена пароля с неправильным текущим паролем")
         void changePassword_WhenCurrentPasswordIncorrect_ShouldReturnFalse() {
             // Given
-            String username = "test@mail.ru";
+            AuthenticatedUser principal = new AuthenticatedUser(1L, "test@mail.ru", Role.USER);
             String currentPassword = "wrongPassword";
             String newPassword = "newPassword";
 
             User user = new User();
-            user.setUsername(username);
+            user.setUsername(principal.username());
             user.setPassword("encodedOldPassword");
 
-            when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+            when(userRepository.findById(1L)).thenReturn(Optional.of(user));
             when(passwordEncoder.matches(currentPassword, user.getPassword())).thenReturn(false);
 
             // When
-            boolean result = userService.changePassword(username, currentPassword, newPassword);
+            boolean result = userService.changePassword(principal, currentPassword, newPassword);
 
             // Then
             assertFalse(result);
             verify(userRepository, never()).save(any(User.class));
+            verify(credentialCache, never()).invalidate(anyString());
         }
     }
 